@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bonitasoft.web.designer.model.contract.databind.ContractTreeDeserializer;
+import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.contract.EditMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Contract json as posted by the studio to generate a form, read through {@link org.bonitasoft.web.designer.model.contract.databind.ContractDeserializer}
+ * and through the json tree based {@link ContractTreeDeserializer}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContractDeserializerBenchmark {
+
+    @Param({"1", "3", "5"})
+    private int depth;
+
+    @Param({"5", "20"})
+    private int width;
+
+    private ObjectMapper objectMapper;
+    private String json;
+    private ContractTreeDeserializer treeDeserializer;
+
+    @Setup
+    public void setUp() {
+        objectMapper = new ObjectMapper();
+        json = SyntheticContracts.contractJson(depth, width, EditMode.EDIT);
+        treeDeserializer = new ContractTreeDeserializer();
+    }
+
+    @Benchmark
+    public Contract deserialize() throws IOException {
+        return objectMapper.readValue(json, Contract.class);
+    }
+
+    /**
+     * Same binding going through a json tree first, to compare allocations with the streaming deserializer
+     */
+    @Benchmark
+    public Contract deserializeFromTree() throws IOException {
+        try (var parser = objectMapper.createParser(json)) {
+            return treeDeserializer.deserialize(parser, objectMapper.getDeserializationContext());
+        }
+    }
+}
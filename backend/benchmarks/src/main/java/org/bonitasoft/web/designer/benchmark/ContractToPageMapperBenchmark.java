@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.web.designer.generator.mapping.ContractInputToWidgetMapper;
+import org.bonitasoft.web.designer.generator.mapping.ContractToContainerMapper;
+import org.bonitasoft.web.designer.generator.mapping.ContractToPageMapper;
+import org.bonitasoft.web.designer.generator.mapping.DimensionFactory;
+import org.bonitasoft.web.designer.generator.mapping.FormScope;
+import org.bonitasoft.web.designer.generator.mapping.data.BusinessQueryDataFactory;
+import org.bonitasoft.web.designer.model.JsonHandlerFactory;
+import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.contract.EditMode;
+import org.bonitasoft.web.designer.model.page.Page;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Whole form generation, from a contract to a page, for each form scope. Task forms are generated from a contract in
+ * edit mode as they usually update existing business data.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContractToPageMapperBenchmark {
+
+    @Param({"TASK", "PROCESS", "OVERVIEW"})
+    private FormScope scope;
+
+    @Param({"1", "3"})
+    private int depth;
+
+    @Param({"5", "20"})
+    private int width;
+
+    private ContractToPageMapper contractToPageMapper;
+    private Contract contract;
+
+    @Setup
+    public void setUp() {
+        var jsonHandler = new JsonHandlerFactory().create();
+        var dimensionFactory = new DimensionFactory();
+        var contractToWidgetMapper = new ContractInputToWidgetMapper(dimensionFactory, jsonHandler);
+        contractToPageMapper = new ContractToPageMapper(contractToWidgetMapper,
+                new ContractToContainerMapper(contractToWidgetMapper), jsonHandler, dimensionFactory,
+                new BusinessQueryDataFactory());
+        contract = SyntheticContracts.contract(depth, width, scope == FormScope.TASK ? EditMode.EDIT : EditMode.CREATE);
+    }
+
+    @Benchmark
+    public Page createFormPage() {
+        return contractToPageMapper.createFormPage("benchmarkForm", contract, scope);
+    }
+}
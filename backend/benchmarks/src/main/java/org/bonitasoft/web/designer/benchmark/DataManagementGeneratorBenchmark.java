@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bonitasoft.web.designer.generator.mapping.DimensionFactory;
+import org.bonitasoft.web.designer.generator.mapping.dataManagement.BusinessObject;
+import org.bonitasoft.web.designer.generator.mapping.dataManagement.BusinessObjectContainer;
+import org.bonitasoft.web.designer.generator.mapping.dataManagement.DataManagementGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Data management container generation from an already deserialized business object
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DataManagementGeneratorBenchmark {
+
+    @Param({"1", "3", "5"})
+    private int depth;
+
+    @Param({"5", "20"})
+    private int width;
+
+    private DataManagementGenerator dataManagementGenerator;
+    private BusinessObject businessObject;
+
+    @Setup
+    public void setUp() throws IOException {
+        dataManagementGenerator = new DataManagementGenerator(new DimensionFactory());
+        businessObject = new ObjectMapper().readValue(SyntheticContracts.businessObjectJson(depth, width),
+                BusinessObject.class);
+    }
+
+    @Benchmark
+    public BusinessObjectContainer generate() {
+        return dataManagementGenerator.generate(businessObject);
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bonitasoft.web.designer.generator.mapping.data.FormOutputVisitor;
+import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.contract.EditMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Form output expression generation. {@link #visitAndBuildExpression()} measures what form generation actually does while
+ * {@link #buildExpression()} isolates the javascript rendering of an already visited contract.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FormOutputVisitorBenchmark {
+
+    @Param({"1", "3", "5"})
+    private int depth;
+
+    @Param({"5", "20"})
+    private int width;
+
+    @Param({"CREATE", "EDIT"})
+    private EditMode mode;
+
+    private Contract contract;
+    private FormOutputVisitor visitedContract;
+
+    @Setup
+    public void setUp() {
+        contract = SyntheticContracts.contract(depth, width, mode);
+        visitedContract = new FormOutputVisitor();
+        contract.accept(visitedContract);
+    }
+
+    @Benchmark
+    public String visitAndBuildExpression() {
+        var visitor = new FormOutputVisitor();
+        contract.accept(visitor);
+        return visitor.toJavascriptExpression();
+    }
+
+    @Benchmark
+    public String buildExpression() {
+        return visitedContract.toJavascriptExpression();
+    }
+}
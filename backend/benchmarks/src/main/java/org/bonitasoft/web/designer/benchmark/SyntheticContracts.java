@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.benchmark;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bonitasoft.web.designer.model.contract.BusinessDataReference;
+import org.bonitasoft.web.designer.model.contract.BusinessDataReference.LoadingType;
+import org.bonitasoft.web.designer.model.contract.BusinessDataReference.RelationType;
+import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.contract.ContractInputContainer;
+import org.bonitasoft.web.designer.model.contract.EditMode;
+import org.bonitasoft.web.designer.model.contract.LeafContractInput;
+import org.bonitasoft.web.designer.model.contract.NodeContractInput;
+
+/**
+ * Builds contracts and business objects of a given shape. Each complex input holds <code>width</code> simple inputs
+ * and {@link #BRANCHING} complex inputs, down to <code>depth</code> levels, so that the number of inputs grows with both
+ * parameters the same way it does with real business data models.
+ */
+public final class SyntheticContracts {
+
+    public static final int BRANCHING = 2;
+
+    private static final Class<?>[] LEAF_TYPES = {String.class, Boolean.class, Integer.class, Double.class,
+            LocalDate.class, OffsetDateTime.class, Long.class};
+    private static final String[] ATTRIBUTE_TYPES = {"STRING", "BOOLEAN", "INTEGER", "DOUBLE", "LOCALDATE",
+            "OFFSETDATETIME", "LONG", "TEXT"};
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private SyntheticContracts() {
+    }
+
+    public static Contract contract(int depth, int width, EditMode mode) {
+        var contract = new Contract();
+        var root = new NodeContractInput("rootInput");
+        root.setDataReference(new BusinessDataReference("root", "com.company.model.Root", RelationType.COMPOSITION,
+                LoadingType.EAGER));
+        fill(root, "root", 1, depth, width);
+        contract.addInput(root);
+        for (var i = 0; i < width; i++) {
+            contract.addInput(leaf("param" + i, i));
+        }
+        updateMode(contract, mode);
+        return contract;
+    }
+
+    public static String contractJson(int depth, int width, EditMode mode) {
+        return toJson(contract(depth, width, mode));
+    }
+
+    /**
+     * Business object json as sent by the studio when generating a data management container
+     */
+    public static String businessObjectJson(int depth, int width) {
+        var businessObject = new LinkedHashMap<String, Object>();
+        businessObject.put("name", "com.company.model.Root");
+        businessObject.put("variableName", "root");
+        businessObject.put("attributes", attributes(1, depth, width));
+        return toJson(businessObject);
+    }
+
+    private static void fill(NodeContractInput node, String path, int level, int depth, int width) {
+        for (var i = 0; i < width; i++) {
+            node.addInput(leaf(path + "Field" + i, i));
+        }
+        if (level >= depth) {
+            return;
+        }
+        for (var i = 0; i < BRANCHING; i++) {
+            var name = path + "Child" + i;
+            var child = new NodeContractInput(name);
+            child.setMultiple(i % 2 == 1);
+            child.setDataReference(new BusinessDataReference(name, "com.company.model." + name,
+                    RelationType.COMPOSITION, i % 2 == 0 ? LoadingType.EAGER : LoadingType.LAZY));
+            fill(child, name, level + 1, depth, width);
+            node.addInput(child);
+        }
+    }
+
+    private static LeafContractInput leaf(String name, int index) {
+        var leaf = new LeafContractInput(name, LEAF_TYPES[index % LEAF_TYPES.length]);
+        leaf.setMandatory(index % 3 == 0);
+        leaf.setDescription("Description of " + name);
+        return leaf;
+    }
+
+    private static List<Map<String, Object>> attributes(int level, int depth, int width) {
+        var attributes = new ArrayList<Map<String, Object>>();
+        for (var i = 0; i < width; i++) {
+            var attribute = new LinkedHashMap<String, Object>();
+            attribute.put("name", "field" + i);
+            attribute.put("type", ATTRIBUTE_TYPES[i % ATTRIBUTE_TYPES.length]);
+            attribute.put("nullable", String.valueOf(i % 3 != 0));
+            attribute.put("collection", "false");
+            attribute.put("description", "");
+            attributes.add(attribute);
+        }
+        if (level < depth) {
+            for (var i = 0; i < BRANCHING; i++) {
+                var reference = new LinkedHashMap<String, Object>();
+                reference.put("name", "child" + i);
+                reference.put("type", i % 2 == 0 ? "COMPOSITION" : "AGGREGATION");
+                reference.put("nullable", "true");
+                reference.put("collection", String.valueOf(i % 2 == 1));
+                reference.put("description", "");
+                reference.put("reference", "com.company.model.Level" + level + "Child" + i);
+                reference.put("fetchType", i % 2 == 0 ? "EAGER" : "LAZY");
+                reference.put("attributes", attributes(level + 1, depth, width));
+                attributes.add(reference);
+            }
+        }
+        return attributes;
+    }
+
+    private static void updateMode(ContractInputContainer container, EditMode mode) {
+        container.getInput().forEach(input -> {
+            input.setMode(mode);
+            updateMode(input, mode);
+        });
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize synthetic input", e);
+        }
+    }
+}
@@ -15,136 +15,172 @@
 package org.bonitasoft.web.designer.model.contract.databind;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.bonitasoft.web.designer.model.contract.AbstractContractInput;
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference;
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference.LoadingType;
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference.RelationType;
 import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.contract.ContractInput;
 import org.bonitasoft.web.designer.model.contract.ContractInputContainer;
 import org.bonitasoft.web.designer.model.contract.DataReference;
 import org.bonitasoft.web.designer.model.contract.EditMode;
 import org.bonitasoft.web.designer.model.contract.LeafContractInput;
 import org.bonitasoft.web.designer.model.contract.NodeContractInput;
 
+/**
+ * Binds a contract straight from the parser tokens, without reading it as a json tree first.
+ * Fields of an input may come in any order, so they are gathered before the input is created.
+ */
 public class ContractDeserializer extends JsonDeserializer<Contract> {
 
     @Override
     public Contract deserialize(JsonParser parser, DeserializationContext ctxt) throws IOException {
-        ObjectCodec oc = parser.getCodec();
-        ObjectNode treeNode = oc.readTree(parser);
         var contract = new Contract();
-        parseNodeContractInput(childInput(treeNode), contract);
-        return contract;
-    }
-
-    private void parseNodeContractInput(ArrayNode inputArray, ContractInputContainer rootNodeInput) throws IOException {
-        for (var i = 0; i < inputArray.size(); i++) {
-            JsonNode childNode = inputArray.get(i);
-            Class<?> inputType = inputType(childNode);
-            if (inputType.equals(NodeContractInput.class)) {
-                var nodeContractInput = newNodeContractInput(childNode);
-                rootNodeInput.addInput(nodeContractInput);
-                parseNodeContractInput(childInput(childNode), nodeContractInput);
+        var token = startObject(parser, Contract.class);
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            if ("input".equals(field)) {
+                addInputs(parser, contract);
             } else {
-                rootNodeInput.addInput(newLeafContractInput(childNode, inputType));
+                parser.skipChildren();
             }
         }
+        return contract;
     }
 
-    private NodeContractInput newNodeContractInput(JsonNode childNode) {
-        var nodeContractInput = new NodeContractInput(inputName(childNode));
-        nodeContractInput.setMandatory(mandatoryValue(childNode));
-        nodeContractInput.setMultiple(multipleValue(childNode));
-        nodeContractInput.setDescription(descriptionValue(childNode));
-        nodeContractInput.setDataReference(dataReference(childNode));
-        nodeContractInput.setMode(inputMode(childNode));
-        nodeContractInput.setReadonly(readOnlyValue(childNode));
-        return nodeContractInput;
-    }
-
-    private LeafContractInput newLeafContractInput(JsonNode childNode, Class<?> inputType) {
-        var leafContractInput = new LeafContractInput(inputName(childNode), inputType);
-        leafContractInput.setMandatory(mandatoryValue(childNode));
-        leafContractInput.setMultiple(multipleValue(childNode));
-        leafContractInput.setDescription(descriptionValue(childNode));
-        leafContractInput.setDataReference(dataReference(childNode));
-        leafContractInput.setMode(inputMode(childNode));
-        leafContractInput.setReadonly(readOnlyValue(childNode));
-        return leafContractInput;
-    }
-
-    private Class<?> inputType(JsonNode childNode) throws IOException {
-        Class<?> inputType;
-        try {
-            inputType = Class.forName(classNameValue(childNode));
-        } catch (ClassNotFoundException e) {
-            throw new IOException(
-                    String.format("Failed to create LeafContractInput with type %s", classNameValue(childNode)), e);
+    private void addInputs(JsonParser parser, ContractInputContainer container) throws IOException {
+        for (var input : parseInputs(parser)) {
+            container.addInput(input);
         }
-        return inputType;
     }
 
-    private ArrayNode childInput(JsonNode treeNode) {
-        return (ArrayNode) (treeNode.has("input") ? treeNode.get("input") : new ArrayNode(JsonNodeFactory.instance));
-    }
-
-    private String classNameValue(JsonNode contractInput) {
-        var jsonNode = contractInput.get("type");
-        return jsonNode != null ? jsonNode.asText(String.class.getName()) : String.class.getName();
-    }
-
-    private String descriptionValue(JsonNode contractInput) {
-        JsonNode descriptionNode = contractInput.get("description");
-        return descriptionNode != null ? descriptionNode.asText(null) : null;
-    }
-
-    private boolean multipleValue(JsonNode contractInput) {
-        var jsonNode = contractInput.get("multiple");
-        return jsonNode != null && jsonNode.asBoolean(false);
+    private List<ContractInput> parseInputs(JsonParser parser) throws IOException {
+        var inputs = new ArrayList<ContractInput>();
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return inputs;
+        }
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw MismatchedInputException.from(parser, List.class, "Contract inputs should be an array");
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            inputs.add(parseInput(parser));
+        }
+        return inputs;
     }
 
-    private boolean mandatoryValue(JsonNode contractInput) {
-        var jsonNode = contractInput.get("mandatory");
-        return jsonNode != null && jsonNode.asBoolean(false);
+    private ContractInput parseInput(JsonParser parser) throws IOException {
+        var fields = new InputFields();
+        var token = startObject(parser, ContractInput.class);
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "name":
+                    fields.name = textValue(parser, "");
+                    break;
+                case "type":
+                    fields.type = textValue(parser, String.class.getName());
+                    break;
+                case "description":
+                    fields.description = textValue(parser, null);
+                    break;
+                case "mandatory":
+                    fields.mandatory = booleanValue(parser);
+                    break;
+                case "multiple":
+                    fields.multiple = booleanValue(parser);
+                    break;
+                case "readOnly":
+                    fields.readOnly = booleanValue(parser);
+                    break;
+                case "mode":
+                    fields.mode = EditMode.valueOf(textValue(parser, ""));
+                    break;
+                case "dataReference":
+                    fields.dataReference = dataReference(parser);
+                    break;
+                case "input":
+                    fields.input = parseInputs(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return fields.toContractInput();
     }
 
-    private String inputName(JsonNode contractInput) {
-        var jsonNode = contractInput.get("name");
-        return jsonNode != null ? jsonNode.asText("") : "";
+    private DataReference dataReference(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        String name = null;
+        String type = null;
+        String relationType = null;
+        String loadingType = null;
+        var token = startObject(parser, DataReference.class);
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "name":
+                    name = textValue(parser, null);
+                    break;
+                case "type":
+                    type = textValue(parser, null);
+                    break;
+                case "relationType":
+                    relationType = textValue(parser, null);
+                    break;
+                case "loadingType":
+                    loadingType = textValue(parser, null);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return relationType != null
+                ? new BusinessDataReference(name, type, RelationType.valueOf(relationType), LoadingType.valueOf(loadingType))
+                : new DataReference(name, type);
     }
 
-    private DataReference dataReference(JsonNode contractInput) {
-        var jsonNode = contractInput.get("dataReference");
-        if (jsonNode != null && !jsonNode.isNull()) {
-            boolean isBusinessDataRef = jsonNode.get("relationType") != null && !jsonNode.get("relationType").isNull();
-            return isBusinessDataRef
-                    ? new BusinessDataReference(jsonNode.get("name").asText(),
-                            jsonNode.get("type").asText(),
-                            RelationType.valueOf(jsonNode.get("relationType").asText()),
-                            LoadingType.valueOf(jsonNode.get("loadingType").asText()))
-                    : new DataReference(jsonNode.get("name").asText(),
-                            jsonNode.get("type").asText());
+    /**
+     * @return the first token inside the object the parser is on
+     */
+    private JsonToken startObject(JsonParser parser, Class<?> targetType) throws IOException {
+        var token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
         }
-        return null;
+        if (token != JsonToken.START_OBJECT) {
+            throw MismatchedInputException.from(parser, targetType,
+                    String.format("Cannot read %s from %s", targetType.getSimpleName(), token));
+        }
+        return parser.nextToken();
     }
 
-    private EditMode inputMode(JsonNode contractInput) {
-        var jsonNode = contractInput.get("mode");
-        return jsonNode != null ? EditMode.valueOf(jsonNode.asText("")) : EditMode.CREATE;
+    private String textValue(JsonParser parser, String defaultValue) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getValueAsString(defaultValue);
     }
 
-    private boolean readOnlyValue(JsonNode contractInput) {
-        var jsonNode = contractInput.get("readOnly");
-        return jsonNode != null && jsonNode.asBoolean(false);
+    private boolean booleanValue(JsonParser parser) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return false;
+        }
+        return parser.getValueAsBoolean(false);
     }
 
     @Override
@@ -152,4 +188,41 @@ public class ContractDeserializer extends JsonDeserializer<Contract> {
         return Contract.class;
     }
 
+    private static class InputFields {
+
+        private String name = "";
+        private String type = String.class.getName();
+        private String description;
+        private boolean mandatory;
+        private boolean multiple;
+        private boolean readOnly;
+        private EditMode mode = EditMode.CREATE;
+        private DataReference dataReference;
+        private List<ContractInput> input = List.of();
+
+        private ContractInput toContractInput() throws IOException {
+            Class<?> inputType;
+            try {
+                inputType = Class.forName(type);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(String.format("Failed to create LeafContractInput with type %s", type), e);
+            }
+            if (inputType.equals(NodeContractInput.class)) {
+                var nodeContractInput = new NodeContractInput(name);
+                input.forEach(nodeContractInput::addInput);
+                return fill(nodeContractInput);
+            }
+            return fill(new LeafContractInput(name, inputType));
+        }
+
+        private ContractInput fill(AbstractContractInput contractInput) {
+            contractInput.setMandatory(mandatory);
+            contractInput.setMultiple(multiple);
+            contractInput.setDescription(description);
+            contractInput.setDataReference(dataReference);
+            contractInput.setMode(mode);
+            contractInput.setReadonly(readOnly);
+            return contractInput;
+        }
+    }
 }
@@ -15,6 +15,7 @@
 package org.bonitasoft.web.designer.model.contract.databind;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference;
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference.LoadingType;
@@ -29,6 +30,7 @@ import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
@@ -103,4 +105,40 @@ public class ContractDeserializerTest {
                 .contains(tuple("", String.class.getName(), null, false, false, new ArrayList<>()));
     }
 
+    @Test
+    public void should_bind_contracts_as_the_tree_deserializer_does() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Contract> contracts = List.of(aSimpleContract(),
+                aSimpleContractWithDataRef(EditMode.EDIT),
+                aSimpleContractWithDataRef(EditMode.CREATE),
+                aContractWithDataRefAndAggregation(EditMode.EDIT),
+                aContractWithMultipleInput());
+
+        for (Contract aContract : contracts) {
+            byte[] serializedContract = objectMapper.writeValueAsBytes(aContract);
+
+            Contract streamed = new ContractDeserializer().deserialize(objectMapper.createParser(serializedContract), null);
+            Contract fromTree = new ContractTreeDeserializer().deserialize(objectMapper.createParser(serializedContract), null);
+
+            assertThat(objectMapper.writeValueAsString(streamed)).isEqualTo(objectMapper.writeValueAsString(fromTree));
+        }
+    }
+
+    @Test
+    public void deserialize_input_fields_in_any_order() throws Exception {
+        String json = "{\"input\": [{\"input\": [{\"name\": \"street\"}], \"unknown\": {\"name\": \"ignored\"},"
+                + " \"mode\": \"EDIT\", \"multiple\": true, \"type\": \"" + NodeContractInput.class.getName() + "\","
+                + " \"dataReference\": {\"loadingType\": \"LAZY\", \"relationType\": \"COMPOSITION\", \"type\": \"org.test.Address\", \"name\": \"address\"},"
+                + " \"name\": \"addresses\"}], \"name\": \"contract\"}";
+        JsonParser parser = new JsonFactory(new ObjectMapper()).createParser(json);
+
+        Contract contract = new ContractDeserializer().deserialize(parser, null);
+
+        assertThat(contract.getInput()).extracting("name", "type", "multiple", "mode", "dataReference").containsExactly(
+                tuple("addresses", NodeContractInput.class.getName(), true, EditMode.EDIT,
+                        new BusinessDataReference("address", "org.test.Address", RelationType.COMPOSITION, LoadingType.LAZY)));
+        assertThat(contract.getInput().get(0).getInput()).extracting("name", "type", "parent")
+                .containsExactly(tuple("street", String.class.getName(), contract.getInput().get(0)));
+    }
+
 }
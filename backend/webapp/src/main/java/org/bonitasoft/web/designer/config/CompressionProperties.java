@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Settings of the gzip copies of the text files served by the preview and the static resource handlers
+ */
+@Data
+@ConfigurationProperties(prefix = "designer.compression")
+public class CompressionProperties {
+
+    private boolean enabled = true;
+
+    /**
+     * Files smaller than this size in bytes are sent as is
+     */
+    private long minSize = 1024;
+
+    /**
+     * Disk space used by the gzip copies, the oldest copies are deleted beyond it
+     */
+    private DataSize maxCacheSize = DataSize.ofMegabytes(100);
+}
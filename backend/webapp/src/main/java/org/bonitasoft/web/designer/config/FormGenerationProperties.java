@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings of the generation of forms from a process contract
+ */
+@Data
+@ConfigurationProperties(prefix = "designer.form-generation")
+public class FormGenerationProperties {
+
+    private final Cache cache = new Cache();
+
+    /**
+     * Number of forms generated at the same time by a batch generation
+     */
+    private int parallelism = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Number of forms a batch generation accepts
+     */
+    private int maxBatchSize = 200;
+
+    /**
+     * Number of contract inputs above which the widgets of the top level inputs of a contract are built concurrently,
+     * 0 always builds them one after the other
+     */
+    private int parallelThreshold = 300;
+
+    @Data
+    public static class Cache {
+
+        /**
+         * Maximum number of generated forms kept in memory to be reused for the same contract, 0 disables the cache
+         */
+        private int maxEntries = 100;
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Limits applied when extracting an uploaded archive, an archive going over them is rejected. The entries and size
+ * limits apply to all the archives of a bulk import together, nested archives included.
+ */
+@Data
+@ConfigurationProperties(prefix = "designer.import")
+public class ImportProperties {
+
+    private int maxEntries = 10_000;
+
+    /**
+     * Sum of the sizes of the extracted files, as actually written on disk
+     */
+    private DataSize maxUncompressedSize = DataSize.ofMegabytes(500);
+
+    /**
+     * Number of archives a bulk import accepts, archives nested in an uploaded archive included
+     */
+    private int maxBulkFiles = 500;
+
+    /**
+     * Number of archives extracted and validated at the same time during a bulk import
+     */
+    private int bulkParallelism = Math.min(4, Runtime.getRuntime().availableProcessors());
+}
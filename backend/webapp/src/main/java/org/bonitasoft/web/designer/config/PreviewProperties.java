@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Settings of the preview endpoints served by {@link org.bonitasoft.web.designer.controller.PreviewController}
+ */
+@Data
+@ConfigurationProperties(prefix = "designer.preview")
+public class PreviewProperties {
+
+    private final Cache cache = new Cache();
+
+    private final Resources resources = new Resources();
+
+    /**
+     * API calls of the previews are forwarded to the API proxy within the same request. When false, the browser is
+     * redirected to the API proxy, which costs a second round trip per call.
+     */
+    private boolean forwardApiCalls = true;
+
+    @Data
+    public static class Cache {
+
+        /**
+         * Maximum number of rendered preview documents kept in memory
+         */
+        private int maxEntries = 200;
+
+        /**
+         * Maximum time a rendered preview document is reused, even if no update notification has been received
+         */
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    /**
+     * Cache-Control header values sent with the files served by the preview. Files are always sent with ETag and
+     * Last-Modified validators, so <code>no-cache</code> lets browsers revalidate them with a 304 response.
+     */
+    @Data
+    public static class Resources {
+
+        private String pageAssetsCacheControl = "no-cache";
+
+        private String pageJsCacheControl = "no-cache";
+
+        private String widgetsCacheControl = "no-cache";
+
+        private String fragmentsCacheControl = "no-cache";
+    }
+}
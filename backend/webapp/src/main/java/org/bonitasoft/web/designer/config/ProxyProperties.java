@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.config;
+
+import java.time.Duration;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import lombok.Data;
+
+/**
+ * Settings of the http client shared by the servlets proxying the Bonita portal and the data repository
+ */
+@Data
+@ConfigurationProperties(prefix = "designer.proxy")
+public class ProxyProperties {
+
+    private final Pool pool = new Pool();
+
+    private final Session session = new Session();
+
+    private final Async async = new Async();
+
+    private final Cache cache = new Cache();
+
+    @Data
+    public static class Pool {
+
+        /**
+         * Maximum number of connections opened by all the proxy servlets
+         */
+        private int maxTotal = 100;
+
+        /**
+         * Maximum number of connections opened to a single host
+         */
+        private int maxPerRoute = 50;
+
+        /**
+         * How long an idle connection is kept open when the server does not send a Keep-Alive timeout
+         */
+        private Duration keepAlive = Duration.ofSeconds(30);
+
+        /**
+         * Connections idle for longer than this are closed by a background thread
+         */
+        private Duration maxIdleTime = Duration.ofMinutes(1);
+
+        private Duration connectTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Maximum time without data received on an open connection
+         */
+        private Duration socketTimeout = Duration.ofMinutes(1);
+
+        /**
+         * Maximum time a request waits for a connection of the pool
+         */
+        private Duration connectionRequestTimeout = Duration.ofSeconds(30);
+    }
+
+    /**
+     * Session opened on the Bonita portal with the configured user, shared by all the proxy servlets
+     */
+    @Data
+    public static class Session {
+
+        /**
+         * Age after which the session is renewed before the portal expires it, 0 only renews it once rejected
+         */
+        private Duration refreshAfter = Duration.ofMinutes(25);
+    }
+
+    /**
+     * Proxying without holding a servlet thread during the call to the portal. Requests and responses are read and
+     * written with non-blocking servlet I/O and sent with the JDK http client, which manages its own connections, so
+     * the pool limits do not apply.
+     */
+    @Data
+    public static class Async {
+
+        private boolean enabled = false;
+
+        /**
+         * Number of threads handling the completion of the calls to the portal
+         */
+        private int threads = 4;
+    }
+
+    /**
+     * Cache of the static resources served by the theme, portal.js and application theme proxies. Responses are stored
+     * and revalidated according to their Cache-Control, Expires, ETag and Last-Modified headers.
+     */
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        /**
+         * Maximum size of all the cached response bodies
+         */
+        private DataSize maxSize = DataSize.ofMegabytes(20);
+
+        /**
+         * Responses with a larger body are not cached
+         */
+        private DataSize maxEntrySize = DataSize.ofMegabytes(2);
+    }
+}
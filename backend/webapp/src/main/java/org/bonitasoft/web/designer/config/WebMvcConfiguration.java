@@ -24,7 +24,13 @@ import java.util.Optional;
 
 import org.apache.commons.lang3.StringUtils;
 import org.bonitasoft.web.angularjs.GeneratorProperties;
+import org.bonitasoft.web.designer.controller.preview.AsyncPreservingCookiePathProxyServlet;
+import org.bonitasoft.web.designer.controller.preview.BonitaPortalSessions;
 import org.bonitasoft.web.designer.controller.preview.PreservingCookiePathProxyServlet;
+import org.bonitasoft.web.designer.controller.preview.ProxyConnectionPool;
+import org.bonitasoft.web.designer.controller.preview.ProxyResponseCache;
+import org.bonitasoft.web.designer.controller.utils.CompressedFileCache;
+import org.bonitasoft.web.designer.controller.utils.CompressedResourceResolver;
 import org.mitre.dsmiley.httpproxy.ProxyServlet;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.web.servlet.ServletRegistrationBean;
@@ -68,6 +74,18 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
     @Autowired
     private UiDesignerProperties uiDesignerProperties;
 
+    @Autowired
+    private CompressedFileCache compressedFileCache;
+
+    @Autowired
+    private ProxyConnectionPool proxyConnectionPool;
+
+    @Autowired
+    private BonitaPortalSessions bonitaPortalSessions;
+
+    @Autowired
+    private ProxyResponseCache proxyResponseCache;
+
     public static List<MediaType> supportedMediaTypes() {
         return List.of(MediaType.APPLICATION_JSON_UTF8, new MediaType("text", "plain", StandardCharsets.UTF_8));
     }
@@ -83,7 +101,8 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
     }
 
     /**
-     * Add resources handler to help Spring to manage our static resources (from frontend and backend)
+     * Add resources handler to help Spring to manage our static resources (from frontend and backend).
+     * Text resources are sent gzipped to the clients accepting it.
      */
     @SneakyThrows
     @Override
@@ -95,12 +114,16 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
 
         if (!registry.hasMappingForPattern("/widgets/**")) {
             registry.addResourceHandler("/widgets/**")
-                    .addResourceLocations(WIDGETS_RESOURCES);
+                    .addResourceLocations(WIDGETS_RESOURCES)
+                    .resourceChain(false)
+                    .addResolver(new CompressedResourceResolver(compressedFileCache));
         }
 
         if (!registry.hasMappingForPattern("/**")) {
             registry.addResourceHandler("/**")
-                    .addResourceLocations(CLASSPATH_RESOURCE_LOCATIONS);
+                    .addResourceLocations(CLASSPATH_RESOURCE_LOCATIONS)
+                    .resourceChain(false)
+                    .addResolver(new CompressedResourceResolver(compressedFileCache));
         }
     }
 
@@ -142,7 +165,7 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
 
     @Bean
     public ServletRegistrationBean<PreservingCookiePathProxyServlet> bonitaPortalJSProxy() {
-        return newProxyServlet("portal.js");
+        return newProxyServlet("portal.js", ".*");
     }
 
     @Bean
@@ -152,7 +175,7 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
 
     @Bean
     public ServletRegistrationBean<PreservingCookiePathProxyServlet> bonitaThemeProxy() {
-        return newProxyServlet("theme");
+        return newProxyServlet("theme", ".*");
     }
 
     @Bean
@@ -165,16 +188,19 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
         return newProxyServlet("mobile");
     }
 
+    /**
+     * Application theme resources, where the preview redirects theme requests, are cached like the portal theme
+     */
     @Bean
     public ServletRegistrationBean<PreservingCookiePathProxyServlet> bonitaAppsProxy() {
-        return newProxyServlet("apps");
+        return newProxyServlet("apps", "/[^/]+/theme/.*");
     }
 
     @Bean
     public ServletRegistrationBean<PreservingCookiePathProxyServlet> bdrProxyServlet() {
 
         ServletRegistrationBean<PreservingCookiePathProxyServlet> servletRegistration =
-                new ServletRegistrationBean<>(new PreservingCookiePathProxyServlet(), "/bdm/*");
+                new ServletRegistrationBean<>(newProxyServlet(), "/bdm/*");
         servletRegistration.setLoadOnStartup(1);
         final String url = Optional.ofNullable(uiDesignerProperties.getBonita().getBdm().getUrl()).orElse("");
         servletRegistration.addInitParameter("targetUri", url + "/bdm");
@@ -184,19 +210,41 @@ public class WebMvcConfiguration implements WebMvcConfigurer {
         return servletRegistration;
     }
 
+    /**
+     * All the proxies send their requests through the same pool of connections and share the same portal session
+     */
+    private PreservingCookiePathProxyServlet newProxyServlet() {
+        if (proxyConnectionPool.getAsyncHttpClient() != null) {
+            return new AsyncPreservingCookiePathProxyServlet(proxyConnectionPool.getHttpClient(),
+                    proxyConnectionPool.getAsyncHttpClient(), proxyConnectionPool.getAsyncRequestTimeout(),
+                    bonitaPortalSessions, proxyResponseCache);
+        }
+        return new PreservingCookiePathProxyServlet(proxyConnectionPool.getHttpClient(), bonitaPortalSessions, proxyResponseCache);
+    }
+
     private String getPortalUrl() {
         return uiDesignerProperties.getBonita().getPortal().getUrl();
     }
 
     public ServletRegistrationBean<PreservingCookiePathProxyServlet> newProxyServlet(String resourceName) {
+        return newProxyServlet(resourceName, null);
+    }
+
+    /**
+     * @param cachedPaths pattern of the paths, within the proxied resource, served through the response cache
+     */
+    public ServletRegistrationBean<PreservingCookiePathProxyServlet> newProxyServlet(String resourceName, String cachedPaths) {
         ServletRegistrationBean<PreservingCookiePathProxyServlet> servletRegistration =
-                new ServletRegistrationBean<>(new PreservingCookiePathProxyServlet(), "/" + resourceName + "/*");
+                new ServletRegistrationBean<>(newProxyServlet(), "/" + resourceName + "/*");
         servletRegistration.setLoadOnStartup(1);
         servletRegistration.addInitParameter("targetUri", getPortalUrl() + "/bonita/" + resourceName);
         servletRegistration.addInitParameter(ProxyServlet.P_LOG, "true");
         servletRegistration.addInitParameter(ProxyServlet.P_PRESERVECOOKIES, "true");
         servletRegistration.addInitParameter(ProxyServlet.P_PRESERVEHOST, "true");
         servletRegistration.setName("bonita-" + resourceName + "-Proxy");
+        if (cachedPaths != null) {
+            servletRegistration.addInitParameter(PreservingCookiePathProxyServlet.P_CACHED_PATHS, cachedPaths);
+        }
         addCredentials(servletRegistration);
 
         return servletRegistration;
@@ -14,6 +14,8 @@
  */
 package org.bonitasoft.web.designer.config;
 
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
+import org.bonitasoft.web.designer.migration.ArtifactStatusCache;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
@@ -26,10 +28,21 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     public static final String PREVIEWABLE_UPDATE = "/previewableUpdates";
     public static final String PREVIEWABLE_REMOVAL = "/previewableRemoval";
+    public static final String MIGRATION_PROGRESS = "/migrationProgress";
+
+    private final PreviewHtmlCache previewHtmlCache;
+
+    private final ArtifactStatusCache artifactStatusCache;
+
+    public WebSocketConfig(PreviewHtmlCache previewHtmlCache, ArtifactStatusCache artifactStatusCache) {
+        this.previewHtmlCache = previewHtmlCache;
+        this.artifactStatusCache = artifactStatusCache;
+    }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker(PREVIEWABLE_UPDATE, PREVIEWABLE_REMOVAL);
+        config.enableSimpleBroker(PREVIEWABLE_UPDATE, PREVIEWABLE_REMOVAL, MIGRATION_PROGRESS);
+        config.configureBrokerChannel().interceptors(previewHtmlCache, artifactStatusCache);
     }
 
     @Override
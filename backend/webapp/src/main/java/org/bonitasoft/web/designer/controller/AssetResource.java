@@ -82,7 +82,7 @@ public abstract class AssetResource<T extends Identifiable & Assetable, S extend
 
             var asset = service.saveOrUpdateAsset(id, assetType, getOriginalFilename(file.getOriginalFilename()), file.getBytes());
 
-            messagingTemplate.ifPresent(template -> template.convertAndSend(PREVIEWABLE_UPDATE, id));
+            notifyUpdate(id);
             return ResponseEntity.status(HttpStatus.CREATED).body(asset);
         } catch (IOException e) {
             throw new ServerImportException("Error while uploading asset " + file.getOriginalFilename(), e);
@@ -103,19 +103,22 @@ public abstract class AssetResource<T extends Identifiable & Assetable, S extend
         if ("text".equals(format)) {
             HttpFile.writeFileInResponseForVisualization(request, response, filePath);
         } else {
-            HttpFile.writeFileInResponseForDownload(response, filePath);
+            HttpFile.writeFileInResponseForDownload(request, response, filePath);
         }
     }
 
     @PostMapping(value = "/{artifactId}/assets")
     public Asset saveAsset(@RequestBody Asset asset, @PathVariable("artifactId") String id) {
-        return service.saveAsset(id, asset);
+        var savedAsset = service.saveAsset(id, asset);
+        notifyUpdate(id);
+        return savedAsset;
     }
 
     @DeleteMapping(value = "/{artifactId}/assets/{assetId}")
     public void deleteAsset(@PathVariable("artifactId") String id, @PathVariable("assetId") String assetId) throws
             RepositoryException {
         service.deleteAsset(id, assetId);
+        notifyUpdate(id);
     }
 
     @PutMapping(value = "/{artifactId}/assets/{assetId}")
@@ -135,5 +138,13 @@ public abstract class AssetResource<T extends Identifiable & Assetable, S extend
         if (active != null) {
             service.changeAssetStateInPreviewable(id, assetId, active);
         }
+        notifyUpdate(id);
+    }
+
+    /**
+     * Assets are included in the preview of the artifact, and of the pages embedding it
+     */
+    private void notifyUpdate(String id) {
+        messagingTemplate.ifPresent(template -> template.convertAndSend(PREVIEWABLE_UPDATE, id));
     }
 }
@@ -19,22 +19,33 @@ import static org.springframework.http.ContentDisposition.inline;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
+import javax.servlet.http.HttpServletResponse;
+
 import org.bonitasoft.web.designer.ArtifactBuilder;
+import org.bonitasoft.web.designer.controller.exporter.BulkExporter;
 import org.bonitasoft.web.designer.model.Identifiable;
 import org.bonitasoft.web.designer.model.ModelException;
+import org.bonitasoft.web.designer.model.widget.Widget;
 import org.bonitasoft.web.designer.service.FragmentService;
 import org.bonitasoft.web.designer.service.PageService;
 import org.bonitasoft.web.designer.service.WidgetService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 @Controller
 public class ExportController {
 
@@ -46,47 +57,113 @@ public class ExportController {
 
     private final ArtifactBuilder artifactBuilder;
 
+    private final BulkExporter bulkExporter;
+
     @Autowired
-    public ExportController(PageService pageService, FragmentService fragmentService, WidgetService widgetService, ArtifactBuilder artifactBuilder) {
+    public ExportController(PageService pageService, FragmentService fragmentService, WidgetService widgetService, ArtifactBuilder artifactBuilder,
+                            BulkExporter bulkExporter) {
         this.pageService = pageService;
         this.fragmentService = fragmentService;
         this.widgetService = widgetService;
         this.artifactBuilder = artifactBuilder;
+        this.bulkExporter = bulkExporter;
     }
 
     @RequestMapping(value = "/export/page/{id}")
-    public ResponseEntity<?> handleFileExportPage(@PathVariable("id") String id) throws ModelException, IOException {
+    public void handleFileExportPage(@PathVariable("id") String id, HttpServletResponse response) throws ModelException, IOException {
         var artifact = pageService.get(id);
         var zipContent = artifactBuilder.build(artifact);
         var zipFileName = getZipFileName(artifact);
-        return sendFile(zipFileName, zipContent);
+        sendFile(response, zipFileName, zipContent);
     }
 
 
     @RequestMapping(value = "/export/widget/{id}")
-    public ResponseEntity<?> handleFileExportWidget(@PathVariable("id") String id) throws ModelException, IOException {
+    public void handleFileExportWidget(@PathVariable("id") String id, HttpServletResponse response) throws ModelException, IOException {
         var artifact = widgetService.get(id);
         var zipContent = artifactBuilder.build(artifact);
         var zipFileName = getZipFileName(artifact);
-        return sendFile(zipFileName, zipContent);
+        sendFile(response, zipFileName, zipContent);
     }
 
     @RequestMapping(value = "/export/fragment/{id}")
-    public ResponseEntity<?> handleFileExportFragment(@PathVariable("id") String id) throws ModelException, IOException {
+    public void handleFileExportFragment(@PathVariable("id") String id, HttpServletResponse response) throws ModelException, IOException {
         var artifact = fragmentService.get(id);
         var zipContent = artifactBuilder.build(artifact);
         var zipFileName = getZipFileName(artifact);
-        return sendFile(zipFileName, zipContent);
+        sendFile(response, zipFileName, zipContent);
+    }
+
+    /**
+     * Exports the selected artifacts in one zip holding the archive of each of them
+     */
+    @GetMapping(value = "/export")
+    public void handleFileExportSelection(@RequestParam(value = "page", required = false, defaultValue = "") List<String> pageIds,
+                                          @RequestParam(value = "widget", required = false, defaultValue = "") List<String> widgetIds,
+                                          @RequestParam(value = "fragment", required = false, defaultValue = "") List<String> fragmentIds,
+                                          HttpServletResponse response) throws ModelException, IOException {
+        var artifacts = new ArrayList<Identifiable>();
+        for (String pageId : pageIds) {
+            artifacts.add(pageService.get(pageId));
+        }
+        for (String fragmentId : fragmentIds) {
+            artifacts.add(fragmentService.get(fragmentId));
+        }
+        for (String widgetId : widgetIds) {
+            artifacts.add(widgetService.get(widgetId));
+        }
+        if (artifacts.isEmpty()) {
+            throw new IllegalArgumentException("At least one page, widget or fragment id is needed to export artifacts");
+        }
+        sendArtifacts(response, "artifacts.zip", artifacts);
+    }
+
+    /**
+     * Exports all the pages, fragments and custom widgets of the workspace in one zip holding the archive of each of them
+     */
+    @GetMapping(value = "/export/workspace")
+    public void handleFileExportWorkspace(HttpServletResponse response) throws ModelException, IOException {
+        var artifacts = new ArrayList<Identifiable>(pageService.getAll());
+        artifacts.addAll(fragmentService.getAllNotUsingFragment(null));
+        widgetService.getAll().stream()
+                .filter(Widget::isCustom)
+                .forEach(artifacts::add);
+        sendArtifacts(response, "workspace.zip", artifacts);
+    }
+
+    private void sendArtifacts(HttpServletResponse response, String fileName, List<Identifiable> artifacts) throws IOException {
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, inline().filename(fileName).build().toString());
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        var out = response.getOutputStream();
+        bulkExporter.export(artifacts, this::getZipFileName, out);
+        out.flush();
     }
 
-    private ResponseEntity<?> sendFile(String fileName, byte[] content) {
+    /**
+     * The artifact builder returns the whole archive, so it is written at once along with its length. Clients rely on
+     * it to report download progress and to check the size of what they received.
+     */
+    private void sendFile(HttpServletResponse response, String fileName, byte[] content) throws IOException {
         try {
-            var headers = new HttpHeaders();
-            headers.setContentDisposition(inline().filename(fileName).build());
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            return ResponseEntity.ok().headers(headers).body(content);
-        } catch (Exception e) {
-            return ResponseEntity.status(INTERNAL_SERVER_ERROR).contentType(MediaType.APPLICATION_JSON_UTF8).body("Export failed. Check logs for more details");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, inline().filename(fileName).build().toString());
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            if (content == null) {
+                return;
+            }
+            response.setContentLength(content.length);
+            var out = response.getOutputStream();
+            out.write(content);
+            out.flush();
+        } catch (RuntimeException e) {
+            log.error("Export of {} failed", fileName, e);
+            if (response.isCommitted()) {
+                throw e;
+            }
+            response.reset();
+            response.setStatus(INTERNAL_SERVER_ERROR.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            response.getWriter().write("Export failed. Check logs for more details");
         }
     }
 
@@ -106,6 +106,8 @@ public class FragmentResource {
         if (!name.equals(fragment.getName())) {
             try {
                 var savedFragment = fragmentService.rename(fragment, name);
+                // send notification of removal
+                messagingTemplate.convertAndSend(PREVIEWABLE_REMOVAL, fragmentId);
                 // Redirect to new fragment location
                 return getMovedResourceResponse(request, savedFragment.getId(), "/name");
             } catch (ModelException e) {
@@ -16,11 +16,15 @@ package org.bonitasoft.web.designer.controller;
 
 import lombok.RequiredArgsConstructor;
 import org.bonitasoft.web.designer.ArtifactBuilder;
+import org.bonitasoft.web.designer.controller.importer.BulkImportReport;
+import org.bonitasoft.web.designer.controller.importer.BulkImporter;
 import org.bonitasoft.web.designer.controller.importer.ImportException;
 import org.bonitasoft.web.designer.controller.importer.ServerImportException;
 import org.bonitasoft.web.designer.controller.importer.report.ImportReport;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
 import org.bonitasoft.web.designer.controller.utils.MimeType;
 import org.bonitasoft.web.designer.controller.utils.UnZipper;
+import org.bonitasoft.web.designer.migration.ArtifactStatusCache;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -33,6 +37,7 @@ import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.zip.ZipException;
 
 import static org.bonitasoft.web.designer.controller.importer.ImportException.Type.CANNOT_OPEN_ZIP;
@@ -46,6 +51,12 @@ public class ImportController {
 
     private final UnZipper unzip;
 
+    private final BulkImporter bulkImporter;
+
+    private final ArtifactStatusCache artifactStatusCache;
+
+    private final PreviewHtmlCache previewHtmlCache;
+
     /*
      * BS-14106: In IE, json data is not handle properly by browser when content-type is set to application/json.
      * We need to force it to text/plain for browser not trying to save it and pass it correctly to application.
@@ -79,14 +90,37 @@ public class ImportController {
             default:
                 return ResponseEntity.notFound().build();
         }
+        invalidateCaches();
         return ResponseEntity.status(CREATED).body(importReport);
     }
 
+    /**
+     * Imports several artifacts at once, each part being an artifact archive or an archive of artifact archives.
+     * Artifacts are imported in upload order, an archive failing to import does not prevent the next ones.
+     */
+    @PostMapping(value = "/import/bulk", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public ResponseEntity<BulkImportReport> importArtifacts(@RequestParam("file") List<MultipartFile> files,
+                                                            @RequestParam(value = "force", defaultValue = "false", required = false) boolean ignoreConflicts) {
+        if (files == null || files.isEmpty()) {
+            throw new IllegalArgumentException("Part named [file] is needed to successfully import a component");
+        }
+        files.forEach(file -> {
+            checkFilePartIsPresent(file);
+            checkFileIsZip(file);
+        });
+        var report = bulkImporter.importArtifacts(files, ignoreConflicts);
+        invalidateCaches();
+        return ResponseEntity.status(CREATED).body(report);
+    }
+
     @PostMapping(value = "/import/{uuid}/force", produces = MediaType.TEXT_PLAIN_VALUE)
     @ResponseStatus(CREATED)
     @ResponseBody
     public ImportReport importPage(@PathVariable("uuid") String uuid) {
-        return artifactBuilder.replayImportIgnoringConflicts(uuid);
+        var importReport = artifactBuilder.replayImportIgnoringConflicts(uuid);
+        invalidateCaches();
+        return importReport;
     }
 
     @PostMapping(value = "/import/{uuid}/cancel")
@@ -94,6 +128,14 @@ public class ImportController {
         artifactBuilder.cancelImport(uuid);
     }
 
+    /**
+     * Imported artifacts may overwrite existing ones, so neither their statuses nor their previews can be trusted
+     */
+    private void invalidateCaches() {
+        artifactStatusCache.invalidateAll();
+        previewHtmlCache.invalidateAll();
+    }
+
     private void checkFilePartIsPresent(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("Part named [file] is needed to successfully import a component");
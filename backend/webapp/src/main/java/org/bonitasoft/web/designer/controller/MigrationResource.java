@@ -14,7 +14,16 @@
  */
 package org.bonitasoft.web.designer.controller;
 
+import static org.bonitasoft.web.designer.migration.ArtifactStatusCache.FRAGMENT;
+import static org.bonitasoft.web.designer.migration.ArtifactStatusCache.PAGE;
+import static org.bonitasoft.web.designer.migration.ArtifactStatusCache.WIDGET;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.bonitasoft.web.designer.common.migration.Version;
 import org.bonitasoft.web.designer.common.repository.FragmentRepository;
@@ -22,16 +31,20 @@ import org.bonitasoft.web.designer.common.repository.PageRepository;
 import org.bonitasoft.web.designer.common.repository.WidgetRepository;
 import org.bonitasoft.web.designer.common.repository.exception.RepositoryException;
 import org.bonitasoft.web.designer.config.UiDesignerProperties;
+import org.bonitasoft.web.designer.config.WebSocketConfig;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
+import org.bonitasoft.web.designer.migration.ArtifactMigrationService;
+import org.bonitasoft.web.designer.migration.ArtifactStatusCache;
+import org.bonitasoft.web.designer.migration.WorkspaceMigrationJob;
+import org.bonitasoft.web.designer.migration.WorkspaceMigrator;
 import org.bonitasoft.web.designer.model.ArtifactStatusReport;
 import org.bonitasoft.web.designer.model.DesignerArtifact;
 import org.bonitasoft.web.designer.model.migrationReport.MigrationReport;
-import org.bonitasoft.web.designer.model.migrationReport.MigrationResult;
 import org.bonitasoft.web.designer.model.migrationReport.MigrationStatus;
 import org.bonitasoft.web.designer.service.ArtifactService;
 import org.bonitasoft.web.designer.service.FragmentService;
 import org.bonitasoft.web.designer.service.PageService;
 import org.bonitasoft.web.designer.service.WidgetService;
-import org.bonitasoft.web.designer.workspace.Workspace;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -40,33 +53,46 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonToken;
 
 @RestController
 @RequestMapping("/rest/migration")
 public class MigrationResource {
 
+    private static final String MODEL_VERSION = "modelVersion";
+    private static final String DESIGNER_VERSION = "designerVersion";
+
+    /**
+     * Thread safe and reused to avoid creating parser buffers and symbol tables on each status request
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
     private final PageRepository pageRepository;
     private final WidgetRepository widgetRepository;
-    private final Workspace workspace;
     private final FragmentRepository fragmentRepository;
     private final FragmentService fragmentService;
 
     private final PageService pageService;
     private final WidgetService widgetService;
     private final UiDesignerProperties uiDesignerProperties;
+    private final WorkspaceMigrator workspaceMigrator;
+    private final ArtifactMigrationService artifactMigrationService;
+    private final ArtifactStatusCache artifactStatusCache;
+    private final PreviewHtmlCache previewHtmlCache;
 
     @Autowired
     public MigrationResource(
-            Workspace workspace, PageRepository pageRepository, WidgetRepository widgetRepository,
-            FragmentRepository fragmentRepository, PageService pageService, WidgetService widgetService, FragmentService fragmentService, UiDesignerProperties uiDesignerProperties) {
-        this.workspace = workspace;
+            PageRepository pageRepository, WidgetRepository widgetRepository,
+            FragmentRepository fragmentRepository, PageService pageService, WidgetService widgetService, FragmentService fragmentService,
+            UiDesignerProperties uiDesignerProperties, WorkspaceMigrator workspaceMigrator,
+            ArtifactMigrationService artifactMigrationService, ArtifactStatusCache artifactStatusCache,
+            PreviewHtmlCache previewHtmlCache) {
         this.pageRepository = pageRepository;
         this.widgetRepository = widgetRepository;
         this.fragmentRepository = fragmentRepository;
@@ -74,114 +100,164 @@ public class MigrationResource {
         this.widgetService = widgetService;
         this.fragmentService = fragmentService;
         this.uiDesignerProperties = uiDesignerProperties;
+        this.workspaceMigrator = workspaceMigrator;
+        this.artifactMigrationService = artifactMigrationService;
+        this.artifactStatusCache = artifactStatusCache;
+        this.previewHtmlCache = previewHtmlCache;
     }
 
-    public static ResponseEntity<MigrationReport> migrateArtifact(String artifactId, DesignerArtifact designerArtifact, ArtifactService service) {
-        designerArtifact.setStatus(service.getStatus(designerArtifact));
-        MigrationReport mR;
-
-        if (designerArtifact.getArtifactVersion() != null && designerArtifact.getStatus() != null) {
-            if (!designerArtifact.getStatus().isCompatible()) {
-                mR = new MigrationReport(MigrationStatus.INCOMPATIBLE, designerArtifact.getId());
-                mR.setComments("Artifact is incompatible with actual version");
-
-                return new ResponseEntity<>(mR, HttpStatus.OK);
-
-            } else if (!designerArtifact.getStatus().isMigration()) {
-                mR = new MigrationReport(MigrationStatus.NONE, designerArtifact.getId());
-                mR.setComments("No migration is needed");
-
-                return new ResponseEntity<>(mR, HttpStatus.OK);
-            }
-        }
-
-        try {
-
-            MigrationResult<DesignerArtifact> migrationResult = service.migrateWithReport(designerArtifact);
-            DesignerArtifact newArtifact = migrationResult.getArtifact();
-            mR = new MigrationReport(migrationResult.getFinalStatus(), newArtifact.getId());
-            mR.setType(newArtifact.getType());
-            mR.setPreviousArtifactVersion(newArtifact.getPreviousArtifactVersion());
-            mR.setMigrationStepReport(migrationResult.getMigrationStepReportListFilterByFinalStatus());
-            if (migrationResult.getFinalStatus() == MigrationStatus.ERROR) {
-                mR.setNewArtifactVersion(newArtifact.getPreviousArtifactVersion());
-
-                return new ResponseEntity<>(mR, HttpStatus.INTERNAL_SERVER_ERROR);
-            }
-            mR.setNewArtifactVersion(newArtifact.getArtifactVersion());
-
-            return new ResponseEntity<>(mR, HttpStatus.OK);
-
-        } catch (Exception e) {
-            mR = new MigrationReport(MigrationStatus.ERROR, artifactId);
+    private ResponseEntity<MigrationReport> migrateArtifact(DesignerArtifact artifact, ArtifactService service) {
+        var report = artifactMigrationService.migrate(artifact, service);
+        return new ResponseEntity<>(report, report.getStatus() == MigrationStatus.ERROR ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK);
+    }
 
-            return new ResponseEntity<>(mR, HttpStatus.INTERNAL_SERVER_ERROR);
-        }
+    /**
+     * Triggers the migration of the whole workspace in background. The returned job can be polled, progress is also
+     * published on {@link WebSocketConfig#MIGRATION_PROGRESS}.
+     */
+    @PostMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<WorkspaceMigrationJob> migrate() {
+        var job = workspaceMigrator.start();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(URI.create("/rest/migration/jobs/" + job.getId()))
+                .body(job);
     }
 
-    @PostMapping
-    @ResponseBody
-    public String migrate() {
-        workspace.migrateWorkspace();
-        return "Migration has been triggered.";
+    @GetMapping(value = "/jobs/{jobId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<WorkspaceMigrationJob> migrationJob(@PathVariable("jobId") String jobId) {
+        return ResponseEntity.of(workspaceMigrator.getJob(jobId));
     }
 
     @PutMapping(value = "/page/{pageId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<MigrationReport> migratePage(@PathVariable("pageId") String pageId) throws RepositoryException {
         var page = pageRepository.get(pageId);
-        return migrateArtifact(pageId, page, pageService);
+        try {
+            return migrateArtifact(page, pageService);
+        } finally {
+            invalidateCaches();
+        }
     }
 
     @PutMapping(value = "/widget/{widgetId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<MigrationReport> migrateWidget(@PathVariable("widgetId") String widgetId) throws RepositoryException {
         var widget = widgetRepository.get(widgetId);
-        return migrateArtifact(widgetId, widget, widgetService);
+        try {
+            return migrateArtifact(widget, widgetService);
+        } finally {
+            invalidateCaches();
+        }
     }
 
     @GetMapping(value = "/status/page/{pageId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ArtifactStatusReport statusByPageId(@PathVariable("pageId") String pageId) {
-        return pageService.getStatus(pageRepository.get(pageId));
+        return status(PAGE, pageId);
     }
 
     @GetMapping(value = "/status/widget/{widgetId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ArtifactStatusReport statusByWidgetId(@PathVariable("widgetId") String widgetId) {
-        return widgetService.getStatus(widgetRepository.get(widgetId));
+        return status(WIDGET, widgetId);
     }
 
-    @PostMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<ArtifactStatusReport> statusByArtifactJson(
-            @RequestBody String artifact) {
+    /**
+     * Statuses of several artifacts of the same type, of all the artifacts of this type when no id is given
+     */
+    @GetMapping(value = "/status/{artifactType}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, ArtifactStatusReport>> statusByArtifactType(@PathVariable("artifactType") String artifactType,
+                                                                                  @RequestParam(value = "id", required = false) List<String> ids)
+            throws IOException {
+        if (!artifactStatusCache.supports(artifactType)) {
+            return ResponseEntity.notFound().build();
+        }
+        var statuses = new LinkedHashMap<String, ArtifactStatusReport>();
+        for (String id : ids == null || ids.isEmpty() ? artifactStatusCache.ids(artifactType) : ids) {
+            statuses.put(id, status(artifactType, id));
+        }
+        return ResponseEntity.ok(statuses);
+    }
 
-        var mapper = new ObjectMapper();
-        JsonNode artifactNode;
+    @PostMapping(value = "/status", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ArtifactStatusReport> statusByArtifactJson(InputStream artifact) {
+        String version;
         try {
-            artifactNode = mapper.readTree(artifact);
+            version = readArtifactVersion(artifact);
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
-        var artifactVersionNode = artifactNode.get("modelVersion");
-        if (artifactVersionNode == null) {
-            artifactVersionNode = artifactNode.get("designerVersion");
-        }
         var currentVersion = new Version(this.uiDesignerProperties.getModelVersion());
-        var artifactVersion = (artifactVersionNode != null) ? new Version(artifactVersionNode.asText()) : null;
+        var artifactVersion = (version != null) ? new Version(version) : null;
         var artifactStatusReport = compareVersions(artifactVersion, currentVersion);
         return ResponseEntity.ok(artifactStatusReport);
     }
 
+    /**
+     * Reads the version of a json artifact without building it. Only top level fields are looked at and reading stops
+     * as soon as the model version is found, the designer version being used for artifacts without model version.
+     *
+     * @return the version or null when the artifact has none
+     */
+    static String readArtifactVersion(InputStream artifact) throws IOException {
+        try (var parser = JSON_FACTORY.createParser(artifact)) {
+            var token = parser.nextToken();
+            if (token == null) {
+                throw new JsonParseException(parser, "Artifact json is empty");
+            }
+            if (token != JsonToken.START_OBJECT) {
+                return null;
+            }
+            String designerVersion = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var fieldName = parser.getCurrentName();
+                var value = parser.nextToken();
+                if (value.isScalarValue()) {
+                    if (MODEL_VERSION.equals(fieldName)) {
+                        return parser.getText();
+                    }
+                    if (DESIGNER_VERSION.equals(fieldName) && designerVersion == null) {
+                        designerVersion = parser.getText();
+                    }
+                }
+                parser.skipChildren();
+            }
+            return designerVersion;
+        }
+    }
+
     @GetMapping(value = "/status/fragment/{fragmentId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ArtifactStatusReport statusByFragmentId(@PathVariable("fragmentId") String fragmentId) {
-        var fragment = fragmentRepository.get(fragmentId);
-        return fragmentService.getStatus(fragment);
+        return status(FRAGMENT, fragmentId);
     }
 
     @PutMapping(value = "/fragment/{fragmentId}", produces = MediaType.APPLICATION_JSON_VALUE)
     public ResponseEntity<MigrationReport> migrateFragments(@PathVariable("fragmentId") String fragmentId) throws RepositoryException {
         var fragment = fragmentRepository.get(fragmentId);
-        return migrateArtifact(fragmentId, fragment, fragmentService);
+        try {
+            return migrateArtifact(fragment, fragmentService);
+        } finally {
+            invalidateCaches();
+        }
 
     }
 
+    /**
+     * A migrated artifact is saved again, and a page embeds its widgets and fragments, so every status and preview may
+     * be outdated
+     */
+    private void invalidateCaches() {
+        artifactStatusCache.invalidateAll();
+        previewHtmlCache.invalidateAll();
+    }
+
+    private ArtifactStatusReport status(String artifactType, String id) {
+        switch (artifactType) {
+            case PAGE:
+                return artifactStatusCache.get(PAGE, id, () -> pageService.getStatus(pageRepository.get(id)));
+            case WIDGET:
+                return artifactStatusCache.get(WIDGET, id, () -> widgetService.getStatus(widgetRepository.get(id)));
+            default:
+                return artifactStatusCache.get(FRAGMENT, id, () -> fragmentService.getStatus(fragmentRepository.get(id)));
+        }
+    }
+
     private ArtifactStatusReport compareVersions(Version artifactVersion, Version currentVersion) {
         // Check status of this artifact
         var migration = false;
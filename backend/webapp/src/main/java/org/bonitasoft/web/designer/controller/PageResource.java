@@ -19,6 +19,7 @@ import static org.bonitasoft.web.designer.config.WebSocketConfig.PREVIEWABLE_UPD
 import static org.bonitasoft.web.designer.controller.ResponseHeadersHelper.getMovedResourceResponse;
 import static org.springframework.util.StringUtils.hasText;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Set;
@@ -27,7 +28,9 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.bonitasoft.web.designer.common.repository.exception.NotFoundException;
 import org.bonitasoft.web.designer.common.repository.exception.RepositoryException;
-import org.bonitasoft.web.designer.generator.mapping.ContractToPageMapper;
+import org.bonitasoft.web.designer.generator.mapping.BatchFormGenerator;
+import org.bonitasoft.web.designer.generator.mapping.FormGenerationRequest;
+import org.bonitasoft.web.designer.generator.mapping.FormPageCache;
 import org.bonitasoft.web.designer.generator.mapping.FormScope;
 import org.bonitasoft.web.designer.model.JsonHandler;
 import org.bonitasoft.web.designer.model.JsonViewLight;
@@ -67,14 +70,18 @@ public class PageResource extends AssetResource<Page, PageService> {
 
     protected static final Logger logger = LoggerFactory.getLogger(PageResource.class);
 
-    private final ContractToPageMapper contractToPageMapper;
+    private final FormPageCache formPageCache;
+
+    private final BatchFormGenerator batchFormGenerator;
 
     @Autowired
     public PageResource(JsonHandler jsonHandler,
                         PageService pageService,
-                        ContractToPageMapper contractToPageMapper, SimpMessagingTemplate messagingTemplate) {
+                        FormPageCache formPageCache, BatchFormGenerator batchFormGenerator,
+                        SimpMessagingTemplate messagingTemplate) {
         super(jsonHandler, pageService, messagingTemplate);
-        this.contractToPageMapper = contractToPageMapper;
+        this.formPageCache = formPageCache;
+        this.batchFormGenerator = batchFormGenerator;
     }
 
     /**
@@ -108,10 +115,23 @@ public class PageResource extends AssetResource<Page, PageService> {
     @PostMapping(value = "/contract/{scope}/{name}")
     public ResponseEntity<Page> create(@RequestBody Contract contract, @PathVariable("scope") String scope, @PathVariable("name") String name)
             throws RepositoryException {
-        var formPage = contractToPageMapper.createFormPage(name, contract, FormScope.valueOf(scope.toUpperCase(Locale.ENGLISH)));
+        var formPage = formPageCache.createFormPage(name, contract, FormScope.valueOf(scope.toUpperCase(Locale.ENGLISH)));
         return create(formPage, null);
     }
 
+    /**
+     * Generates several forms at once, e.g. all the forms of a process. Nothing is saved if one of the forms cannot be
+     * generated, otherwise forms are saved in request order.
+     */
+    @PostMapping(value = "/contract/batch")
+    public ResponseEntity<List<Page>> createAll(@RequestBody List<FormGenerationRequest> requests) throws RepositoryException {
+        var savedPages = new ArrayList<Page>(requests.size());
+        for (var formPage : batchFormGenerator.generate(requests)) {
+            savedPages.add(service.create(formPage));
+        }
+        return ResponseEntity.status(HttpStatus.CREATED).body(savedPages);
+    }
+
     @PutMapping(value = "/{pageId}")
     public ResponseEntity<?> save(HttpServletRequest request, @PathVariable("pageId") String pageId, @RequestBody Page page) throws RepositoryException {
         try {
@@ -34,8 +34,11 @@ import org.bonitasoft.web.designer.common.generator.rendering.GenerationExceptio
 import org.bonitasoft.web.designer.common.repository.FragmentRepository;
 import org.bonitasoft.web.designer.common.repository.PageRepository;
 import org.bonitasoft.web.designer.common.repository.exception.NotFoundException;
+import org.bonitasoft.web.designer.config.PreviewProperties;
 import org.bonitasoft.web.designer.config.WorkspaceProperties;
 import org.bonitasoft.web.designer.config.WorkspaceUidProperties;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
+import org.bonitasoft.web.designer.controller.utils.CompressedFileCache;
 import org.bonitasoft.web.designer.controller.utils.HttpFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +47,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.util.UriUtils;
 
 @Controller
 public class PreviewController {
@@ -66,14 +70,28 @@ public class PreviewController {
 
     private final FragmentRepository fragmentRepository;
 
+    private final PreviewHtmlCache previewHtmlCache;
+
+    private final PreviewProperties.Resources resourcesProperties;
+
+    private final boolean forwardApiCalls;
+
+    private final CompressedFileCache compressedFileCache;
+
     @Autowired
     public PreviewController(PageRepository pageRepository,
                              FragmentRepository fragmentRepository,
                              ArtifactBuilder artifactBuilder,
-                             WorkspaceProperties workspaceProperties, WorkspaceUidProperties workspaceUidProperties) {
+                             WorkspaceProperties workspaceProperties, WorkspaceUidProperties workspaceUidProperties,
+                             PreviewHtmlCache previewHtmlCache, PreviewProperties previewProperties,
+                             CompressedFileCache compressedFileCache) {
         this.pageRepository = pageRepository;
         this.fragmentRepository = fragmentRepository;
         this.artifactBuilder = artifactBuilder;
+        this.previewHtmlCache = previewHtmlCache;
+        this.resourcesProperties = previewProperties.getResources();
+        this.forwardApiCalls = previewProperties.isForwardApiCalls();
+        this.compressedFileCache = compressedFileCache;
 
         this.widgetRepositoryPath = workspaceProperties.getWidgets().getDir();
         this.fragmentRepositoryPath = workspaceProperties.getFragments().getDir();
@@ -90,15 +108,21 @@ public class PreviewController {
     }
 
     /**
-     * Send redirect to the Rest API
+     * Forward to the Rest API proxy, or send redirect to it when forwarding is disabled
      */
     @RequestMapping("/preview/{previewableType}/{appName}/API/**")
     public void proxyAPICall(HttpServletRequest request, HttpServletResponse response) throws ServletException {
 
         try {
             var queryString = isEmpty(request.getQueryString()) ? "" : "?" + request.getQueryString();
+            var apiPath = "/API/" + RequestMappingUtils.extractPathWithinPattern(request);
+            if (forwardApiCalls) {
+                // the proxy gets the same request, with its cookies and body, without a round trip through the browser
+                request.getRequestDispatcher(UriUtils.encodePath(apiPath, StandardCharsets.UTF_8) + queryString).forward(request, response);
+                return;
+            }
             response.setStatus(HttpServletResponse.SC_TEMPORARY_REDIRECT);
-            response.addHeader("Location", request.getContextPath() + "/API/" + RequestMappingUtils.extractPathWithinPattern(request) + queryString);
+            response.addHeader("Location", request.getContextPath() + apiPath + queryString);
 
             response.flushBuffer();
         } catch (IOException e) {
@@ -115,8 +139,13 @@ public class PreviewController {
         }
         try {
             var resourceContext = getResourceContext(httpServletRequest);
-            var page = pageRepository.get(id);
-            var html = artifactBuilder.buildHtml(page, resourceContext);
+            var cacheKey = previewHtmlCache.keyFor("page", id, resourceContext);
+            var html = previewHtmlCache.get(cacheKey);
+            if (html == null) {
+                var page = pageRepository.get(id);
+                html = artifactBuilder.buildHtml(page, resourceContext);
+                previewHtmlCache.put(cacheKey, html);
+            }
             return ResponseEntity.ok(html);
         } catch (GenerationException e) {
             var message = "Error during page generation";
@@ -131,20 +160,20 @@ public class PreviewController {
     public void servePageAsset(HttpServletRequest request, HttpServletResponse response, @PathVariable("id") String pageId) throws IOException {
         var matchingPath = RequestMappingUtils.extractPathWithinPattern(request);
         var filePath = pageRepositoryPath.resolve(pageId).resolve("assets").resolve(matchingPath);
-        HttpFile.writeFileInResponse(request, response, filePath);
+        HttpFile.writeFileInResponse(request, response, filePath, resourcesProperties.getPageAssetsCacheControl(), compressedFileCache);
     }
 
     @RequestMapping("/preview/{previewableType}/{appName}/{id}/widgets/**")
     public void serveWidgetFiles(HttpServletRequest request, HttpServletResponse response) throws IOException {
         var matchingPath = RequestMappingUtils.extractPathWithinPattern(request);
-        HttpFile.writeFileInResponse(request, response, widgetRepositoryPath.resolve(matchingPath));
+        HttpFile.writeFileInResponse(request, response, widgetRepositoryPath.resolve(matchingPath), resourcesProperties.getWidgetsCacheControl(), compressedFileCache);
     }
 
     @RequestMapping("/preview/page/{appName}/{id}/js/**")
     public void servePageJs(HttpServletRequest request, HttpServletResponse response, @PathVariable("id") String pageId) throws IOException {
         var matchingPath = RequestMappingUtils.extractPathWithinPattern(request);
         var filePath = workspaceUidProperties.getTmpPagesRepositoryPath().resolve(pageId).resolve(JS_FOLDER).resolve(matchingPath);
-        HttpFile.writeFileInResponse(request, response, filePath);
+        HttpFile.writeFileInResponse(request, response, filePath, resourcesProperties.getPageJsCacheControl(), compressedFileCache);
     }
 
     @RequestMapping(value = "/preview/fragment/{appName}/{id}", produces = "text/html; charset=UTF-8")
@@ -155,8 +184,13 @@ public class PreviewController {
         }
         try {
             var resourceContext = getResourceContext(httpServletRequest);
-            var fragment = fragmentRepository.get(id);
-            var html = artifactBuilder.buildHtml(fragment, resourceContext);
+            var cacheKey = previewHtmlCache.keyFor("fragment", id, resourceContext);
+            var html = previewHtmlCache.get(cacheKey);
+            if (html == null) {
+                var fragment = fragmentRepository.get(id);
+                html = artifactBuilder.buildHtml(fragment, resourceContext);
+                previewHtmlCache.put(cacheKey, html);
+            }
             return ResponseEntity.ok(html);
         } catch (GenerationException e) {
             var message = "Error during fragment generation";
@@ -172,13 +206,13 @@ public class PreviewController {
             String id) throws IOException {
         var matchingPath = RequestMappingUtils.extractPathWithinPattern(request);
         var filePath = workspaceUidProperties.getTmpFragmentsRepositoryPath().resolve(id).resolve(matchingPath);
-        HttpFile.writeFileInResponse(request, response, filePath);
+        HttpFile.writeFileInResponse(request, response, filePath, resourcesProperties.getWidgetsCacheControl(), compressedFileCache);
     }
 
     @RequestMapping("/preview/page/{appName}/{id}/fragments/**")
     public void serveFragmentFiles(HttpServletRequest request, HttpServletResponse response) throws IOException {
         var matchingPath = RequestMappingUtils.extractPathWithinPattern(request);
-        HttpFile.writeFileInResponse(request, response, fragmentRepositoryPath.resolve(matchingPath));
+        HttpFile.writeFileInResponse(request, response, fragmentRepositoryPath.resolve(matchingPath), resourcesProperties.getFragmentsCacheControl(), compressedFileCache);
     }
 
     /**
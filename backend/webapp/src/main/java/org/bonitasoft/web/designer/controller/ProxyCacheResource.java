@@ -0,0 +1,44 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller;
+
+import org.bonitasoft.web.designer.controller.preview.ProxyResponseCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/rest/proxy-cache")
+public class ProxyCacheResource {
+
+    private final ProxyResponseCache proxyResponseCache;
+
+    @Autowired
+    public ProxyCacheResource(ProxyResponseCache proxyResponseCache) {
+        this.proxyResponseCache = proxyResponseCache;
+    }
+
+    /**
+     * Drops the theme and portal resources cached by the proxies, e.g. after a theme has been deployed on the portal
+     */
+    @DeleteMapping
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void purge() {
+        proxyResponseCache.invalidateAll();
+    }
+}
@@ -14,6 +14,7 @@
  */
 package org.bonitasoft.web.designer.controller;
 
+import static org.bonitasoft.web.designer.config.WebSocketConfig.PREVIEWABLE_UPDATE;
 import static org.springframework.util.StringUtils.hasText;
 
 import java.io.IOException;
@@ -100,6 +101,7 @@ public class WidgetResource extends AssetResource<Widget, WidgetService> {
     @PutMapping(value = "/{widgetId}")
     public void save(@PathVariable("widgetId") String widgetId, @RequestBody Widget widget) throws RepositoryException, NotAllowedException {
         service.save(widgetId, widget);
+        notifyUpdate(widgetId);
     }
 
     @DeleteMapping(value = "/{widgetId}")
@@ -109,17 +111,23 @@ public class WidgetResource extends AssetResource<Widget, WidgetService> {
 
     @PostMapping(value = "/{widgetId}/properties")
     public List<Property> addProperty(@PathVariable("widgetId") String widgetId, @RequestBody Property property) throws RepositoryException, NotFoundException, NotAllowedException {
-        return service.addProperty(widgetId, property);
+        var properties = service.addProperty(widgetId, property);
+        notifyUpdate(widgetId);
+        return properties;
     }
 
     @PutMapping(value = "/{widgetId}/properties/{propertyName}")
     public List<Property> updateProperty(@PathVariable("widgetId") String widgetId, @PathVariable("propertyName") String propertyName, @RequestBody Property property) throws RepositoryException, NotFoundException, NotAllowedException {
-        return service.updateProperty(widgetId, propertyName, property);
+        var properties = service.updateProperty(widgetId, propertyName, property);
+        notifyUpdate(widgetId);
+        return properties;
     }
 
     @DeleteMapping(value = "/{widgetId}/properties/{propertyName}")
     public List<Property> deleteProperty(@PathVariable("widgetId") String widgetId, @PathVariable("propertyName") String propertyName) throws RepositoryException, NotFoundException, NotAllowedException {
-        return service.deleteProperty(widgetId, propertyName);
+        var properties = service.deleteProperty(widgetId, propertyName);
+        notifyUpdate(widgetId);
+        return properties;
     }
 
     @PutMapping(value = "/{widgetId}/favorite")
@@ -132,4 +140,11 @@ public class WidgetResource extends AssetResource<Widget, WidgetService> {
         HttpFile.writeFileInResponse(request, response, widgetPath.resolve(widgetId + "/help.html"));
     }
 
+    /**
+     * Widgets are bundled in the pages and fragments using them, so previews have to be refreshed
+     */
+    private void notifyUpdate(String widgetId) {
+        messagingTemplate.ifPresent(template -> template.convertAndSend(PREVIEWABLE_UPDATE, widgetId));
+    }
+
 }
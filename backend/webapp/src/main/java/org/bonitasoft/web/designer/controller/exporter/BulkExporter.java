@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.exporter;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.annotation.PreDestroy;
+
+import org.bonitasoft.web.designer.ArtifactBuilder;
+import org.bonitasoft.web.designer.config.ExportProperties;
+import org.bonitasoft.web.designer.model.Identifiable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes several artifacts in one zip, each artifact being stored as the archive a single export would produce, so the
+ * result can be given back to the bulk import. Archives are built in parallel on a bounded pool and written in order,
+ * with a bounded number of built archives waiting to be written.
+ */
+@Component
+public class BulkExporter {
+
+    private final ArtifactBuilder artifactBuilder;
+
+    private final int parallelism;
+
+    private final ExecutorService executor;
+
+    public BulkExporter(ArtifactBuilder artifactBuilder, ExportProperties exportProperties) {
+        this.artifactBuilder = artifactBuilder;
+        this.parallelism = Math.max(1, exportProperties.getParallelism());
+        this.executor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("bulk-export-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param artifacts exported artifacts, an artifact given several times is exported once
+     * @param fileName  name of the archive of an artifact in the zip
+     */
+    public void export(List<? extends Identifiable> artifacts, Function<Identifiable, String> fileName, OutputStream out) throws IOException {
+        var uniqueArtifacts = new ArrayList<>(deduplicate(artifacts));
+        var window = parallelism * 2;
+        var pending = new ArrayDeque<Future<byte[]>>();
+        var next = 0;
+        var entryNames = new HashSet<String>();
+        // Not closed on purpose, the caller owns the output stream
+        var zip = new ZipOutputStream(out);
+        try {
+            for (Identifiable artifact : uniqueArtifacts) {
+                while (next < uniqueArtifacts.size() && pending.size() < window) {
+                    var toBuild = uniqueArtifacts.get(next++);
+                    pending.add(executor.submit(() -> artifactBuilder.build(toBuild)));
+                }
+                var content = get(pending.poll());
+                writeEntry(zip, uniqueEntryName(fileName.apply(artifact), artifact, entryNames), content);
+            }
+            zip.finish();
+        } finally {
+            pending.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Suffixes a name already used in the zip with the artifact id, then with a counter if it is still taken
+     */
+    private String uniqueEntryName(String name, Identifiable artifact, Set<String> entryNames) {
+        if (entryNames.add(name)) {
+            return name;
+        }
+        var baseName = name.replaceAll("\\.zip$", "") + "-" + artifact.getId();
+        var entryName = baseName + ".zip";
+        for (var counter = 2; !entryNames.add(entryName); counter++) {
+            entryName = baseName + "-" + counter + ".zip";
+        }
+        return entryName;
+    }
+
+    private List<Identifiable> deduplicate(List<? extends Identifiable> artifacts) {
+        var unique = new LinkedHashMap<String, Identifiable>();
+        for (Identifiable artifact : artifacts) {
+            unique.putIfAbsent(artifact.getType() + "/" + artifact.getId(), artifact);
+        }
+        return new ArrayList<>(unique.values());
+    }
+
+    /**
+     * Artifact archives are already compressed, they are stored as is
+     */
+    private void writeEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        var crc = new CRC32();
+        crc.update(content);
+        var entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    private byte[] get(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Export interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException("Cannot build artifact archive", e.getCause());
+        }
+    }
+}
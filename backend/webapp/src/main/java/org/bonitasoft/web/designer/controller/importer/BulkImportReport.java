@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bonitasoft.web.designer.controller.ErrorMessage;
+import org.bonitasoft.web.designer.controller.importer.report.ImportReport;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Result of a bulk import: one entry per imported archive, in upload order, holding either the import report of the
+ * artifact (with its own conflicts) or the error that prevented the import
+ */
+@Data
+public class BulkImportReport {
+
+    private final List<Entry> entries = new ArrayList<>();
+
+    public void addReport(String fileName, ImportReport report) {
+        entries.add(new Entry(fileName, report, null));
+    }
+
+    public void addError(String fileName, ErrorMessage error) {
+        entries.add(new Entry(fileName, null, error));
+    }
+
+    @Data
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Entry {
+
+        private final String fileName;
+
+        private final ImportReport report;
+
+        private final ErrorMessage error;
+    }
+}
@@ -0,0 +1,242 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.importer;
+
+import static java.util.stream.Collectors.toList;
+import static org.bonitasoft.web.designer.controller.importer.ImportException.Type.CANNOT_OPEN_ZIP;
+import static org.bonitasoft.web.designer.controller.importer.ImportException.Type.MODEL_NOT_FOUND;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipException;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.io.FileUtils;
+import org.bonitasoft.web.designer.ArtifactBuilder;
+import org.bonitasoft.web.designer.config.ImportProperties;
+import org.bonitasoft.web.designer.controller.ErrorMessage;
+import org.bonitasoft.web.designer.controller.utils.ExtractionBudget;
+import org.bonitasoft.web.designer.controller.utils.UnZipper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Imports many artifact archives at once. Archives are extracted and checked in parallel on a bounded pool, then
+ * handed to the {@link ArtifactBuilder} one after the other, in upload order, so repository writes happen exactly as
+ * if the archives had been uploaded one by one. The {@link ImportProperties} entries and size limits apply to all the
+ * archives of a request together.
+ */
+@Slf4j
+@Component
+public class BulkImporter {
+
+    private static final String RESOURCES = "resources";
+
+    private static final List<String> MODEL_FILES = List.of("page.json", "widget.json", "fragment.json");
+
+    private final ArtifactBuilder artifactBuilder;
+
+    private final UnZipper unZipper;
+
+    private final ImportProperties importProperties;
+
+    private final ExecutorService executor;
+
+    public BulkImporter(ArtifactBuilder artifactBuilder, UnZipper unZipper, ImportProperties importProperties) {
+        this.artifactBuilder = artifactBuilder;
+        this.unZipper = unZipper;
+        this.importProperties = importProperties;
+        this.executor = Executors.newFixedThreadPool(Math.max(1, importProperties.getBulkParallelism()),
+                new CustomizableThreadFactory("bulk-import-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public BulkImportReport importArtifacts(List<MultipartFile> files, boolean ignoreConflicts) {
+        checkFileCount(files.size());
+        // Shared by all the archives of the request, nested ones included, so that the import limits can't be
+        // multiplied by splitting the content in many archives
+        var budget = unZipper.newBudget();
+        var uploads = new ArrayList<CompletableFuture<Extraction>>();
+        for (MultipartFile file : files) {
+            uploads.add(extractAsync(file.getOriginalFilename(), file::getInputStream, budget));
+        }
+        var extractedUploads = join(uploads);
+
+        // Archives of archives are expanded in place, keeping the upload order
+        var pendingExtractions = new ArrayList<CompletableFuture<Extraction>>();
+        var archivesOfArchives = extractedUploads.stream().filter(extraction -> !extraction.nestedArchives.isEmpty()).collect(toList());
+        try {
+            checkBudget(budget);
+            checkFileCount(extractedUploads.stream().mapToInt(extraction -> Math.max(1, extraction.nestedArchives.size())).sum());
+        } catch (IllegalArgumentException e) {
+            extractedUploads.forEach(Extraction::delete);
+            throw e;
+        }
+        for (Extraction extraction : extractedUploads) {
+            if (extraction.nestedArchives.isEmpty()) {
+                pendingExtractions.add(CompletableFuture.completedFuture(extraction));
+            }
+            for (Path nestedArchive : extraction.nestedArchives) {
+                pendingExtractions.add(extractAsync(nestedArchive.getFileName().toString(), () -> Files.newInputStream(nestedArchive), budget));
+            }
+        }
+
+        var report = new BulkImportReport();
+        try {
+            // Nothing is imported before every archive is extracted, the request is rejected as a whole when they
+            // go over the budget
+            var extractions = join(pendingExtractions);
+            try {
+                checkBudget(budget);
+            } catch (IllegalArgumentException e) {
+                extractions.forEach(Extraction::delete);
+                throw e;
+            }
+            for (Extraction extraction : extractions) {
+                if (extraction.error != null) {
+                    report.addError(extraction.fileName, errorMessage(extraction.error));
+                    continue;
+                }
+                try {
+                    report.addReport(extraction.fileName, artifactBuilder.importArtifact(extraction.directory, ignoreConflicts));
+                } catch (ImportException e) {
+                    log.error("Technical error when importing {}", extraction.fileName, e);
+                    report.addError(extraction.fileName, errorMessage(e));
+                }
+            }
+        } finally {
+            archivesOfArchives.forEach(Extraction::delete);
+        }
+        return report;
+    }
+
+    private List<Extraction> join(List<CompletableFuture<Extraction>> extractions) {
+        return extractions.stream().map(CompletableFuture::join).collect(toList());
+    }
+
+    private void checkBudget(ExtractionBudget budget) {
+        if (budget.isExceeded()) {
+            throw new IllegalArgumentException("Cannot import these files: " + budget.getExceeded());
+        }
+    }
+
+    private void checkFileCount(int count) {
+        if (count > importProperties.getMaxBulkFiles()) {
+            throw new IllegalArgumentException("Cannot import more than " + importProperties.getMaxBulkFiles() + " files at once");
+        }
+    }
+
+    private CompletableFuture<Extraction> extractAsync(String fileName, Upload upload, ExtractionBudget budget) {
+        return CompletableFuture.supplyAsync(() -> extract(fileName, upload, budget), executor);
+    }
+
+    private Extraction extract(String fileName, Upload upload, ExtractionBudget budget) {
+        Path directory;
+        try (var is = upload.open()) {
+            directory = unZipper.unzipInTempDir(is, "pageDesignerImport", budget);
+        } catch (ZipException e) {
+            return Extraction.failed(fileName, new ImportException(CANNOT_OPEN_ZIP, "Cannot open zip file", e));
+        } catch (IOException e) {
+            return Extraction.failed(fileName, new ServerImportException("Error while unzipping zip file", e));
+        }
+        var resources = directory.resolve(RESOURCES);
+        if (!Files.exists(resources)) {
+            try {
+                var nestedArchives = nestedArchives(directory);
+                if (!nestedArchives.isEmpty()) {
+                    return new Extraction(fileName, directory, nestedArchives, null);
+                }
+            } catch (IOException e) {
+                FileUtils.deleteQuietly(directory.toFile());
+                return Extraction.failed(fileName, new ServerImportException("Error while unzipping zip file", e));
+            }
+        }
+        // Checked here so that invalid archives are reported without reaching the repositories
+        if (MODEL_FILES.stream().noneMatch(modelFile -> Files.exists(resources.resolve(modelFile)))) {
+            FileUtils.deleteQuietly(directory.toFile());
+            var exception = new ImportException(MODEL_NOT_FOUND, "Could not load component, artifact model file not found");
+            exception.addInfo("modelfiles", MODEL_FILES);
+            return Extraction.failed(fileName, exception);
+        }
+        return new Extraction(fileName, directory, List.of(), null);
+    }
+
+    /**
+     * Zip files found at the root of an archive which is not an artifact archive itself
+     */
+    private List<Path> nestedArchives(Path directory) throws IOException {
+        try (var children = Files.list(directory)) {
+            return children
+                    .filter(child -> Files.isRegularFile(child) && child.getFileName().toString().endsWith(".zip"))
+                    .sorted()
+                    .collect(toList());
+        }
+    }
+
+    private ErrorMessage errorMessage(ImportException exception) {
+        var errorMessage = new ErrorMessage(exception.getType().toString(), exception.getMessage());
+        errorMessage.addInfos(exception.getInfos());
+        return errorMessage;
+    }
+
+    @FunctionalInterface
+    private interface Upload {
+
+        InputStream open() throws IOException;
+    }
+
+    private static class Extraction {
+
+        private final String fileName;
+
+        private final Path directory;
+
+        private final List<Path> nestedArchives;
+
+        private final ImportException error;
+
+        private Extraction(String fileName, Path directory, List<Path> nestedArchives, ImportException error) {
+            this.fileName = fileName;
+            this.directory = directory;
+            this.nestedArchives = nestedArchives;
+            this.error = error;
+        }
+
+        private static Extraction failed(String fileName, ImportException error) {
+            return new Extraction(fileName, null, List.of(), error);
+        }
+
+        private void delete() {
+            if (directory != null) {
+                FileUtils.deleteQuietly(directory.toFile());
+            }
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link PreservingCookiePathProxyServlet} which does not hold a servlet thread while the portal answers.
+ * <p>
+ * The request body is read with a {@link ReadListener}, the call is sent with the non-blocking JDK http client and the
+ * response is written back with a {@link WriteListener}, so in-flight calls only cost memory. Request and response
+ * headers, cookies and locations are rewritten by the same methods as the blocking servlet, and a call rejected with a
+ * 401 is sent again once the shared portal session has been renewed. Bodies are buffered, which suits the REST API
+ * calls of the previews. Falls back to the blocking proxy when the request does not support async processing or may
+ * be served from the response cache.
+ */
+@Slf4j
+public class AsyncPreservingCookiePathProxyServlet extends PreservingCookiePathProxyServlet {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Headers the JDK http client sets itself and refuses to take from the caller
+     */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+
+    private final HttpClient asyncHttpClient;
+
+    private final Executor loginExecutor;
+
+    private final Duration requestTimeout;
+
+    public AsyncPreservingCookiePathProxyServlet(org.apache.http.client.HttpClient sharedHttpClient, HttpClient asyncHttpClient,
+                                                 Duration requestTimeout, BonitaPortalSessions portalSessions) {
+        this(sharedHttpClient, asyncHttpClient, requestTimeout, portalSessions, null);
+    }
+
+    public AsyncPreservingCookiePathProxyServlet(org.apache.http.client.HttpClient sharedHttpClient, HttpClient asyncHttpClient,
+                                                 Duration requestTimeout, BonitaPortalSessions portalSessions,
+                                                 ProxyResponseCache responseCache) {
+        super(sharedHttpClient, portalSessions, responseCache);
+        this.asyncHttpClient = asyncHttpClient;
+        this.loginExecutor = asyncHttpClient.executor().orElse(Runnable::run);
+        this.requestTimeout = requestTimeout;
+    }
+
+    @Override
+    protected void service(HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws ServletException, IOException {
+        // cached resources are mostly served without calling the portal, a blocking call is fine for them
+        if (!servletRequest.isAsyncSupported() || isCached(servletRequest)) {
+            super.service(servletRequest, servletResponse);
+            return;
+        }
+        if (servletRequest.getAttribute(ATTR_TARGET_URI) == null) {
+            servletRequest.setAttribute(ATTR_TARGET_URI, targetUri);
+        }
+        if (servletRequest.getAttribute(ATTR_TARGET_HOST) == null) {
+            servletRequest.setAttribute(ATTR_TARGET_HOST, targetHost);
+        }
+        var proxyRequest = new BasicHttpRequest(servletRequest.getMethod(), rewriteUrlFromRequest(servletRequest));
+        copyRequestHeaders(servletRequest, proxyRequest);
+        setXForwardedForHeader(servletRequest, proxyRequest);
+        var sessionId = getPortalSession() != null ? getPortalSession().currentId() : null;
+
+        new Exchange(servletRequest, servletResponse, proxyRequest).start(sessionId);
+    }
+
+    private void setXForwardedForHeader(HttpServletRequest servletRequest, HttpRequest proxyRequest) {
+        if (doForwardIP) {
+            var forHeader = servletRequest.getRemoteAddr();
+            var existingForHeader = servletRequest.getHeader("X-Forwarded-For");
+            if (existingForHeader != null) {
+                forHeader = existingForHeader + ", " + forHeader;
+            }
+            proxyRequest.setHeader("X-Forwarded-For", forHeader);
+            proxyRequest.setHeader("X-Forwarded-Proto", servletRequest.getScheme());
+        }
+    }
+
+    /**
+     * One proxied call, from the reading of the servlet request to the end of the servlet response
+     */
+    private class Exchange implements AsyncListener {
+
+        private final HttpServletRequest servletRequest;
+
+        private final HttpServletResponse servletResponse;
+
+        private final HttpRequest proxyRequest;
+
+        private final AsyncContext asyncContext;
+
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Exchange(HttpServletRequest servletRequest, HttpServletResponse servletResponse, HttpRequest proxyRequest) {
+            this.servletRequest = servletRequest;
+            this.servletResponse = servletResponse;
+            this.proxyRequest = proxyRequest;
+            this.asyncContext = servletRequest.startAsync();
+            // leaves room for a second call once the session is renewed
+            asyncContext.setTimeout(requestTimeout.multipliedBy(2).toMillis());
+            asyncContext.addListener(this);
+        }
+
+        private void start(String sessionId) throws IOException {
+            readBody()
+                    .thenCompose(body -> send(body, sessionId)
+                            .thenCompose(response -> retryWithNewSession(response, body, sessionId)))
+                    .whenComplete((response, error) -> {
+                        if (error != null) {
+                            fail(error instanceof CompletionException ? error.getCause() : error);
+                        } else {
+                            respond(response);
+                        }
+                    });
+        }
+
+        private CompletableFuture<byte[]> readBody() throws IOException {
+            var body = new CompletableFuture<byte[]>();
+            if (servletRequest.getHeader(HttpHeaders.CONTENT_LENGTH) == null
+                    && servletRequest.getHeader(HttpHeaders.TRANSFER_ENCODING) == null) {
+                body.complete(null);
+                return body;
+            }
+            var input = servletRequest.getInputStream();
+            var content = new ByteArrayOutputStream();
+            input.setReadListener(new ReadListener() {
+
+                private final byte[] buffer = new byte[BUFFER_SIZE];
+
+                @Override
+                public void onDataAvailable() throws IOException {
+                    while (input.isReady() && !input.isFinished()) {
+                        var read = input.read(buffer);
+                        if (read < 0) {
+                            return;
+                        }
+                        content.write(buffer, 0, read);
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    body.complete(content.toByteArray());
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    body.completeExceptionally(t);
+                }
+            });
+            return body;
+        }
+
+        private CompletableFuture<java.net.http.HttpResponse<byte[]>> send(byte[] body, String sessionId) {
+            var request = java.net.http.HttpRequest.newBuilder(URI.create(proxyRequest.getRequestLine().getUri()))
+                    .timeout(requestTimeout)
+                    .method(proxyRequest.getRequestLine().getMethod(),
+                            body == null ? BodyPublishers.noBody() : BodyPublishers.ofByteArray(body));
+            for (var header : proxyRequest.getAllHeaders()) {
+                if (!RESTRICTED_HEADERS.contains(header.getName().toLowerCase())) {
+                    request.header(header.getName(), header.getValue());
+                }
+            }
+            if (sessionId != null) {
+                request.setHeader("Cookie", sessionId);
+            }
+            if (doLog) {
+                log("proxy " + servletRequest.getMethod() + " uri: " + servletRequest.getRequestURI() + " -- "
+                        + proxyRequest.getRequestLine().getUri());
+            }
+            return asyncHttpClient.sendAsync(request.build(), BodyHandlers.ofByteArray());
+        }
+
+        /**
+         * When a login is required, the call is sent again once the session shared with the other requests is renewed
+         */
+        private CompletableFuture<java.net.http.HttpResponse<byte[]>> retryWithNewSession(
+                java.net.http.HttpResponse<byte[]> response, byte[] body, String sessionId) {
+            if (response.statusCode() != 401 || getPortalSession() == null) {
+                return CompletableFuture.completedFuture(response);
+            }
+            log.info("response 401, will try to login");
+            return getPortalSession().renewAsync(sessionId, loginExecutor)
+                    .thenCompose(newSessionId -> newSessionId == null
+                            ? CompletableFuture.completedFuture(response)
+                            : send(body, newSessionId));
+        }
+
+        private void respond(java.net.http.HttpResponse<byte[]> response) {
+            if (completed.get()) {
+                return;
+            }
+            try {
+                servletResponse.setStatus(response.statusCode());
+                copyResponseHeaders(toHttpResponse(response), servletRequest, servletResponse);
+                if (response.statusCode() == HttpServletResponse.SC_NOT_MODIFIED) {
+                    servletResponse.setIntHeader(HttpHeaders.CONTENT_LENGTH, 0);
+                    complete();
+                } else {
+                    writeBody(response.body());
+                }
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        private HttpResponse toHttpResponse(java.net.http.HttpResponse<byte[]> response) {
+            var httpResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, response.statusCode(), null);
+            response.headers().map().forEach((name, values) -> values.forEach(value -> httpResponse.addHeader(name, value)));
+            return httpResponse;
+        }
+
+        private void writeBody(byte[] body) throws IOException {
+            ServletOutputStream output = servletResponse.getOutputStream();
+            output.setWriteListener(new WriteListener() {
+
+                private int offset;
+
+                @Override
+                public void onWritePossible() throws IOException {
+                    while (output.isReady()) {
+                        if (offset == body.length) {
+                            complete();
+                            return;
+                        }
+                        var length = Math.min(BUFFER_SIZE, body.length - offset);
+                        output.write(body, offset, length);
+                        offset += length;
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    log.debug("Unable to send proxied response of {}", servletRequest.getRequestURI(), t);
+                    complete();
+                }
+            });
+        }
+
+        private void fail(Throwable error) {
+            if (completed.get()) {
+                return;
+            }
+            log.error("Unable to proxy {} {}", servletRequest.getMethod(), servletRequest.getRequestURI(), error);
+            try {
+                if (!servletResponse.isCommitted()) {
+                    servletResponse.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+            } catch (IOException | RuntimeException e) {
+                log.debug("Unable to send proxy error", e);
+            }
+            complete();
+        }
+
+        private void complete() {
+            if (completed.compareAndSet(false, true)) {
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            if (completed.compareAndSet(false, true)) {
+                if (!servletResponse.isCommitted()) {
+                    servletResponse.sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                }
+                asyncContext.complete();
+            }
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            complete();
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            completed.set(true);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // nothing to do
+        }
+    }
+}
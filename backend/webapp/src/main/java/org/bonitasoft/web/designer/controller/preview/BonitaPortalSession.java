@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Session opened on a Bonita portal with the credentials configured for the proxy servlets.
+ * <p>
+ * A single login is in flight at a time: requests rejected with the same session id wait for the login started by the
+ * first one instead of sending their own. Once older than <code>refreshAfterMillis</code>, the session is renewed by
+ * the next request while the other ones keep using the current id, so it is replaced before the portal expires it.
+ */
+@Slf4j
+public class BonitaPortalSession {
+
+    private static final String JSESSIONID_PREFIX = "JSESSIONID=";
+
+    private final URI loginServletURI;
+
+    private final String username;
+
+    private final String password;
+
+    private final HttpClient httpClient;
+
+    private final long refreshAfterMillis;
+
+    private volatile SessionId current;
+
+    // guarded by this
+    private CompletableFuture<String> pendingLogin;
+
+    public BonitaPortalSession(URI loginServletURI, String username, String password, HttpClient httpClient,
+                               long refreshAfterMillis) {
+        this.loginServletURI = loginServletURI;
+        this.username = username;
+        this.password = password;
+        this.httpClient = httpClient;
+        this.refreshAfterMillis = refreshAfterMillis;
+    }
+
+    /**
+     * Returns the session id to send with a request, null when no login succeeded yet
+     */
+    public String currentId() throws IOException {
+        var session = current;
+        if (session != null && refreshAfterMillis > 0
+                && System.currentTimeMillis() - session.createdAt > refreshAfterMillis) {
+            log.debug("Server session is about to expire, will log in again");
+            try {
+                var sessionId = login(session.id, false);
+                return sessionId != null ? sessionId : session.id;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Unable to refresh server session, will keep using the current one", e);
+                return session.id;
+            }
+        }
+        return session == null ? null : session.id;
+    }
+
+    /**
+     * Logs in again after a request sent with <code>rejectedId</code> has been refused. Returns the new session id or
+     * null when the portal refused the credentials.
+     */
+    public String renew(String rejectedId) throws IOException {
+        return login(rejectedId, true);
+    }
+
+    /**
+     * Same as {@link #renew(String)} without blocking the caller, the login being sent from <code>executor</code>
+     */
+    public CompletableFuture<String> renewAsync(String rejectedId, Executor executor) {
+        CompletableFuture<String> login;
+        synchronized (this) {
+            if (current != null && !current.id.equals(rejectedId)) {
+                return CompletableFuture.completedFuture(current.id);
+            }
+            if (pendingLogin != null) {
+                return pendingLogin;
+            }
+            pendingLogin = login = new CompletableFuture<>();
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    loginAndComplete();
+                } catch (IOException | RuntimeException e) {
+                    // already reported to the callers through the future
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                pendingLogin = null;
+            }
+            login.completeExceptionally(e);
+        }
+        return login;
+    }
+
+    private String login(String replacedId, boolean waitPendingLogin) throws IOException {
+        CompletableFuture<String> login;
+        synchronized (this) {
+            if (current != null && !current.id.equals(replacedId)) {
+                // someone else already replaced the session
+                return current.id;
+            }
+            if (pendingLogin != null) {
+                if (!waitPendingLogin) {
+                    return replacedId;
+                }
+                login = pendingLogin;
+            } else {
+                pendingLogin = new CompletableFuture<>();
+                login = null;
+            }
+        }
+        return login == null ? loginAndComplete() : await(login);
+    }
+
+    private String loginAndComplete() throws IOException {
+        CompletableFuture<String> login;
+        try {
+            var sessionId = sendLogin();
+            synchronized (this) {
+                if (sessionId != null) {
+                    current = new SessionId(sessionId, System.currentTimeMillis());
+                }
+                login = pendingLogin;
+                pendingLogin = null;
+            }
+            login.complete(sessionId);
+            return sessionId;
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                login = pendingLogin;
+                pendingLogin = null;
+            }
+            login.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private String await(CompletableFuture<String> login) throws IOException {
+        try {
+            return login.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for bonita platform login");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Unable to log in bonita platform", e.getCause());
+        }
+    }
+
+    private String sendLogin() throws IOException {
+        log.info("Logging in bonita platform as {}", username);
+        List<NameValuePair> urlParameters = new ArrayList<>();
+        urlParameters.add(new BasicNameValuePair("username", username));
+        urlParameters.add(new BasicNameValuePair("password", password));
+        urlParameters.add(new BasicNameValuePair("redirect", "false"));
+        var postRequest = new HttpPost(loginServletURI);
+        postRequest.setEntity(new UrlEncodedFormEntity(urlParameters, "utf-8"));
+        var response = httpClient.execute(postRequest);
+        // give the connection back to the pool, only the status and headers of the login response are used
+        var responseContent = EntityUtils.toString(response.getEntity());
+        int statusCode = response.getStatusLine().getStatusCode();
+        if (statusCode != 200) {
+            log.error("Unable to log in bonita platform, code {}, response: {}", statusCode, responseContent);
+            return null;
+        }
+        var sessionId = getJSessionId(response);
+        log.info("created server session: {}", sessionId);
+        return sessionId;
+    }
+
+    private String getJSessionId(HttpResponse response) {
+        List<Header> headers = Arrays.asList(response.getHeaders("Set-Cookie"));
+        Optional<String> any = headers.stream()
+                .filter(h -> h.getValue().contains(JSESSIONID_PREFIX))
+                .map(Header::getValue)
+                .map(value -> Arrays.asList(value.split(";[ ]*")))
+                .flatMap(Collection::stream)
+                .filter(s -> s.startsWith(JSESSIONID_PREFIX))
+                .findAny();
+        if (any.isPresent()) {
+            return any.get();
+        } else {
+            throw new RuntimeException("Unable to find JSESSIONID in headers " + headers);
+        }
+    }
+
+    private static final class SessionId {
+
+        private final String id;
+
+        private final long createdAt;
+
+        private SessionId(String id, long createdAt) {
+            this.id = id;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.bonitasoft.web.designer.config.ProxyProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sessions opened on Bonita portals by the proxy servlets, one per login service and user, so that all the proxied
+ * paths share the same login.
+ */
+@Component
+public class BonitaPortalSessions {
+
+    private final ProxyConnectionPool proxyConnectionPool;
+
+    private final long refreshAfterMillis;
+
+    private final Map<String, BonitaPortalSession> sessions = new ConcurrentHashMap<>();
+
+    public BonitaPortalSessions(ProxyConnectionPool proxyConnectionPool, ProxyProperties proxyProperties) {
+        this.proxyConnectionPool = proxyConnectionPool;
+        this.refreshAfterMillis = proxyProperties.getSession().getRefreshAfter().toMillis();
+    }
+
+    public BonitaPortalSession get(URI loginServletURI, String username, String password) {
+        return sessions.computeIfAbsent(loginServletURI + " " + username, key -> new BonitaPortalSession(
+                loginServletURI, username, password, proxyConnectionPool.getHttpClient(), refreshAfterMillis));
+    }
+}
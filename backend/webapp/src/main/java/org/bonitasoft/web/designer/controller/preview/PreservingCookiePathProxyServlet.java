@@ -15,16 +15,11 @@
 package org.bonitasoft.web.designer.controller.preview;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.IOUtils;
-import org.apache.http.Header;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
-import org.apache.http.NameValuePair;
-import org.apache.http.client.entity.UrlEncodedFormEntity;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.BasicCookieStore;
-import org.apache.http.message.BasicNameValuePair;
-import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.client.HttpClient;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.util.EntityUtils;
 import org.mitre.dsmiley.httpproxy.ProxyServlet;
 
 import javax.servlet.ServletException;
@@ -37,24 +32,55 @@ import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.regex.Pattern;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
 /**
- * Extending {@link ProxyServlet} to fix the cookie path which was overriden even when preserveCookie is set to true
+ * Extending {@link ProxyServlet} to fix the cookie path which was overriden even when preserveCookie is set to true.
+ * When created with a shared http client, the servlet neither builds nor closes its own one. When created with the
+ * shared {@link BonitaPortalSessions}, it logs in the portal with the same session as the other proxy servlets. Paths
+ * matching the <code>cachedPaths</code> init parameter are served through the {@link ProxyResponseCache}.
  */
 @Slf4j
 public class PreservingCookiePathProxyServlet extends ProxyServlet {
 
     public static final String P_PORTAL_USER = "portalUser";
     public static final String P_PORTAL_PASSWORD = "portalPassword";
-    private BonitaCredentials credentials;
+    /**
+     * Pattern of the paths, within the servlet, whose responses can be served from the {@link ProxyResponseCache}
+     */
+    public static final String P_CACHED_PATHS = "cachedPaths";
+    private final HttpClient sharedHttpClient;
+
+    private final BonitaPortalSessions portalSessions;
+
+    private final ProxyResponseCache responseCache;
+
+    private BonitaPortalSession portalSession;
+
+    private Pattern cachedPaths;
 
+    public PreservingCookiePathProxyServlet() {
+        this(null, null);
+    }
+
+    public PreservingCookiePathProxyServlet(HttpClient sharedHttpClient) {
+        this(sharedHttpClient, null);
+    }
+
+    public PreservingCookiePathProxyServlet(HttpClient sharedHttpClient, BonitaPortalSessions portalSessions) {
+        this(sharedHttpClient, portalSessions, null);
+    }
+
+    public PreservingCookiePathProxyServlet(HttpClient sharedHttpClient, BonitaPortalSessions portalSessions,
+                                            ProxyResponseCache responseCache) {
+        this.sharedHttpClient = sharedHttpClient;
+        this.portalSessions = portalSessions;
+        this.responseCache = responseCache;
+    }
 
     /**
      * Copy cookie from the proxy to the servlet client.
@@ -89,89 +115,100 @@ public class PreservingCookiePathProxyServlet extends ProxyServlet {
     @Override
     public void init() throws ServletException {
         super.init();
-        credentials = new BonitaCredentials();
-        credentials.username = getConfigParam(P_PORTAL_USER);
-        credentials.password = getConfigParam(P_PORTAL_PASSWORD);
-        if (targetHost != null) {
+        String username = getConfigParam(P_PORTAL_USER);
+        String password = getConfigParam(P_PORTAL_PASSWORD);
+        if (targetHost != null && !isBlank(username) && !isBlank(password)) {
+            URI loginServletURI;
             try {
-                credentials.loginServletURI = new URL(targetHost + "/bonita/loginservice").toURI();
+                loginServletURI = new URL(targetHost + "/bonita/loginservice").toURI();
             } catch (URISyntaxException | MalformedURLException e) {
                 throw new ServletException(e);
             }
+            portalSession = portalSessions != null
+                    ? portalSessions.get(loginServletURI, username, password)
+                    : new BonitaPortalSession(loginServletURI, username, password, getProxyClient(), 0);
+        }
+        String cachedPathsPattern = getConfigParam(P_CACHED_PATHS);
+        if (responseCache != null && !isBlank(cachedPathsPattern)) {
+            cachedPaths = Pattern.compile(cachedPathsPattern);
         }
     }
 
+    @Override
+    protected HttpClient createHttpClient() {
+        return sharedHttpClient != null ? sharedHttpClient : super.createHttpClient();
+    }
+
+    @Override
+    public void destroy() {
+        if (sharedHttpClient == null) {
+            super.destroy();
+        }
+    }
+
+    /**
+     * Session used to log in the portal, null when no credentials are configured
+     */
+    protected BonitaPortalSession getPortalSession() {
+        return portalSession;
+    }
+
+    /**
+     * Whether the response to this request may come from the response cache
+     */
+    protected boolean isCached(HttpServletRequest servletRequest) {
+        return cachedPaths != null && cachedPaths.matcher(Objects.toString(servletRequest.getPathInfo(), "")).matches();
+    }
 
     @Override
     protected HttpResponse doExecute(HttpServletRequest servletRequest, HttpServletResponse servletResponse, HttpRequest proxyRequest) throws IOException {
+        if (isCached(servletRequest)) {
+            return responseCache.execute(servletRequest, proxyRequest,
+                    request -> executeWithPortalSession(servletRequest, servletResponse, request));
+        }
+        return executeWithPortalSession(servletRequest, servletResponse, proxyRequest);
+    }
+
+    private HttpResponse executeWithPortalSession(HttpServletRequest servletRequest, HttpServletResponse servletResponse, HttpRequest proxyRequest) throws IOException {
+        if (portalSession == null) {
+            return super.doExecute(servletRequest, servletResponse, proxyRequest);
+        }
         //reuse previous login
-        if (credentials.jsessionID != null) {
-            setJSessionID(proxyRequest, credentials.jsessionID);
+        var sessionId = portalSession.currentId();
+        if (sessionId != null) {
+            setJSessionID(proxyRequest, sessionId);
         }
         var httpResponse = super.doExecute(servletRequest, servletResponse, proxyRequest);
-        //when a login is required, we try to login on bonita platform
-        if (httpResponse.getStatusLine().getStatusCode() == 401 && credentials.isSet()) {
+        //when a login is required, we try to login on bonita platform, once for all the requests rejected at the same time
+        if (httpResponse.getStatusLine().getStatusCode() == 401) {
             log.info("response 401, will try to login");
-            HttpResponse loginResponse = login(credentials);
-            var responseContent = IOUtils.toString(httpResponse.getEntity().getContent());
-            int statusCode = loginResponse.getStatusLine().getStatusCode();
-            if (statusCode != 200) {
-                log.error("Unable to log in bonita platform, code {}, response: {}", statusCode, responseContent);
+            // The login is sent through the same pool, the connection must not be held while waiting for it
+            bufferEntity(httpResponse);
+            var newSessionId = portalSession.renew(sessionId);
+            if (newSessionId == null) {
                 return httpResponse;
             }
-            credentials.jsessionID = getJSessionId(loginResponse);
-            log.info("created server session: {}", credentials.jsessionID);
-            setJSessionID(proxyRequest, credentials.jsessionID);
+            setJSessionID(proxyRequest, newSessionId);
             return super.doExecute(servletRequest, servletResponse, proxyRequest);
         }
         return httpResponse;
     }
 
-    private void setJSessionID(HttpRequest proxyRequest, String jSessionId) {
-        proxyRequest.setHeader("Cookie", jSessionId);
-    }
-
-    private HttpResponse login(BonitaCredentials credentials) throws IOException {
-        var httpContext = new BasicHttpContext();
-        var cookieStore = new BasicCookieStore();
-        httpContext.setAttribute("http.cookie-store", cookieStore);
-        List<NameValuePair> urlParameters = new ArrayList<>();
-        urlParameters.add(new BasicNameValuePair("username", credentials.username));
-        urlParameters.add(new BasicNameValuePair("password", credentials.password));
-        urlParameters.add(new BasicNameValuePair("redirect", "false"));
-        var entity = new UrlEncodedFormEntity(urlParameters, "utf-8");
-        var postRequest = new HttpPost(credentials.loginServletURI);
-        postRequest.setEntity(entity);
-        return getProxyClient().execute(postRequest, httpContext);
-    }
-
-
-    private String getJSessionId(HttpResponse response) {
-        List<Header> headers = Arrays.asList(response.getHeaders("Set-Cookie"));
-        var prefix = "JSESSIONID=";
-        Optional<String> any = headers.stream()
-                .filter(h -> h.getValue().contains(prefix))
-                .map(Header::getValue)
-                .map(value -> Arrays.asList(value.split(";[ ]*")))
-                .flatMap(Collection::stream)
-                .filter(s -> s.startsWith(prefix))
-                .findAny();
-        if (any.isPresent()) {
-            return any.get();
-        } else {
-            throw new RuntimeException("Unable to find JSESSIONID in headers " + headers);
+    /**
+     * Reads the response body in memory, which releases the connection it was read from
+     */
+    private void bufferEntity(HttpResponse httpResponse) throws IOException {
+        var entity = httpResponse.getEntity();
+        if (entity != null) {
+            var buffered = new ByteArrayEntity(EntityUtils.toByteArray(entity));
+            buffered.setContentType(entity.getContentType());
+            buffered.setContentEncoding(entity.getContentEncoding());
+            httpResponse.setEntity(buffered);
         }
     }
 
-    private static class BonitaCredentials {
-        String username;
-        String password;
-        URI loginServletURI;
-        String jsessionID;
-
-        boolean isSet() {
-            return !isBlank(username) && !isBlank(password) && loginServletURI != null;
-        }
+    private void setJSessionID(HttpRequest proxyRequest, String jSessionId) {
+        proxyRequest.setHeader("Cookie", jSessionId);
     }
 
 }
@@ -0,0 +1,206 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import static org.bonitasoft.web.designer.config.WebSocketConfig.PREVIEWABLE_REMOVAL;
+import static org.bonitasoft.web.designer.config.WebSocketConfig.PREVIEWABLE_UPDATE;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bonitasoft.web.designer.config.PreviewProperties;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded cache of the html documents generated for page and fragment previews.
+ * <p>
+ * Entries are dropped each time a previewable update or removal is published on the message broker: a page embeds its
+ * fragments and the widgets bundle, so a notification about one artifact may change the document of another one.
+ * Hits, misses and evictions are published as <code>cache.*</code> metrics with the <code>cache=previewHtml</code> tag.
+ */
+@Slf4j
+@Component
+public class PreviewHtmlCache implements ChannelInterceptor, MeterBinder {
+
+    private static final String CACHE_NAME = "previewHtml";
+
+    private final int maxEntries;
+
+    private final long timeToLiveMillis;
+
+    private final Map<Key, Entry> entries;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public PreviewHtmlCache(PreviewProperties previewProperties) {
+        this.maxEntries = previewProperties.getCache().getMaxEntries();
+        this.timeToLiveMillis = previewProperties.getCache().getTimeToLive().toMillis();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                var overflow = size() > maxEntries;
+                if (overflow) {
+                    evictions.increment();
+                }
+                return overflow;
+            }
+        };
+    }
+
+    /**
+     * Key of a preview document. It remembers the cache state at creation time, so a document generated while the
+     * cache was invalidated is not stored.
+     */
+    public Key keyFor(String previewableType, String id, String resourceContext) {
+        return new Key(previewableType, id, resourceContext, generation.get());
+    }
+
+    /**
+     * Returns the cached document or null when it has to be generated
+     */
+    public synchronized String get(Key key) {
+        var entry = entries.get(key);
+        if (entry != null && System.currentTimeMillis() - entry.createdAt > timeToLiveMillis) {
+            entries.remove(key);
+            evictions.increment();
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.html;
+    }
+
+    public synchronized void put(Key key, String html) {
+        if (maxEntries <= 0 || key.generation != generation.get()) {
+            return;
+        }
+        entries.put(key, new Entry(html, System.currentTimeMillis()));
+    }
+
+    public synchronized void invalidateAll() {
+        generation.incrementAndGet();
+        evictions.add(entries.size());
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Listen to the notifications sent to the broker by the resources to drop outdated documents
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        var destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (PREVIEWABLE_UPDATE.equals(destination) || PREVIEWABLE_REMOVAL.equals(destination)) {
+            log.debug("Preview cache invalidated by a message sent to {}", destination);
+            invalidateAll();
+        }
+        return message;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .description("The number of times a preview document was served from the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .description("The number of times a preview document had to be generated")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", CACHE_NAME)
+                .description("The number of preview documents removed from the cache")
+                .register(registry);
+        Gauge.builder("cache.size", this, PreviewHtmlCache::size)
+                .tags("cache", CACHE_NAME)
+                .description("The number of preview documents in the cache")
+                .register(registry);
+    }
+
+    public static final class Key {
+
+        private final String previewableType;
+
+        private final String id;
+
+        private final String resourceContext;
+
+        private final long generation;
+
+        private Key(String previewableType, String id, String resourceContext, long generation) {
+            this.previewableType = previewableType;
+            this.id = id;
+            this.resourceContext = resourceContext;
+            this.generation = generation;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            var key = (Key) o;
+            return previewableType.equals(key.previewableType)
+                    && id.equals(key.id)
+                    && resourceContext.equals(key.resourceContext);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(previewableType, id, resourceContext);
+        }
+    }
+
+    private static final class Entry {
+
+        private final String html;
+
+        private final long createdAt;
+
+        private Entry(String html, long createdAt) {
+            this.html = html;
+            this.createdAt = createdAt;
+        }
+    }
+}
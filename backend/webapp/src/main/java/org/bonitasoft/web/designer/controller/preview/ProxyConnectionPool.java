@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.CookieSpecs;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.bonitasoft.web.designer.config.ProxyProperties;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Http client shared by all the {@link PreservingCookiePathProxyServlet}, so that the requests sent to the same Bonita
+ * portal reuse the same kept alive connections whatever the proxied path.
+ * <p>
+ * The client behaves like the one a {@link org.mitre.dsmiley.httpproxy.ProxyServlet} builds for itself: cookies,
+ * redirects and content compression are left to the proxied browser. Pool usage is published as
+ * <code>httpcomponents.httpclient.pool.*</code> metrics with the <code>httpclient=bonitaProxy</code> tag.
+ * <p>
+ * When the async proxy mode is enabled, a JDK http client is also shared by the {@link AsyncPreservingCookiePathProxyServlet}.
+ */
+@Slf4j
+@Component
+public class ProxyConnectionPool implements MeterBinder {
+
+    private static final String POOL_NAME = "bonitaProxy";
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    private final CloseableHttpClient httpClient;
+
+    private final ExecutorService asyncExecutor;
+
+    private final java.net.http.HttpClient asyncHttpClient;
+
+    private final Duration asyncRequestTimeout;
+
+    public ProxyConnectionPool(ProxyProperties proxyProperties) {
+        var pool = proxyProperties.getPool();
+        this.connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(pool.getMaxTotal());
+        connectionManager.setDefaultMaxPerRoute(pool.getMaxPerRoute());
+        connectionManager.setDefaultSocketConfig(SocketConfig.custom()
+                .setSoTimeout((int) pool.getSocketTimeout().toMillis())
+                .build());
+
+        var keepAliveMillis = pool.getKeepAlive().toMillis();
+        this.httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setRedirectsEnabled(false)
+                        .setCookieSpec(CookieSpecs.IGNORE_COOKIES)
+                        .setConnectTimeout((int) pool.getConnectTimeout().toMillis())
+                        .setSocketTimeout((int) pool.getSocketTimeout().toMillis())
+                        .setConnectionRequestTimeout((int) pool.getConnectionRequestTimeout().toMillis())
+                        .build())
+                .setKeepAliveStrategy((response, context) -> {
+                    var duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? duration : keepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(pool.getMaxIdleTime().toMillis(), TimeUnit.MILLISECONDS)
+                .disableContentCompression()
+                .useSystemProperties()
+                .build();
+
+        var async = proxyProperties.getAsync();
+        this.asyncRequestTimeout = pool.getSocketTimeout();
+        if (async.isEnabled()) {
+            this.asyncExecutor = Executors.newFixedThreadPool(async.getThreads(), new CustomizableThreadFactory("proxy-async-"));
+            this.asyncHttpClient = java.net.http.HttpClient.newBuilder()
+                    .version(java.net.http.HttpClient.Version.HTTP_1_1)
+                    .followRedirects(java.net.http.HttpClient.Redirect.NEVER)
+                    .connectTimeout(pool.getConnectTimeout())
+                    .executor(asyncExecutor)
+                    .build();
+        } else {
+            this.asyncExecutor = null;
+            this.asyncHttpClient = null;
+        }
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Client used by the async proxy servlets, null when the async mode is disabled
+     */
+    public java.net.http.HttpClient getAsyncHttpClient() {
+        return asyncHttpClient;
+    }
+
+    public Duration getAsyncRequestTimeout() {
+        return asyncRequestTimeout;
+    }
+
+    public PoolStats getStats() {
+        return connectionManager.getTotalStats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME).bindTo(registry);
+    }
+
+    @PreDestroy
+    public void close() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdownNow();
+        }
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Unable to close the connections of the proxy servlets", e);
+        }
+    }
+}
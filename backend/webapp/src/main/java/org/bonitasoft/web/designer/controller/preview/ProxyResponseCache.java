@@ -0,0 +1,434 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.bonitasoft.web.designer.config.ProxyProperties;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded cache of the static resources fetched from the portal by the proxy servlets, following the http caching
+ * rules of a shared cache.
+ * <p>
+ * Only successful GET responses allowed by their Cache-Control header and carrying either an explicit lifetime or a
+ * validator are stored, without their cookies. A fresh response is served without calling the portal, a stale one is
+ * revalidated with a conditional request and served again when the portal answers 304. Conditional requests of the
+ * browser are answered from the stored response. Cached bodies are bounded in size, least recently used responses
+ * being evicted first. Hits, misses and evictions are published as <code>cache.*</code> metrics with the
+ * <code>cache=proxyResponse</code> tag.
+ */
+@Slf4j
+@Component
+public class ProxyResponseCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "proxyResponse";
+
+    /**
+     * Headers describing the connection or the browser session rather than the resource
+     */
+    private static final Set<String> UNSTORED_HEADERS = Set.of("connection", "keep-alive", "proxy-authenticate",
+            "proxy-authorization", "te", "trailers", "transfer-encoding", "upgrade", "set-cookie", "set-cookie2", "age");
+
+    private final boolean enabled;
+
+    private final long maxSize;
+
+    private final int maxEntrySize;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // guarded by this
+    private long size;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public ProxyResponseCache(ProxyProperties proxyProperties) {
+        var cache = proxyProperties.getCache();
+        this.maxSize = cache.getMaxSize().toBytes();
+        this.maxEntrySize = (int) Math.min(Math.min(cache.getMaxEntrySize().toBytes(), maxSize), Integer.MAX_VALUE - 8);
+        this.enabled = cache.isEnabled() && maxSize > 0;
+    }
+
+    /**
+     * Sends <code>proxyRequest</code> with <code>call</code> unless a stored response can be used
+     */
+    public HttpResponse execute(HttpServletRequest servletRequest, HttpRequest proxyRequest, Call call) throws IOException {
+        if (!enabled || !"GET".equals(proxyRequest.getRequestLine().getMethod())) {
+            return call.execute(proxyRequest);
+        }
+        var key = keyFor(proxyRequest);
+        var entry = get(key);
+        var now = System.currentTimeMillis();
+        if (entry != null && entry.isFresh(now)) {
+            hits.increment();
+            return entry.toResponse(servletRequest, now);
+        }
+
+        // the browser validators are checked against the stored response, the portal only sees the cache ones
+        proxyRequest.removeHeaders(HttpHeaders.IF_NONE_MATCH);
+        proxyRequest.removeHeaders(HttpHeaders.IF_MODIFIED_SINCE);
+        if (entry != null) {
+            if (entry.etag != null) {
+                proxyRequest.setHeader(HttpHeaders.IF_NONE_MATCH, entry.etag);
+            } else if (entry.lastModified != null) {
+                proxyRequest.setHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.lastModified);
+            }
+        }
+        var response = call.execute(proxyRequest);
+        var status = response.getStatusLine().getStatusCode();
+        if (entry != null && status == HttpStatus.SC_NOT_MODIFIED) {
+            EntityUtils.consumeQuietly(response.getEntity());
+            hits.increment();
+            var revalidated = entry.revalidate(response, System.currentTimeMillis());
+            put(key, revalidated);
+            return revalidated.toResponse(servletRequest, System.currentTimeMillis());
+        }
+        misses.increment();
+        if (status == HttpStatus.SC_OK && isStorable(response)) {
+            return store(key, servletRequest, response);
+        }
+        remove(key);
+        return response;
+    }
+
+    public synchronized void invalidateAll() {
+        evictions.add(entries.size());
+        entries.clear();
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private String keyFor(HttpRequest proxyRequest) {
+        // the portal may compress a resource depending on the encodings accepted by the browser
+        var acceptEncoding = proxyRequest.getFirstHeader(HttpHeaders.ACCEPT_ENCODING);
+        var gzip = acceptEncoding != null && acceptEncoding.getValue().toLowerCase(Locale.ENGLISH).contains("gzip");
+        return proxyRequest.getRequestLine().getUri() + (gzip ? " gzip" : "");
+    }
+
+    private synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    private synchronized void put(String key, Entry entry) {
+        var previous = entries.put(key, entry);
+        if (previous != null) {
+            size -= previous.body.length;
+        }
+        size += entry.body.length;
+        var eldest = entries.values().iterator();
+        while (size > maxSize && eldest.hasNext()) {
+            size -= eldest.next().body.length;
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private synchronized void remove(String key) {
+        var previous = entries.remove(key);
+        if (previous != null) {
+            size -= previous.body.length;
+        }
+    }
+
+    private boolean isStorable(HttpResponse response) {
+        var cacheControl = CacheControl.of(response);
+        if (cacheControl.noStore || cacheControl.isPrivate) {
+            return false;
+        }
+        for (var vary : response.getHeaders(HttpHeaders.VARY)) {
+            for (var header : vary.getValue().split(",")) {
+                if (!"accept-encoding".equalsIgnoreCase(header.trim())) {
+                    return false;
+                }
+            }
+        }
+        return cacheControl.maxAge >= 0 || response.containsHeader(HttpHeaders.EXPIRES)
+                || response.containsHeader(HttpHeaders.ETAG) || response.containsHeader(HttpHeaders.LAST_MODIFIED);
+    }
+
+    /**
+     * Stores the response when its body is not too large, otherwise gives it back untouched
+     */
+    private HttpResponse store(String key, HttpServletRequest servletRequest, HttpResponse response) throws IOException {
+        var entity = response.getEntity();
+        if (entity != null && entity.getContentLength() > maxEntrySize) {
+            return response;
+        }
+        var body = new byte[0];
+        if (entity != null) {
+            var content = entity.getContent();
+            body = content.readNBytes(maxEntrySize + 1);
+            if (body.length > maxEntrySize) {
+                response.setEntity(replay(entity, new SequenceInputStream(new ByteArrayInputStream(body), content)));
+                return response;
+            }
+            EntityUtils.consumeQuietly(entity);
+        }
+        var now = System.currentTimeMillis();
+        var entry = new Entry(response.getAllHeaders(), body, now);
+        put(key, entry);
+        return entry.toResponse(servletRequest, now);
+    }
+
+    private HttpEntity replay(HttpEntity entity, SequenceInputStream content) {
+        var replayed = new BasicHttpEntity();
+        replayed.setContent(content);
+        replayed.setContentLength(entity.getContentLength());
+        replayed.setContentType(entity.getContentType());
+        replayed.setContentEncoding(entity.getContentEncoding());
+        replayed.setChunked(entity.isChunked());
+        return replayed;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .description("The number of times a portal resource was served from the cache, revalidated or not")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .description("The number of times a portal resource had to be fetched")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", CACHE_NAME)
+                .description("The number of portal resources removed from the cache")
+                .register(registry);
+        Gauge.builder("cache.size", this, ProxyResponseCache::size)
+                .tags("cache", CACHE_NAME)
+                .description("The number of portal resources in the cache")
+                .register(registry);
+    }
+
+    @FunctionalInterface
+    public interface Call {
+
+        HttpResponse execute(HttpRequest proxyRequest) throws IOException;
+    }
+
+    private static final class CacheControl {
+
+        private boolean noStore;
+
+        private boolean noCache;
+
+        private boolean isPrivate;
+
+        private long maxAge = -1;
+
+        private static CacheControl of(HttpResponse response) {
+            var cacheControl = new CacheControl();
+            long sharedMaxAge = -1;
+            for (var header : response.getHeaders(HttpHeaders.CACHE_CONTROL)) {
+                for (var element : header.getElements()) {
+                    var name = element.getName().toLowerCase(Locale.ENGLISH);
+                    switch (name) {
+                        case "no-store":
+                            cacheControl.noStore = true;
+                            break;
+                        case "no-cache":
+                            cacheControl.noCache = true;
+                            break;
+                        case "private":
+                            cacheControl.isPrivate = true;
+                            break;
+                        case "max-age":
+                            cacheControl.maxAge = seconds(element.getValue());
+                            break;
+                        case "s-maxage":
+                            sharedMaxAge = seconds(element.getValue());
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            }
+            if (sharedMaxAge >= 0) {
+                cacheControl.maxAge = sharedMaxAge;
+            }
+            return cacheControl;
+        }
+
+        private static long seconds(String value) {
+            try {
+                return value == null ? -1 : Long.parseLong(value.trim());
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        private final List<Header> headers;
+
+        private final byte[] body;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final long storedAt;
+
+        private final long freshUntil;
+
+        private Entry(Header[] responseHeaders, byte[] body, long now) {
+            this.headers = new ArrayList<>();
+            for (var header : responseHeaders) {
+                if (!UNSTORED_HEADERS.contains(header.getName().toLowerCase(Locale.ENGLISH))) {
+                    headers.add(new BasicHeader(header.getName(), header.getValue()));
+                }
+            }
+            this.body = body;
+            this.etag = value(headers, HttpHeaders.ETAG);
+            this.lastModified = value(headers, HttpHeaders.LAST_MODIFIED);
+            this.storedAt = now;
+            this.freshUntil = freshUntil(headers, now);
+        }
+
+        /**
+         * Updates the stored headers with the ones sent along a 304 response
+         */
+        private Entry revalidate(HttpResponse notModified, long now) {
+            var updated = new ArrayList<Header>();
+            for (var header : headers) {
+                if (HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getName()) || !notModified.containsHeader(header.getName())) {
+                    updated.add(header);
+                }
+            }
+            for (var header : notModified.getAllHeaders()) {
+                // a 304 has no body, its length does not apply to the stored one
+                if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getName())) {
+                    updated.add(header);
+                }
+            }
+            return new Entry(updated.toArray(new Header[0]), body, now);
+        }
+
+        private boolean isFresh(long now) {
+            return now < freshUntil;
+        }
+
+        private HttpResponse toResponse(HttpServletRequest servletRequest, long now) {
+            var age = new BasicHeader("Age", String.valueOf(Math.max(0, (now - storedAt) / 1000)));
+            if (isNotModifiedFor(servletRequest)) {
+                var response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_NOT_MODIFIED, "Not Modified");
+                for (var header : headers) {
+                    if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(header.getName())) {
+                        response.addHeader(header);
+                    }
+                }
+                response.addHeader(age);
+                return response;
+            }
+            var response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+            headers.forEach(response::addHeader);
+            response.addHeader(age);
+            response.setEntity(new ByteArrayEntity(body));
+            return response;
+        }
+
+        private boolean isNotModifiedFor(HttpServletRequest servletRequest) {
+            var ifNoneMatch = servletRequest.getHeader(HttpHeaders.IF_NONE_MATCH);
+            if (ifNoneMatch != null) {
+                return etag != null && Arrays.stream(ifNoneMatch.split(","))
+                        .map(String::trim)
+                        .anyMatch(tag -> "*".equals(tag) || Objects.equals(weak(tag), weak(etag)));
+            }
+            var ifModifiedSince = date(servletRequest.getHeader(HttpHeaders.IF_MODIFIED_SINCE));
+            var modified = date(lastModified);
+            return ifModifiedSince != null && modified != null && !modified.after(ifModifiedSince);
+        }
+
+        private static Date date(String value) {
+            return value == null ? null : DateUtils.parseDate(value);
+        }
+
+        private static String weak(String tag) {
+            return tag.startsWith("W/") ? tag.substring(2) : tag;
+        }
+
+        private static String value(List<Header> headers, String name) {
+            return headers.stream()
+                    .filter(header -> header.getName().equalsIgnoreCase(name))
+                    .map(Header::getValue)
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        /**
+         * No heuristic lifetime: a response without an explicit one is revalidated each time, so that theme updates
+         * show up in the next preview
+         */
+        private static long freshUntil(List<Header> headers, long now) {
+            var response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, null);
+            headers.forEach(response::addHeader);
+            var cacheControl = CacheControl.of(response);
+            if (cacheControl.noCache) {
+                return now;
+            }
+            if (cacheControl.maxAge >= 0) {
+                return now + cacheControl.maxAge * 1000;
+            }
+            var expires = date(value(headers, HttpHeaders.EXPIRES));
+            if (expires != null) {
+                var date = date(value(headers, HttpHeaders.DATE));
+                return now + expires.getTime() - (date != null ? date.getTime() : now);
+            }
+            return now;
+        }
+    }
+}
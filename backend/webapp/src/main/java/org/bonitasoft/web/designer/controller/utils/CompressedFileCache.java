@@ -0,0 +1,193 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.bonitasoft.web.designer.config.CompressionProperties;
+import org.bonitasoft.web.designer.config.WorkspaceUidProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+/**
+ * Gzip copies of text files, generated on first request in the workspace-uid directory and reused until the size or
+ * the modification time of the original file changes.
+ * <p>
+ * Modification times may only be stored to the second, so a file rewritten twice within the same second could keep
+ * its first copy. Files modified in the last seconds are therefore identified by a hash of their content. The copies
+ * of deleted or renamed files are never requested again, they are deleted with the oldest copies once the directory
+ * goes over its maximum size.
+ */
+@Component
+public class CompressedFileCache {
+
+    public static final String GZIP = "gzip";
+
+    private static final String EXTENSION = ".gz";
+
+    /**
+     * Files modified more recently may still change without their modification time changing
+     */
+    private static final long RACY_DELAY_MILLIS = 2000;
+
+    private final Path cacheDirectory;
+
+    private final CompressionProperties compressionProperties;
+
+    public CompressedFileCache(WorkspaceUidProperties workspaceUidProperties, CompressionProperties compressionProperties) {
+        this.cacheDirectory = workspaceUidProperties.getPath().resolve(GZIP);
+        this.compressionProperties = compressionProperties;
+    }
+
+    /**
+     * Returns the gzip copy of the file or null when it should be sent uncompressed
+     */
+    public Path gzip(Path file, String mimeType) throws IOException {
+        var size = Files.size(file);
+        if (!shouldCompress(mimeType, size)) {
+            return null;
+        }
+        return gzip(file.toAbsolutePath().toString(), size, Files.getLastModifiedTime(file).toMillis(), () -> Files.newInputStream(file));
+    }
+
+    /**
+     * Returns the gzip copy of a static resource or null when it should be sent uncompressed
+     */
+    public Path gzip(Resource resource, String mimeType) throws IOException {
+        var size = resource.contentLength();
+        if (!shouldCompress(mimeType, size)) {
+            return null;
+        }
+        return gzip(resource.getURL().toString(), size, resource.lastModified(), resource::getInputStream);
+    }
+
+    public boolean isAccepted(HttpServletRequest request) {
+        var acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (!compressionProperties.isEnabled() || acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            var parameters = coding.trim().split(";");
+            if (GZIP.equalsIgnoreCase(parameters[0].trim())) {
+                return parameters.length == 1 || !parameters[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private boolean shouldCompress(String mimeType, long size) {
+        return compressionProperties.isEnabled()
+                && size >= compressionProperties.getMinSize()
+                && mimeType != null
+                && (mimeType.startsWith("text/") || mimeType.contains("javascript") || mimeType.contains("json")
+                || mimeType.contains("xml"));
+    }
+
+    private Path gzip(String key, long size, long lastModified, Content content) throws IOException {
+        var prefix = DigestUtils.sha1Hex(key) + ".";
+        var target = cacheDirectory.resolve(prefix + version(size, lastModified, content) + EXTENSION);
+        if (Files.exists(target)) {
+            return target;
+        }
+        Files.createDirectories(cacheDirectory);
+        var tmp = Files.createTempFile(cacheDirectory, "gzip", ".tmp");
+        try {
+            try (InputStream in = content.open(); var out = new GZIPOutputStream(Files.newOutputStream(tmp))) {
+                in.transferTo(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileSystemException e) {
+            // On Windows, the previous copy cannot be replaced while it is being sent
+            return null;
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        prune(prefix, target);
+        return target;
+    }
+
+    private String version(long size, long lastModified, Content content) throws IOException {
+        if (System.currentTimeMillis() - lastModified < RACY_DELAY_MILLIS) {
+            try (var in = content.open()) {
+                return DigestUtils.sha1Hex(in);
+            }
+        }
+        return size + "-" + lastModified;
+    }
+
+    /**
+     * Deletes the previous copies of the same file, then the oldest copies while the directory is over its maximum
+     * size. Copies being sent cannot be deleted on Windows, they are left for a next time.
+     */
+    private synchronized void prune(String prefix, Path target) throws IOException {
+        var copies = new ArrayList<Map.Entry<Path, BasicFileAttributes>>();
+        try (var files = Files.list(cacheDirectory)) {
+            for (var file : (Iterable<Path>) files::iterator) {
+                var name = file.getFileName().toString();
+                if (!name.endsWith(EXTENSION) || file.equals(target)) {
+                    continue;
+                }
+                if (name.startsWith(prefix)) {
+                    deleteCopy(file);
+                } else {
+                    copies.add(Map.entry(file, Files.readAttributes(file, BasicFileAttributes.class)));
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        var remaining = compressionProperties.getMaxCacheSize().toBytes() - Files.size(target);
+        for (var copy : copies) {
+            remaining -= copy.getValue().size();
+        }
+        copies.sort(Comparator.comparing(copy -> copy.getValue().lastModifiedTime()));
+        for (var copy : copies) {
+            if (remaining >= 0) {
+                return;
+            }
+            if (deleteCopy(copy.getKey())) {
+                remaining += copy.getValue().size();
+            }
+        }
+    }
+
+    private boolean deleteCopy(Path copy) {
+        try {
+            return Files.deleteIfExists(copy);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Content {
+        InputStream open() throws IOException;
+    }
+}
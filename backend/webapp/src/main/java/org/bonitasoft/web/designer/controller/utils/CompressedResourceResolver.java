@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.utils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.resource.AbstractResourceResolver;
+import org.springframework.web.servlet.resource.HttpResource;
+import org.springframework.web.servlet.resource.ResourceResolverChain;
+
+/**
+ * Resolves static resources to their gzip copy from {@link CompressedFileCache} when the client accepts it
+ */
+public class CompressedResourceResolver extends AbstractResourceResolver {
+
+    private final CompressedFileCache compressedFiles;
+
+    public CompressedResourceResolver(CompressedFileCache compressedFiles) {
+        this.compressedFiles = compressedFiles;
+    }
+
+    @Override
+    protected Resource resolveResourceInternal(HttpServletRequest request, String requestPath,
+                                               List<? extends Resource> locations, ResourceResolverChain chain) {
+        var resource = chain.resolveResource(request, requestPath, locations);
+        if (resource == null || request == null || resource.getFilename() == null || !compressedFiles.isAccepted(request)) {
+            return resource;
+        }
+        try {
+            var gzip = compressedFiles.gzip(resource, request.getServletContext().getMimeType(resource.getFilename()));
+            return gzip != null ? new CompressedResource(gzip, resource) : resource;
+        } catch (IOException e) {
+            logger.warn("Unable to compress " + resource, e);
+            return resource;
+        }
+    }
+
+    @Override
+    protected String resolveUrlPathInternal(String resourceUrlPath, List<? extends Resource> locations,
+                                            ResourceResolverChain chain) {
+        return chain.resolveUrlPath(resourceUrlPath, locations);
+    }
+
+    private static final class CompressedResource extends FileSystemResource implements HttpResource {
+
+        private final Resource original;
+
+        private CompressedResource(Path gzip, Resource original) {
+            super(gzip);
+            this.original = original;
+        }
+
+        /**
+         * Used to find the media type of the response
+         */
+        @Override
+        public String getFilename() {
+            return original.getFilename();
+        }
+
+        @Override
+        public long lastModified() throws IOException {
+            return original.lastModified();
+        }
+
+        @Override
+        public HttpHeaders getResponseHeaders() {
+            var headers = original instanceof HttpResource
+                    ? ((HttpResource) original).getResponseHeaders()
+                    : new HttpHeaders();
+            headers.add(HttpHeaders.CONTENT_ENCODING, CompressedFileCache.GZIP);
+            headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipException;
+
+/**
+ * Number of entries and uncompressed bytes left for the archives of a same upload. It is shared by extractions running
+ * in parallel: once one of them goes over it, all of them fail on their next entry or write.
+ */
+public class ExtractionBudget {
+
+    private final int maxEntries;
+
+    private final long maxSize;
+
+    private final AtomicInteger entries = new AtomicInteger();
+
+    private final AtomicLong size = new AtomicLong();
+
+    private volatile String exceeded;
+
+    public ExtractionBudget(int maxEntries, long maxSize) {
+        this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
+    }
+
+    public void addEntry() throws ZipException {
+        checkNotExceeded();
+        if (entries.incrementAndGet() > maxEntries) {
+            exceed("Zip content contains more than " + maxEntries + " entries");
+        }
+    }
+
+    public void addBytes(long count) throws ZipException {
+        checkNotExceeded();
+        // Declared sizes can't be trusted, the limit is checked on the bytes actually inflated
+        if (size.addAndGet(count) > maxSize) {
+            exceed("Zip content exceeds " + maxSize + " bytes once uncompressed");
+        }
+    }
+
+    public boolean isExceeded() {
+        return exceeded != null;
+    }
+
+    /**
+     * Why the budget was exceeded, null when it was not
+     */
+    public String getExceeded() {
+        return exceeded;
+    }
+
+    private void checkNotExceeded() throws ZipException {
+        var reason = exceeded;
+        if (reason != null) {
+            throw new ZipException(reason);
+        }
+    }
+
+    private void exceed(String reason) throws ZipException {
+        exceeded = reason;
+        throw new ZipException(reason);
+    }
+}
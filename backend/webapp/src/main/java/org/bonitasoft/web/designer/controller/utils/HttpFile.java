@@ -14,66 +14,280 @@
  */
 package org.bonitasoft.web.designer.controller.utils;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static java.nio.file.Files.exists;
 
 public final class HttpFile {
 
+    /**
+     * Request attributes used by Tomcat to send a file without copying it in the JVM
+     */
+    private static final String SENDFILE_SUPPORT_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Smaller files are cheaper to copy than to hand over to the container, same default as Tomcat DefaultServlet
+     */
+    private static final long SENDFILE_MIN_SIZE = 48 * 1024L;
+
     private HttpFile() {
         // Utility class
     }
 
     public static void writeFileInResponseForVisualization(HttpServletRequest request, HttpServletResponse response, Path filePath) throws IOException {
-        if (notPathExists(filePath)) {
-            response.sendError(HttpServletResponse.SC_NOT_FOUND);
-            return;
-        }
-        String mimeType = request.getServletContext().getMimeType(filePath.getFileName().toString());
+        String mimeType = filePath == null ? null : request.getServletContext().getMimeType(filePath.getFileName().toString());
         if (mimeType == null || !mimeType.contains("image")) {
             mimeType = MediaType.TEXT_PLAIN_VALUE;
         }
-        writeFileInResponse(response, filePath, mimeType, "inline");
+        writeFileInResponse(request, response, filePath, mimeType, "inline", null, null);
     }
 
-    public static void writeFileInResponseForDownload(HttpServletResponse response, Path filePath) throws IOException {
-        if (notPathExists(filePath)) {
-            response.sendError(HttpServletResponse.SC_NOT_FOUND);
-            return;
-        }
-        writeFileInResponse(response, filePath, MediaType.APPLICATION_OCTET_STREAM_VALUE, "attachment");
+    public static void writeFileInResponseForDownload(HttpServletRequest request, HttpServletResponse response, Path filePath) throws IOException {
+        writeFileInResponse(request, response, filePath, MediaType.APPLICATION_OCTET_STREAM_VALUE, "attachment", null, null);
     }
 
     public static void writeFileInResponse(HttpServletRequest request, HttpServletResponse response, Path filePath) throws IOException {
+        writeFileInResponse(request, response, filePath, null);
+    }
+
+    /**
+     * Write the file with ETag and Last-Modified validators, or a 304 status when the client copy is still valid
+     *
+     * @param cacheControl value of the Cache-Control header, none is sent when null
+     */
+    public static void writeFileInResponse(HttpServletRequest request, HttpServletResponse response, Path filePath, String cacheControl) throws IOException {
+        writeFileInResponse(request, response, filePath, cacheControl, null);
+    }
+
+    /**
+     * Same as {@link #writeFileInResponse(HttpServletRequest, HttpServletResponse, Path, String)} but sends the gzip copy
+     * of text files to the clients accepting it
+     */
+    public static void writeFileInResponse(HttpServletRequest request, HttpServletResponse response, Path filePath, String cacheControl,
+                                           CompressedFileCache compressedFiles) throws IOException {
+        var mimeType = filePath == null ? null : request.getServletContext().getMimeType(filePath.getFileName().toString());
+        writeFileInResponse(request, response, filePath, mimeType, "inline", cacheControl, compressedFiles);
+    }
+
+    /**
+     * Write headers and content in the response. Range requests are answered with a 206 status and only the
+     * requested parts of the file.
+     */
+    private static void writeFileInResponse(HttpServletRequest request, HttpServletResponse response, Path filePath, String mimeType,
+                                            String contentDispositionType, String cacheControl, CompressedFileCache compressedFiles) throws IOException {
         if (notPathExists(filePath)) {
             response.sendError(HttpServletResponse.SC_NOT_FOUND);
             return;
         }
-        writeFileInResponse(response, filePath, request.getServletContext().getMimeType(filePath.getFileName().toString()), "inline");
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+        }
+        var attributes = Files.readAttributes(filePath, BasicFileAttributes.class);
+        var size = attributes.size();
+        var lastModified = attributes.lastModifiedTime().toMillis();
+        var eTag = eTag(size, lastModified);
+        Path gzipPath = null;
+        if (compressedFiles != null) {
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (request.getHeader(HttpHeaders.RANGE) == null && compressedFiles.isAccepted(request)) {
+                gzipPath = compressedFiles.gzip(filePath, mimeType);
+            }
+        }
+        if (gzipPath != null) {
+            // Each representation needs its own validator
+            eTag = eTag.substring(0, eTag.length() - 1) + "-" + CompressedFileCache.GZIP + "\"";
+        }
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, contentDispositionType +
+                "; filename=\"" +
+                filePath.getFileName() +
+                "\"");
+        if (gzipPath != null) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, CompressedFileCache.GZIP);
+            writeContent(request, response, gzipPath, mimeType, 0, Files.size(gzipPath));
+            return;
+        }
+
+        List<HttpRange> requestedRanges;
+        try {
+            requestedRanges = isRangeApplicable(request, eTag, lastModified)
+                    ? HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE))
+                    : List.of();
+        } catch (IllegalArgumentException e) {
+            // An invalid Range header is ignored and the whole file is sent (RFC 7233, section 3.1)
+            requestedRanges = List.of();
+        }
+        var ranges = requestedRanges.stream().filter(range -> isSatisfiable(range, size)).collect(Collectors.toList());
+        if (ranges.isEmpty() && !requestedRanges.isEmpty()) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+        if (requestedLength(ranges, size) > size) {
+            // Overlapping ranges asking for more than the file are answered with the whole file, as Spring does
+            ranges = List.of();
+        }
+        ranges = mergeRanges(ranges, size);
+
+        if (ranges.isEmpty()) {
+            writeContent(request, response, filePath, mimeType, 0, size);
+        } else if (ranges.size() == 1) {
+            var start = ranges.get(0).getRangeStart(size);
+            var end = ranges.get(0).getRangeEnd(size);
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, end, size));
+            writeContent(request, response, filePath, mimeType, start, end - start + 1);
+        } else {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            writeMultipartContent(response, filePath, mimeType, ranges, size);
+        }
+    }
+
+    static String eTag(long size, long lastModified) {
+        return "\"" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private static boolean isSatisfiable(HttpRange range, long size) {
+        try {
+            return range.getRangeStart(size) < size;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static long requestedLength(List<HttpRange> ranges, long size) {
+        return ranges.stream()
+                .mapToLong(range -> range.getRangeEnd(size) - range.getRangeStart(size) + 1)
+                .sum();
     }
 
     /**
-     * Write headers and content in the response
+     * Sort the ranges and coalesce the overlapping or adjacent ones, so that no byte is sent twice
      */
-    private static void writeFileInResponse(HttpServletResponse response, Path filePath, String mimeType,
-                                            String contentDispositionType) throws IOException {
-        response.setHeader("Content-Type", mimeType);
-        response.setHeader("Content-Length", String.valueOf(filePath.toFile().length()));
-        response.setHeader("Content-Disposition", contentDispositionType +
-                "; filename=\"" +
-                filePath.getFileName() +
-                "\"");
+    private static List<HttpRange> mergeRanges(List<HttpRange> ranges, long size) {
+        var sorted = new ArrayList<>(ranges);
+        sorted.sort(Comparator.comparingLong(range -> range.getRangeStart(size)));
+        var merged = new ArrayList<HttpRange>(sorted.size());
+        long start = -1;
+        long end = -1;
+        for (HttpRange range : sorted) {
+            var rangeStart = range.getRangeStart(size);
+            var rangeEnd = range.getRangeEnd(size);
+            if (start >= 0 && rangeStart <= end + 1) {
+                end = Math.max(end, rangeEnd);
+                continue;
+            }
+            if (start >= 0) {
+                merged.add(HttpRange.createByteRange(start, end));
+            }
+            start = rangeStart;
+            end = rangeEnd;
+        }
+        if (start >= 0) {
+            merged.add(HttpRange.createByteRange(start, end));
+        }
+        return merged;
+    }
+
+    /**
+     * A range is only served if the file did not change since the client got the validator sent in If-Range
+     */
+    private static boolean isRangeApplicable(HttpServletRequest request, String eTag, long lastModified) {
+        var ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String contentRange(long start, long end, long size) {
+        return "bytes " + start + "-" + end + "/" + size;
+    }
+
+    private static void writeContent(HttpServletRequest request, HttpServletResponse response, Path filePath, String mimeType,
+                                     long start, long length) throws IOException {
+        response.setHeader(HttpHeaders.CONTENT_TYPE, mimeType);
+        response.setHeader(HttpHeaders.CONTENT_LENGTH, String.valueOf(length));
         response.setCharacterEncoding(StandardCharsets.UTF_8.toString());
+        if (length >= SENDFILE_MIN_SIZE && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT_ATTRIBUTE))) {
+            // The container writes the file itself once the request has been handled
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, filePath.toFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, start + length);
+            return;
+        }
         try (OutputStream out = response.getOutputStream()) {
-            Files.copy(filePath, out);
+            transfer(filePath, start, length, out);
+        }
+    }
+
+    private static void writeMultipartContent(HttpServletResponse response, Path filePath, String mimeType,
+                                              List<HttpRange> ranges, long size) throws IOException {
+        var boundary = new String(MimeTypeUtils.generateMultipartBoundary(), StandardCharsets.US_ASCII);
+        response.setHeader(HttpHeaders.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+        try (OutputStream out = response.getOutputStream()) {
+            for (HttpRange range : ranges) {
+                var start = range.getRangeStart(size);
+                var end = range.getRangeEnd(size);
+                var partHeaders = "\r\n--" + boundary + "\r\n"
+                        + (mimeType != null ? HttpHeaders.CONTENT_TYPE + ": " + mimeType + "\r\n" : "")
+                        + HttpHeaders.CONTENT_RANGE + ": " + contentRange(start, end, size) + "\r\n\r\n";
+                out.write(partHeaders.getBytes(StandardCharsets.US_ASCII));
+                transfer(filePath, start, end - start + 1, out);
+            }
+            out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Copy a region of the file with {@link FileChannel#transferTo} which lets the JDK avoid heap buffers when it can
+     */
+    private static void transfer(Path filePath, long start, long length, OutputStream out) throws IOException {
+        try (var channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            var target = Channels.newChannel(out);
+            var position = start;
+            var remaining = length;
+            while (remaining > 0) {
+                var transferred = channel.transferTo(position, remaining, target);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
         }
     }
 
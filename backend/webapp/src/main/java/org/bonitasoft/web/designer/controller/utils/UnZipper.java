@@ -18,40 +18,90 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Date;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.IOUtils;
+import org.bonitasoft.web.designer.config.ImportProperties;
 import org.springframework.stereotype.Component;
-import org.zeroturnaround.zip.ZipUtil;
 
+/**
+ * Extracts uploaded archives in a single pass over the stream, without keeping the archive in memory nor on disk
+ */
 @Component
 public class UnZipper {
 
+    private static final int BUFFER_SIZE = 8 * 1024;
+
     private final Path temporaryZipPath;
 
-    public UnZipper() throws IOException {
+    private final ImportProperties importProperties;
+
+    public UnZipper(ImportProperties importProperties) throws IOException {
+        this.importProperties = importProperties;
         temporaryZipPath = Files.createTempDirectory("uid-tmp");
     }
 
     public Path unzipInTempDir(InputStream is, String tempDirPrefix) throws IOException {
+        return unzipInTempDir(is, tempDirPrefix, newBudget());
+    }
+
+    /**
+     * Extracts an archive as part of a larger upload, the entries and bytes written are taken from the given budget
+     */
+    public Path unzipInTempDir(InputStream is, String tempDirPrefix, ExtractionBudget budget) throws IOException {
         Path tempDirectory = Files.createTempDirectory(temporaryZipPath, tempDirPrefix);
-        Path zipFile = writeInDir(is, tempDirectory);
         try {
-            ZipUtil.unpack(zipFile.toFile(), tempDirectory.toFile());
-        } catch (org.zeroturnaround.zip.ZipException e) {
-            throw new ZipException(e.getMessage());
-        } finally {
-            FileUtils.deleteQuietly(zipFile.toFile());
+            unpack(is, tempDirectory, budget);
+        } catch (IOException | RuntimeException e) {
+            FileUtils.deleteQuietly(tempDirectory.toFile());
+            throw e;
         }
         return tempDirectory;
     }
 
-    private Path writeInDir(InputStream is, Path tempDirectory) throws IOException {
-        Path zipFile = tempDirectory.resolve("zipfile" + new Date().getTime());
-        Files.write(zipFile, IOUtils.toByteArray(is));
-        return zipFile;
+    public ExtractionBudget newBudget() {
+        return new ExtractionBudget(importProperties.getMaxEntries(), importProperties.getMaxUncompressedSize().toBytes());
+    }
+
+    private void unpack(InputStream is, Path tempDirectory, ExtractionBudget budget) throws IOException {
+        var buffer = new byte[BUFFER_SIZE];
+        var entries = 0;
+        // Not closed on purpose, the caller owns the uploaded stream
+        var zip = new ZipInputStream(is);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            entries++;
+            budget.addEntry();
+            var target = resolve(tempDirectory, entry);
+            if (entry.isDirectory()) {
+                Files.createDirectories(target);
+                continue;
+            }
+            Files.createDirectories(target.getParent());
+            try (var out = Files.newOutputStream(target)) {
+                int read;
+                while ((read = zip.read(buffer)) != -1) {
+                    budget.addBytes(read);
+                    out.write(buffer, 0, read);
+                }
+            }
+        }
+        if (entries == 0) {
+            throw new ZipException("Zip file is empty or is not a zip file");
+        }
+    }
+
+    /**
+     * Prevents entries like "../../file" to be written outside the extraction directory
+     */
+    private Path resolve(Path directory, ZipEntry entry) throws ZipException {
+        var target = directory.resolve(entry.getName()).normalize();
+        if (!target.startsWith(directory)) {
+            throw new ZipException("Zip entry " + entry.getName() + " is outside of the target directory");
+        }
+        return target;
     }
 
 }
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.mapping;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.bonitasoft.web.designer.config.FormGenerationProperties;
+import org.bonitasoft.web.designer.model.page.Page;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+/**
+ * Generates many forms at once, for instance all the forms of a process. Mappers keep no state between two
+ * generations, so forms are generated in parallel on a bounded pool. Pages are returned in request order.
+ */
+@Component
+public class BatchFormGenerator {
+
+    private final FormPageCache formPageCache;
+
+    private final int maxBatchSize;
+
+    private final ExecutorService executor;
+
+    public BatchFormGenerator(FormPageCache formPageCache, FormGenerationProperties formGenerationProperties) {
+        this.formPageCache = formPageCache;
+        this.maxBatchSize = formGenerationProperties.getMaxBatchSize();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, formGenerationProperties.getParallelism()),
+                new CustomizableThreadFactory("form-generation-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Requests are all checked before any generation starts, an invalid request fails the whole batch
+     */
+    public List<Page> generate(List<FormGenerationRequest> requests) {
+        if (requests.size() > maxBatchSize) {
+            throw new IllegalArgumentException("Cannot generate more than " + maxBatchSize + " forms at once");
+        }
+        var scopes = requests.stream().map(this::checkRequest).collect(toList());
+
+        var generations = new ArrayList<CompletableFuture<Page>>(requests.size());
+        for (var i = 0; i < requests.size(); i++) {
+            var request = requests.get(i);
+            var scope = scopes.get(i);
+            generations.add(CompletableFuture.supplyAsync(
+                    () -> formPageCache.createFormPage(request.getName(), request.getContract(), scope), executor));
+        }
+        try {
+            return generations.stream().map(CompletableFuture::join).collect(toList());
+        } catch (CompletionException e) {
+            generations.forEach(generation -> generation.cancel(false));
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private FormScope checkRequest(FormGenerationRequest request) {
+        if (!StringUtils.hasText(request.getName())) {
+            throw new IllegalArgumentException("A form name is needed to generate a form");
+        }
+        if (request.getContract() == null) {
+            throw new IllegalArgumentException("A contract is needed to generate form " + request.getName());
+        }
+        if (request.getScope() == null) {
+            throw new IllegalArgumentException("A scope is needed to generate form " + request.getName());
+        }
+        try {
+            return FormScope.valueOf(request.getScope().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown scope " + request.getScope() + " for form " + request.getName(), e);
+        }
+    }
+}
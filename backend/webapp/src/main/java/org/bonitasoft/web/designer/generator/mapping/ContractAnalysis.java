@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.mapping;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.bonitasoft.web.designer.generator.mapping.data.BusinessData;
+import org.bonitasoft.web.designer.generator.mapping.data.BusinessDataLazyRef;
+import org.bonitasoft.web.designer.generator.mapping.data.BusinessQueryDataFactory;
+import org.bonitasoft.web.designer.generator.mapping.data.FormInputData;
+import org.bonitasoft.web.designer.generator.mapping.data.FormInputVisitor;
+import org.bonitasoft.web.designer.generator.mapping.data.FormOutputData;
+import org.bonitasoft.web.designer.generator.mapping.data.FormOutputVisitor;
+import org.bonitasoft.web.designer.model.JsonHandler;
+import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.contract.EditMode;
+import org.bonitasoft.web.designer.model.contract.NodeContractInput;
+import org.bonitasoft.web.designer.model.page.PageData;
+
+/**
+ * Facts needed to generate a form, gathered in a single traversal of the contract
+ */
+public class ContractAnalysis {
+
+    private final BusinessQueryDataFactory businessQueryDataFactory;
+    private final FormInputVisitor formInputVisitor;
+    private final FormOutputVisitor formOutputVisitor = new FormOutputVisitor();
+    private final Set<String> businessData = new LinkedHashSet<>();
+    private final List<PageData> businessDataLazyRefs = new ArrayList<>();
+    private final Map<String, PageData> businessQueries = new LinkedHashMap<>();
+
+    public ContractAnalysis(Contract contract, JsonHandler jsonHandler, BusinessQueryDataFactory businessQueryDataFactory) {
+        this.businessQueryDataFactory = businessQueryDataFactory;
+        this.formInputVisitor = new FormInputVisitor(jsonHandler);
+        for (var input : contract.getInput()) {
+            if (input instanceof NodeContractInput) {
+                analyzeRootInput((NodeContractInput) input);
+            } else {
+                input.accept(formInputVisitor);
+                input.accept(formOutputVisitor);
+            }
+        }
+    }
+
+    private void analyzeRootInput(NodeContractInput input) {
+        var handler = new ContractInputDataHandler(input);
+        var formInput = formInputVisitor.visitNode(input);
+        var outputLazyRefs = formOutputVisitor.visitRoot(handler);
+        //Only search for business data at the root level inputs
+        var editedBusinessData = input.getMode() == EditMode.EDIT
+                && input.getDataReference() != null
+                && hasText(input.getDataReference().getName());
+        if (editedBusinessData) {
+            businessData.add(input.getDataReference().getName());
+        }
+        addBusinessQuery(input);
+        analyzeChildren(handler, editedBusinessData ? handler.getRefName() : null, formInput, outputLazyRefs);
+    }
+
+    /**
+     * @param lazyRefPath path of the parent value when lazy references have to be retrieved, null otherwise
+     * @param formInput collector of the parent form input properties, null if the node is not part of the form input
+     * @param outputLazyRefs whether lazy references of the node are part of the form output
+     */
+    private void analyze(ContractInputDataHandler handler, String lazyRefPath, FormInputVisitor formInput, boolean outputLazyRefs) {
+        if (lazyRefPath != null
+                && handler.hasLazyDataRef()
+                && !handler.getParent().isMultiple()) { //Cannot retrieve lazy references if parent is multiple
+            businessDataLazyRefs.add(new BusinessDataLazyRef(lazyRefPath.replace(".", "_"), lazyRefPath, handler.getRefName()));
+        }
+        var input = (NodeContractInput) handler.getContractInput();
+        addBusinessQuery(input);
+        analyzeChildren(handler,
+                lazyRefPath != null ? handler.inputValue() : null,
+                formInput != null ? formInput.visitNode(input) : null,
+                outputLazyRefs && formOutputVisitor.visitDescendant(handler));
+    }
+
+    private void analyzeChildren(ContractInputDataHandler handler, String lazyRefPath, FormInputVisitor formInput, boolean outputLazyRefs) {
+        for (var child : handler.getChildren()) {
+            if (child.isNode()) {
+                analyze(child, lazyRefPath, formInput, outputLazyRefs);
+            } else if (formInput != null) {
+                child.getContractInput().accept(formInput);
+            }
+        }
+    }
+
+    private void addBusinessQuery(NodeContractInput input) {
+        businessQueryDataFactory.create(input)
+                .ifPresent(query -> businessQueries.putIfAbsent(query.name(), query));
+    }
+
+    /**
+     * Whether some contract inputs are not filled from business data and need a form input
+     */
+    public boolean hasFormInput() {
+        return !formInputVisitor.isEmpty();
+    }
+
+    public FormInputData getFormInputData() {
+        return new FormInputData(formInputVisitor);
+    }
+
+    public FormOutputData getFormOutputData() {
+        return new FormOutputData(formOutputVisitor);
+    }
+
+    /**
+     * Business data edited by the form, referenced by root inputs
+     */
+    public List<PageData> getBusinessData() {
+        var data = new ArrayList<PageData>(businessData.size());
+        businessData.forEach(name -> data.add(new BusinessData(name)));
+        return data;
+    }
+
+    public List<PageData> getBusinessDataLazyRefs() {
+        return businessDataLazyRefs;
+    }
+
+    /**
+     * Queries listing aggregated business data, one per business object type
+     */
+    public List<PageData> getBusinessQueries() {
+        return new ArrayList<>(businessQueries.values());
+    }
+}
@@ -24,14 +24,11 @@ import org.bonitasoft.web.designer.model.contract.EditMode;
 import org.bonitasoft.web.designer.model.contract.NodeContractInput;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 
-import static java.lang.String.join;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toUnmodifiableList;
 
 
 public class ContractInputDataHandler {
@@ -40,10 +37,37 @@ public class ContractInputDataHandler {
     public static final String ITERATOR_NAME = "it";
     private final ContractInput input;
 
+    /*
+     * Resolved on first use. Paths are built from the parent handler ones, so children created with
+     * getChildren() share their ancestors computations instead of walking up the contract again.
+     */
+    private ContractInputDataHandler parent;
+    private boolean parentResolved;
+    private List<ContractInputDataHandler> children;
+    private Boolean lazyDataRef;
+    private Boolean multipleAncestor;
+    private String inputValuePath;
+    private String dataPath;
+    private String lazyDataRefName;
+
     public ContractInputDataHandler(ContractInput input) {
         this.input = input;
     }
 
+    protected ContractInputDataHandler(ContractInput input, ContractInputDataHandler parent) {
+        this(input);
+        this.parent = parent;
+        this.parentResolved = true;
+    }
+
+    /**
+     * Creates the handler of a parent or child input, overridden by specialized handlers so that the whole tree of
+     * handlers has the same type
+     */
+    protected ContractInputDataHandler newHandler(ContractInput input, ContractInputDataHandler parent) {
+        return parent == null ? new ContractInputDataHandler(input) : new ContractInputDataHandler(input, parent);
+    }
+
     public static boolean hasAggregatedParentRef(ContractInput input) {
         return input.getParent() instanceof NodeContractInput
                 && ((NodeContractInput) input.getParent()).getDataReference() != null
@@ -64,10 +88,13 @@ public class ContractInputDataHandler {
     }
 
     public boolean hasLazyDataRef() {
-        return hasDataReference()
-                && input instanceof NodeContractInput
-                && ((NodeContractInput) input).getDataReference().getLoadingType() == LoadingType.LAZY
-                && doesNotHaveAMultipleParent(input);
+        if (lazyDataRef == null) {
+            lazyDataRef = hasDataReference()
+                    && input instanceof NodeContractInput
+                    && ((NodeContractInput) input).getDataReference().getLoadingType() == LoadingType.LAZY
+                    && !hasMultipleAncestor();
+        }
+        return lazyDataRef;
     }
 
     public boolean hasDataReference() {
@@ -91,63 +118,56 @@ public class ContractInputDataHandler {
                 : input.getName();
     }
 
-    private boolean doesNotHaveAMultipleParent(ContractInput contractInput) {
-        var current = contractInput.getParent();
-        while (current != null && !current.isMultiple()) {
-            current = current.getParent();
+    private boolean hasMultipleAncestor() {
+        if (multipleAncestor == null) {
+            var parentHandler = getParent();
+            multipleAncestor = parentHandler != null
+                    && (parentHandler.isMultiple() || parentHandler.hasMultipleAncestor());
         }
-        return current == null;
+        return multipleAncestor;
     }
 
+    /**
+     * Data reference names of this input and its ancestors joined from the root input
+     */
     private String lazyDataRef() {
-        List<String> dataNames = new ArrayList<>();
-        NodeContractInput current = (NodeContractInput) input;
-        while (current != null) {
-            dataNames.add(current.getDataReference().getName());
-            current = (NodeContractInput) current.getParent();
+        if (lazyDataRefName == null) {
+            var name = ((NodeContractInput) input).getDataReference().getName();
+            var parentHandler = getParent();
+            lazyDataRefName = parentHandler == null ? name : parentHandler.lazyDataRef() + "_" + name;
         }
-
-        var reversed = new LinkedList<>(dataNames);
-        Collections.reverse(reversed);
-        return join("_", reversed);
+        return lazyDataRefName;
     }
 
     private String nameFromDataRef() {
         return hasLazyDataRef() ? lazyDataRef() : getRefName();
     }
 
+    /**
+     * Path of the input value from the closest lazy loaded or multiple ancestor, or from the root input
+     */
     private String buildPathForInputValue() {
-        List<String> pathNames = new ArrayList<>();
-        pathNames.add(inputName());
-        var parentHasDataRef = hasDataReference();
-        var parentHasLazyDataRef = false;
-        if (parentHasDataRef) {
-            parentHasLazyDataRef = hasLazyDataRef();
-        }
-        var pInput = getParent();
-        while (!parentHasLazyDataRef && pInput != null) {
-            parentHasDataRef = pInput.hasDataReference();
-            if (pInput.isMultiple()) {
-                pathNames.add(ParametrizedWidgetFactory.ITEM_ITERATOR);
-                break;
+        if (inputValuePath == null) {
+            var parentHandler = getParent();
+            if (hasLazyDataRef()) {
+                inputValuePath = inputName();
+            } else if (parentHandler == null) {
+                inputValuePath = hasDataReference() ? inputName() : FormInputData.INPUT_NAME + "." + inputName();
+            } else {
+                var parentPath = parentHandler.isMultiple() ? ParametrizedWidgetFactory.ITEM_ITERATOR
+                        : parentHandler.buildPathForInputValue();
+                inputValuePath = parentPath + "." + inputName();
             }
-            parentHasLazyDataRef = pInput.hasLazyDataRef();
-            pathNames.add(pInput.inputName());
-            pInput = pInput.getParent();
-        }
-        if (pathNames.isEmpty()) {
-            return null;
-        } else if (pInput == null && !parentHasDataRef) {
-            pathNames.add(FormInputData.INPUT_NAME);
         }
-
-        var reversed = new LinkedList<>(pathNames);
-        Collections.reverse(reversed);
-        return join(".", reversed);
+        return inputValuePath;
     }
 
     public ContractInputDataHandler getParent() {
-        return input.getParent() != null ? new ContractInputDataHandler(input.getParent()) : null;
+        if (!parentResolved) {
+            parent = input.getParent() != null ? newHandler(input.getParent(), null) : null;
+            parentResolved = true;
+        }
+        return parent;
     }
 
     public boolean isMultiple() {
@@ -173,27 +193,16 @@ public class ContractInputDataHandler {
     }
 
     public String getDataPath() {
-        List<String> pathNames = new ArrayList<>();
-        pathNames.add(getRefName() == null ? getInputName() : getRefName());
-        var parent = getParent();
-        while (parent != null) {
-            if (parent.isMultiple()) {
-                pathNames.add(ITERATOR_NAME);
-                break;
+        if (dataPath == null) {
+            var name = getRefName() == null ? getInputName() : getRefName();
+            var parentHandler = getParent();
+            if (parentHandler == null) {
+                dataPath = "$data." + name;
+            } else {
+                dataPath = (parentHandler.isMultiple() ? ITERATOR_NAME : parentHandler.getDataPath()) + "." + name;
             }
-            pathNames.add(parent.getRefName() == null ? parent.getInputName() : parent.getRefName());
-            parent = parent.getParent();
-        }
-        if (pathNames.isEmpty()) {
-            return null;
         }
-        if (parent == null) {
-            pathNames.add("$data");
-        }
-
-        var reversed = new LinkedList<>(pathNames);
-        Collections.reverse(reversed);
-        return join(".", reversed);
+        return dataPath;
     }
 
     public EditMode getMode() {
@@ -208,10 +217,33 @@ public class ContractInputDataHandler {
         return Objects.equals(File.class.getName(), input.getType());
     }
 
+    /**
+     * Handlers of the child inputs, sharing this handler as parent
+     */
+    public List<ContractInputDataHandler> getChildren() {
+        if (children == null) {
+            children = input.getInput().stream()
+                    .map(child -> newHandler(child, this))
+                    .collect(toUnmodifiableList());
+        }
+        return children;
+    }
+
     public List<ContractInputDataHandler> getNonReadOnlyChildren() {
-        return input.getInput().stream()
-                .filter(i -> !i.isReadOnly())
-                .map(ContractInputDataHandler::new)
+        return getChildren().stream()
+                .filter(child -> !child.isReadOnly())
                 .collect(toList());
     }
+
+    public boolean isReadOnly() {
+        return input.isReadOnly();
+    }
+
+    ContractInput getContractInput() {
+        return input;
+    }
+
+    public boolean isNode() {
+        return input instanceof NodeContractInput;
+    }
 }
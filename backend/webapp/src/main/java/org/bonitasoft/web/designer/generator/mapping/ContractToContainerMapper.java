@@ -14,8 +14,15 @@
  */
 package org.bonitasoft.web.designer.generator.mapping;
 
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+
+import org.bonitasoft.web.designer.config.FormGenerationProperties;
 import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.contract.ContractInput;
 import org.bonitasoft.web.designer.model.page.Container;
+import org.bonitasoft.web.designer.model.page.Element;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -24,14 +31,57 @@ public class ContractToContainerMapper {
 
     private final ContractInputToWidgetMapper contractToWidgetMapper;
 
-    @Autowired
+    private final int parallelThreshold;
+
     public ContractToContainerMapper(ContractInputToWidgetMapper contractToWidgetMapper) {
         this.contractToWidgetMapper = contractToWidgetMapper;
+        this.parallelThreshold = 0;
+    }
+
+    @Autowired
+    public ContractToContainerMapper(ContractInputToWidgetMapper contractToWidgetMapper,
+                                     FormGenerationProperties formGenerationProperties) {
+        this.contractToWidgetMapper = contractToWidgetMapper;
+        this.parallelThreshold = formGenerationProperties.getParallelThreshold();
     }
 
     public Container create(Contract contract) {
         var container = new Container();
-        contract.accept(new ContractInputVisitorImpl(container, contractToWidgetMapper));
+        if (shouldBuildConcurrently(contract)) {
+            // Top level inputs only append rows to their parent container, so each one can be built on its own
+            // and its rows added afterwards, in contract order
+            contract.getInput().parallelStream()
+                    .map(this::createRows)
+                    .collect(toList())
+                    .forEach(container.getRows()::addAll);
+        } else {
+            contract.accept(new ContractInputVisitorImpl(container, contractToWidgetMapper));
+        }
         return container;
     }
+
+    private List<List<Element>> createRows(ContractInput input) {
+        var container = new Container();
+        input.accept(new ContractInputVisitorImpl(container, contractToWidgetMapper));
+        return container.getRows();
+    }
+
+    private boolean shouldBuildConcurrently(Contract contract) {
+        return parallelThreshold > 0
+                && contract.getInput().size() > 1
+                && countInputs(contract.getInput(), 0) > parallelThreshold;
+    }
+
+    /**
+     * Stops counting as soon as the threshold is reached
+     */
+    private int countInputs(List<ContractInput> inputs, int count) {
+        for (var input : inputs) {
+            if (++count > parallelThreshold) {
+                return count;
+            }
+            count = countInputs(input.getInput(), count);
+        }
+        return count;
+    }
 }
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.mapping;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Dimension map reading from dimensions shared by every generated element of the same size. Shared dimensions are
+ * copied the first time this map is modified so that other elements are left untouched.
+ */
+final class CopyOnWriteDimensions extends AbstractMap<String, Integer> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Map<String, Integer> dimensions;
+    private boolean shared = true;
+
+    CopyOnWriteDimensions(Map<String, Integer> sharedDimensions) {
+        this.dimensions = sharedDimensions;
+    }
+
+    private Map<String, Integer> writable() {
+        if (shared) {
+            dimensions = new HashMap<>(dimensions);
+            shared = false;
+        }
+        return dimensions;
+    }
+
+    /**
+     * Read only as long as dimensions are shared, use map methods to update dimensions
+     */
+    @Override
+    public Set<Entry<String, Integer>> entrySet() {
+        return dimensions.entrySet();
+    }
+
+    @Override
+    public int size() {
+        return dimensions.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return dimensions.containsKey(key);
+    }
+
+    @Override
+    public Integer get(Object key) {
+        return dimensions.get(key);
+    }
+
+    @Override
+    public Integer put(String key, Integer value) {
+        return writable().put(key, value);
+    }
+
+    @Override
+    public Integer remove(Object key) {
+        return writable().remove(key);
+    }
+
+    @Override
+    public void putAll(Map<? extends String, ? extends Integer> m) {
+        writable().putAll(m);
+    }
+
+    @Override
+    public void clear() {
+        writable().clear();
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super String, ? super Integer, ? extends Integer> function) {
+        writable().replaceAll(function);
+    }
+}
@@ -14,15 +14,35 @@
  */
 package org.bonitasoft.web.designer.generator.mapping;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.springframework.stereotype.Component;
 
 @Component
 public class DimensionFactory {
 
+    /**
+     * Bootstrap grid sizes, dimensions out of this range are not shared
+     */
+    private static final int MAX_SHARED_DIMENSION = 12;
+
+    private static final List<Map<String, Integer>> SHARED_DIMENSIONS = IntStream.rangeClosed(0, MAX_SHARED_DIMENSION)
+            .mapToObj(dimension -> Collections.unmodifiableMap(dimensions(dimension)))
+            .collect(Collectors.toUnmodifiableList());
+
     public Map<String, Integer> create(int dimension) {
+        if (dimension < 0 || dimension > MAX_SHARED_DIMENSION) {
+            return dimensions(dimension);
+        }
+        return new CopyOnWriteDimensions(SHARED_DIMENSIONS.get(dimension));
+    }
+
+    private static Map<String, Integer> dimensions(int dimension) {
         Map<String, Integer> dimensions = new HashMap<>();
         dimensions.put("xs", dimension);
         dimensions.put("sm", dimension);
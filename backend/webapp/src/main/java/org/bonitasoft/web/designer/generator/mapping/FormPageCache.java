@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.mapping;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.bonitasoft.web.designer.config.FormGenerationProperties;
+import org.bonitasoft.web.designer.config.UiDesignerProperties;
+import org.bonitasoft.web.designer.model.JsonHandler;
+import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.page.Page;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Forms generated from a contract, reused when the same contract is generated again.
+ * <p>
+ * Entries are keyed by a hash of the generator version, the form scope and the json of the contract. They hold the
+ * json of the generated page, so every hit gets its own copy of the page, renamed after the requested form and with
+ * a uuid and element references of its own.
+ * Hits, misses and evictions are published as <code>cache.*</code> metrics with the <code>cache=formGeneration</code> tag.
+ */
+@Component
+public class FormPageCache implements MeterBinder {
+
+    private static final String CACHE_NAME = "formGeneration";
+
+    private static final String NAME = "name";
+
+    private static final String DISPLAY_NAME = "displayName";
+
+    private static final String UUID_FIELD = "uuid";
+
+    private static final String ROWS = "rows";
+
+    private static final String REFERENCE = "reference";
+
+    private static final String PROPERTY_VALUES = "propertyValues";
+
+    /**
+     * Only reads and writes json trees, which does not depend on the mapper configuration
+     */
+    private static final ObjectMapper TREE_MAPPER = new ObjectMapper();
+
+    private final ContractToPageMapper contractToPageMapper;
+
+    private final JsonHandler jsonHandler;
+
+    private final String generatorVersion;
+
+    private final int maxEntries;
+
+    private final Map<String, byte[]> templates;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public FormPageCache(ContractToPageMapper contractToPageMapper, JsonHandler jsonHandler,
+                         UiDesignerProperties uiDesignerProperties, FormGenerationProperties formGenerationProperties) {
+        this.contractToPageMapper = contractToPageMapper;
+        this.jsonHandler = jsonHandler;
+        this.generatorVersion = uiDesignerProperties.getVersion() + "/" + uiDesignerProperties.getModelVersion();
+        this.maxEntries = formGenerationProperties.getCache().getMaxEntries();
+        this.templates = new LinkedHashMap<>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+                var overflow = size() > maxEntries;
+                if (overflow) {
+                    evictions.increment();
+                }
+                return overflow;
+            }
+        };
+    }
+
+    /**
+     * Same as {@link ContractToPageMapper#createFormPage(String, Contract, FormScope)}, the page is generated only if
+     * the contract has not been seen yet for this scope.
+     */
+    public Page createFormPage(String name, Contract contract, FormScope scope) {
+        if (maxEntries <= 0) {
+            return contractToPageMapper.createFormPage(name, contract, scope);
+        }
+        try {
+            var key = keyFor(contract, scope);
+            var template = get(key);
+            if (template != null) {
+                return jsonHandler.fromJson(copyOf(template, name), Page.class);
+            }
+            var page = contractToPageMapper.createFormPage(name, contract, scope);
+            put(key, jsonHandler.toJson(page));
+            return page;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to copy generated form " + name, e);
+        }
+    }
+
+    /**
+     * Json of a new form made from a cached one. What a generated form gets from its name or from random values is
+     * set again, so that two copies never share the uuid of the page nor the references of its elements.
+     */
+    private byte[] copyOf(byte[] template, String name) throws IOException {
+        var form = (ObjectNode) TREE_MAPPER.readTree(template);
+        var previousName = form.path(NAME).asText(null);
+        form.put(NAME, name);
+        if (previousName != null && previousName.equals(form.path(DISPLAY_NAME).asText(null))) {
+            form.put(DISPLAY_NAME, name);
+        }
+        if (form.hasNonNull(UUID_FIELD)) {
+            form.put(UUID_FIELD, UUID.randomUUID().toString());
+        }
+        renewReferences(form.path(ROWS));
+        return TREE_MAPPER.writeValueAsBytes(form);
+    }
+
+    private void renewReferences(JsonNode node) {
+        if (node.isArray()) {
+            node.forEach(this::renewReferences);
+        } else if (node.isObject()) {
+            var element = (ObjectNode) node;
+            if (element.path(REFERENCE).isTextual()) {
+                element.put(REFERENCE, UUID.randomUUID().toString());
+            }
+            element.fields().forEachRemaining(field -> {
+                // Property values are widget settings, not elements
+                if (!PROPERTY_VALUES.equals(field.getKey())) {
+                    renewReferences(field.getValue());
+                }
+            });
+        }
+    }
+
+    /**
+     * Canonical hash of what a generated form depends on. Contract inputs are always serialized in the same order, so
+     * the same contract gets the same key.
+     */
+    String keyFor(Contract contract, FormScope scope) throws IOException {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256");
+            digest.update(generatorVersion.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(scope.name().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(jsonHandler.toJson(contract));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private synchronized byte[] get(String key) {
+        var template = templates.get(key);
+        if (template == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return template;
+    }
+
+    private synchronized void put(String key, byte[] template) {
+        templates.put(key, template);
+    }
+
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum)
+                .tags("cache", CACHE_NAME, "result", "hit")
+                .description("The number of times a form was copied from a previous generation")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum)
+                .tags("cache", CACHE_NAME, "result", "miss")
+                .description("The number of times a form had to be generated")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum)
+                .tags("cache", CACHE_NAME)
+                .description("The number of generated forms removed from the cache")
+                .register(registry);
+        Gauge.builder("cache.size", this, FormPageCache::size)
+                .tags("cache", CACHE_NAME)
+                .description("The number of generated forms in the cache")
+                .register(registry);
+    }
+}
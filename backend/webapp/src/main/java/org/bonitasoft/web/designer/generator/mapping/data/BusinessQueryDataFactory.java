@@ -18,6 +18,7 @@ import static org.springframework.util.StringUtils.hasText;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference.RelationType;
@@ -36,20 +37,26 @@ public class BusinessQueryDataFactory {
         return pageData;
     }
 
-    private void searchAggregatedDataReferences(List<ContractInput> input, Set<PageData> pageData) {
-        input.stream()
-                .filter(NodeContractInput.class::isInstance)
-                .map(NodeContractInput.class::cast)
-                .filter(child -> !child.isReadOnly())
-                .filter(child -> child.getDataReference() != null)
-                .filter(child -> hasText(child.getDataReference().getName()))
-                .filter(child -> child.getDataReference().getRelationType() == RelationType.AGGREGATION)
-                .map(child -> new BusinessQueryData(child.getDataReference()))
-                .forEach(pageData::add);
+    /**
+     * Query data of an input referencing aggregated business data
+     */
+    public Optional<PageData> create(NodeContractInput input) {
+        if (!input.isReadOnly()
+                && input.getDataReference() != null
+                && hasText(input.getDataReference().getName())
+                && input.getDataReference().getRelationType() == RelationType.AGGREGATION) {
+            return Optional.of(new BusinessQueryData(input.getDataReference()));
+        }
+        return Optional.empty();
+    }
 
+    private void searchAggregatedDataReferences(List<ContractInput> input, Set<PageData> pageData) {
         input.stream()
                 .filter(NodeContractInput.class::isInstance)
                 .map(NodeContractInput.class::cast)
-                .forEach(child -> searchAggregatedDataReferences(child.getInput(), pageData));
+                .forEach(child -> {
+                    create(child).ifPresent(pageData::add);
+                    searchAggregatedDataReferences(child.getInput(), pageData);
+                });
     }
 }
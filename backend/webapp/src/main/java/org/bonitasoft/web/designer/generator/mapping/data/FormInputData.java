@@ -27,12 +27,18 @@ public class FormInputData implements PageData {
 
     public static final String INPUT_NAME = "formInput";
 
-    private final JsonHandler jsonHandler;
-    private final Contract contract;
+    private final FormInputVisitor formInputVisitor;
 
     public FormInputData(JsonHandler jsonHandler, Contract contract) {
-        this.jsonHandler = jsonHandler;
-        this.contract = contract;
+        this.formInputVisitor = new FormInputVisitor(jsonHandler);
+        contract.accept(formInputVisitor);
+    }
+
+    /**
+     * @param formInputVisitor a visitor that already visited the contract
+     */
+    public FormInputData(FormInputVisitor formInputVisitor) {
+        this.formInputVisitor = formInputVisitor;
     }
 
     @Override
@@ -42,8 +48,6 @@ public class FormInputData implements PageData {
 
     @Override
     public Data create() {
-        var formInputVisitor = new FormInputVisitor(jsonHandler);
-        contract.accept(formInputVisitor);
         try {
             return new Data(DataType.JSON, formInputVisitor.toJson());
         } catch (IOException e) {
@@ -57,20 +57,33 @@ public class FormInputVisitor implements ContractInputVisitor {
 
     @Override
     public void visit(NodeContractInput contractInput) {
-        if (contractInput.getMode() == EditMode.CREATE
-                || contractInput.getDataReference() == null) {
-            if (contractInput.isMultiple()) {
-                properties.put(contractInput.getName(), EMPTY_LIST);
-                return;
-            }
-            var visitor = new FormInputVisitor(jsonHandler);
+        var visitor = visitNode(contractInput);
+        if (visitor != null) {
             for (ContractInput input : contractInput.getInput()) {
                 input.accept(visitor);
             }
-            properties.put(contractInput.getName(), visitor.properties);
         }
     }
 
+    /**
+     * Adds the property of a node input without visiting its children
+     *
+     * @return the visitor collecting the properties of the node children, null if they are not part of the form input
+     */
+    public FormInputVisitor visitNode(NodeContractInput contractInput) {
+        if (contractInput.getMode() != EditMode.CREATE
+                && contractInput.getDataReference() != null) {
+            return null;
+        }
+        if (contractInput.isMultiple()) {
+            properties.put(contractInput.getName(), EMPTY_LIST);
+            return null;
+        }
+        var visitor = new FormInputVisitor(jsonHandler);
+        properties.put(contractInput.getName(), visitor.properties);
+        return visitor;
+    }
+
     @Override
     public void visit(LeafContractInput contractInput) {
         if (contractInput.getMode() == EditMode.EDIT && contractInput.getDataReference() != null) {
@@ -24,10 +24,18 @@ public class FormOutputData implements PageData {
 
     public static final String INPUT_NAME = "formOutput";
 
-    private final Contract contract;
+    private final FormOutputVisitor formOutputVisitor;
 
     public FormOutputData(Contract contract) {
-        this.contract = contract;
+        this.formOutputVisitor = new FormOutputVisitor();
+        contract.accept(formOutputVisitor);
+    }
+
+    /**
+     * @param formOutputVisitor a visitor that already visited the contract
+     */
+    public FormOutputData(FormOutputVisitor formOutputVisitor) {
+        this.formOutputVisitor = formOutputVisitor;
     }
 
     @Override
@@ -37,8 +45,6 @@ public class FormOutputData implements PageData {
 
     @Override
     public Data create() {
-        var formOutputVisitor = new FormOutputVisitor();
-        contract.accept(formOutputVisitor);
         return new Data(EXPRESSION, formOutputVisitor.toJavascriptExpression());
     }
 }
@@ -33,27 +33,41 @@ public class FormOutputVisitor implements ContractInputVisitor {
     @Override
     public void visit(NodeContractInput contractInput) {
         var handler = new ContractInputDataHandler(contractInput);
-        properties.add(new OutputProperty((handler)));
-        if (handler.hasDataReference()) {
-            contractInput.getInput().stream()
-                    .filter(NodeContractInput.class::isInstance)
-                    .map(NodeContractInput.class::cast)
-                    .filter(input -> input.getDataReference() != null)
+        if (visitRoot(handler)) {
+            handler.getChildren().stream()
+                    .filter(ContractInputDataHandler::isNode)
                     .forEach(this::visitLazyRef);
         }
     }
 
-    private void visitLazyRef(NodeContractInput contractInput) {
-        var handler = new ContractInputDataHandler(contractInput);
+    private void visitLazyRef(ContractInputDataHandler handler) {
+        if (visitDescendant(handler)) {
+            handler.getChildren().stream()
+                    .filter(ContractInputDataHandler::isNode)
+                    .forEach(this::visitLazyRef);
+        }
+    }
+
+    /**
+     * Adds the property of a root node input without visiting its children
+     *
+     * @return whether the lazy references of the node descendants are part of the output
+     */
+    public boolean visitRoot(ContractInputDataHandler handler) {
+        properties.add(new OutputProperty(handler));
+        return handler.hasDataReference();
+    }
+
+    /**
+     * Adds the property of a descendant node input, lazily referenced, without visiting its children
+     *
+     * @return whether the lazy references of the node descendants are part of the output
+     */
+    public boolean visitDescendant(ContractInputDataHandler handler) {
         if (handler.hasLazyDataRef()) {
             properties.add(new OutputProperty(handler));
         }
-        if (handler.hasDataReference()) {
-            contractInput.getInput().stream()
-                    .filter(NodeContractInput.class::isInstance)
-                    .map(NodeContractInput.class::cast)
-                    .forEach(this::visitLazyRef);
-        }
+        return handler.hasDataReference();
     }
 
     @Override
@@ -73,9 +73,10 @@ public class OutputProperty {
     private void mapDataToContract(ContractInputDataHandler handler, StringBuilder sb, int indentSize) {
         if (handler.isMultiple()) {
             sb.append(format("%s.map( %s => ({\n", handler.getDataPath(), ContractInputDataHandler.ITERATOR_NAME));
-            for (var i = 0; i < handler.getNonReadOnlyChildren().size(); i++) {
-                sb.append(indent(dataToContractInput(handler.getNonReadOnlyChildren().get(i)), indentSize));
-                if (i != handler.getNonReadOnlyChildren().size() - 1) {
+            var children = handler.getNonReadOnlyChildren();
+            for (var i = 0; i < children.size(); i++) {
+                sb.append(indent(dataToContractInput(children.get(i)), indentSize));
+                if (i != children.size() - 1) {
                     sb.append(",");
                 }
                 sb.append("\n");
@@ -88,9 +89,10 @@ public class OutputProperty {
 
     private void toSimpleObjectMapping(ContractInputDataHandler handler, StringBuilder sb, int indentSize) {
         sb.append("{\n");
-        for (var i = 0; i < handler.getNonReadOnlyChildren().size(); i++) {
-            sb.append(indent(dataToContractInput(handler.getNonReadOnlyChildren().get(i)), indentSize));
-            if (i != handler.getNonReadOnlyChildren().size() - 1) {
+        var children = handler.getNonReadOnlyChildren();
+        for (var i = 0; i < children.size(); i++) {
+            sb.append(indent(dataToContractInput(children.get(i)), indentSize));
+            if (i != children.size() - 1) {
                 sb.append(",");
             }
             sb.append("\n");
@@ -36,6 +36,17 @@ public class BusinessObjectDataHandler extends ContractInputDataHandler {
         this.input = input;
     }
 
+    private BusinessObjectDataHandler(ContractInput input, BusinessObjectDataHandler parent) {
+        super(input, parent);
+        this.input = input;
+    }
+
+    @Override
+    protected BusinessObjectDataHandler newHandler(ContractInput input, ContractInputDataHandler parent) {
+        return parent == null ? new BusinessObjectDataHandler(input)
+                : new BusinessObjectDataHandler(input, (BusinessObjectDataHandler) parent);
+    }
+
     public String getParentValue() {
         if (this.input.getParent() == null) {
             return null;
@@ -87,6 +98,6 @@ public class BusinessObjectDataHandler extends ContractInputDataHandler {
 
     @Override
     public BusinessObjectDataHandler getParent() {
-        return input.getParent() != null ? new BusinessObjectDataHandler(input.getParent()) : null;
+        return (BusinessObjectDataHandler) super.getParent();
     }
 }
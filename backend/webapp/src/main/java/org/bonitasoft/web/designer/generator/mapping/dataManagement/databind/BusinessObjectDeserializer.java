@@ -15,182 +15,249 @@
 package org.bonitasoft.web.designer.generator.mapping.dataManagement.databind;
 
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.JsonNodeFactory;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import org.bonitasoft.web.designer.generator.mapping.dataManagement.BusinessObject;
 import org.bonitasoft.web.designer.generator.mapping.dataManagement.NodeBusinessObjectInput;
+import org.bonitasoft.web.designer.model.contract.AbstractContractInput;
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference;
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference.LoadingType;
 import org.bonitasoft.web.designer.model.contract.BusinessDataReference.RelationType;
+import org.bonitasoft.web.designer.model.contract.ContractInput;
 import org.bonitasoft.web.designer.model.contract.DataReference;
 import org.bonitasoft.web.designer.model.contract.LeafContractInput;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Binds a business object straight from the parser tokens, without reading it as a json tree first.
+ * Page data names depend on the parent attributes, so they are computed once the whole object is read.
+ */
 public class BusinessObjectDeserializer extends JsonDeserializer<BusinessObject> {
 
     private static final String REFERENCE = "reference";
     private static final String VARIABLE_NAME = "variableName";
     private static final String NAME = "name";
+    private static final String ATTRIBUTES = "attributes";
     private static final String BUSINESS_OBJECT_NULLABLE = "nullable";
     private static final String BUSINESS_OBJECT_COLLECTION = "collection";
 
     @Override
     public BusinessObject deserialize(JsonParser parser, DeserializationContext ctxt)
             throws IOException {
-        var oc = parser.getCodec();
-        ObjectNode treeNode = oc.readTree(parser);
+        var name = "";
+        var variableName = "";
+        List<ContractInput> attributes = List.of();
+        var token = startObject(parser, BusinessObject.class);
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case NAME:
+                    name = textValue(parser, "");
+                    break;
+                case VARIABLE_NAME:
+                    variableName = textValue(parser, "");
+                    break;
+                case ATTRIBUTES:
+                    attributes = parseAttributes(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
 
         var businessObject = new BusinessObject();
         //Create first node
-        var node = new NodeBusinessObjectInput(getValueIfExist(treeNode, NAME));
+        var node = new NodeBusinessObjectInput(name);
         node.setMultiple(true);
-        node.setPageDataName(getValueIfExist(treeNode, VARIABLE_NAME));
-        parseNodeContractInput(childInput(treeNode), node);
+        node.setPageDataName(variableName);
+        attributes.forEach(node::addInput);
+        assignPageDataNames(node);
         businessObject.addInput(node);
         return businessObject;
     }
 
-    private String getValueIfExist(ObjectNode treeNode, String value) {
-        if (treeNode.has(value)) {
-            var jsonNode = treeNode.get(value);
-            return jsonNode.asText("");
+    private List<ContractInput> parseAttributes(JsonParser parser) throws IOException {
+        var attributes = new ArrayList<ContractInput>();
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return attributes;
         }
-        return "";
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw MismatchedInputException.from(parser, List.class, "Business object attributes should be an array");
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            attributes.add(parseAttribute(parser));
+        }
+        return attributes;
     }
 
-    private void parseNodeContractInput(ArrayNode inputArray, NodeBusinessObjectInput rootNodeInput) {
-        for (var i = 0; i < inputArray.size(); i++) {
-            var childNode = inputArray.get(i);
-            if (childNode.has(REFERENCE)) {
-                NodeBusinessObjectInput nodeContractInput = newNodeContractInput(childNode, rootNodeInput);
-                rootNodeInput.addInput(nodeContractInput);
-                parseNodeContractInput(childInput(childNode), nodeContractInput);
-            } else {
-                rootNodeInput.addInput(newLeafContractInput(childNode, inputType(childNode)));
+    private ContractInput parseAttribute(JsonParser parser) throws IOException {
+        var fields = new AttributeFields();
+        var token = startObject(parser, ContractInput.class);
+        for (; token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+            var field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case NAME:
+                    fields.name = textValue(parser, "");
+                    break;
+                case "type":
+                    fields.type = textValue(parser, null);
+                    break;
+                case REFERENCE:
+                    fields.hasReference = true;
+                    fields.reference = parser.currentToken() == JsonToken.VALUE_NULL ? null : textValue(parser, "");
+                    break;
+                case "fetchType":
+                    fields.fetchType = textValue(parser, null);
+                    break;
+                case "description":
+                    fields.description = textValue(parser, null);
+                    break;
+                case BUSINESS_OBJECT_NULLABLE:
+                    fields.mandatory = !booleanValue(parser, true);
+                    break;
+                case BUSINESS_OBJECT_COLLECTION:
+                    fields.multiple = booleanValue(parser, false);
+                    break;
+                case "readOnly":
+                    fields.readOnly = booleanValue(parser, true);
+                    break;
+                case ATTRIBUTES:
+                    fields.attributes = parseAttributes(parser);
+                    break;
+                default:
+                    parser.skipChildren();
             }
         }
+        return fields.hasReference ? fields.toNodeInput() : fields.toLeafInput();
     }
 
-    private Class<?> inputType(JsonNode childNode) {
-        var jsonNode = childNode.get("type");
-        switch (jsonNode.asText().toLowerCase()) {
-            case "string":
-            case "text":
-                return String.class;
-            case "localdatetime":
-            case "offsetdatetime":
-                return LocalDateTime.class;
-            case "date":
-            case "localdate":
-                return LocalDate.class;
-            case "integer":
-                return Integer.class;
-            case "long":
-                return Long.class;
-            case "double":
-                return Double.class;
-            case "float":
-                return Float.class;
-            case "boolean":
-                return Boolean.class;
-            default:
-                throw new UnsupportedOperationException("Attribute type isn't supported");
+    private void assignPageDataNames(NodeBusinessObjectInput parentNode) {
+        for (var input : parentNode.getInput()) {
+            if (input instanceof NodeBusinessObjectInput) {
+                var node = (NodeBusinessObjectInput) input;
+                node.setPageDataName(pageDataName(node, parentNode));
+                assignPageDataNames(node);
+            }
         }
     }
 
-    private NodeBusinessObjectInput newNodeContractInput(JsonNode childNode, NodeBusinessObjectInput parentNode) {
-        var nodeContractInput = new NodeBusinessObjectInput(inputReference(childNode));
-        nodeContractInput.setBusinessObjectAttributeName(inputName(childNode));
-        nodeContractInput.setMandatory(mandatoryValue(childNode));
-        nodeContractInput.setMultiple(multipleValue(childNode));
-        nodeContractInput.setDescription(descriptionValue(childNode));
-        nodeContractInput.setDataReference(dataReference(childNode));
-        nodeContractInput.setPageDataName(pageDataName(nodeContractInput, parentNode));
-        nodeContractInput.setParent(parentNode);
-        nodeContractInput.setReadonly(readOnlyValue(childNode));
-        return nodeContractInput;
+    private String pageDataName(NodeBusinessObjectInput nodeContractInput, NodeBusinessObjectInput parentNode) {
+        return parentNode.getDataReference() != null && parentNode.getDataReference().getLoadingType().equals(LoadingType.EAGER) ?
+                parentNode.getPageDataName() :
+                parentNode.getPageDataName().concat("_").concat(nodeContractInput.getBusinessObjectAttributeName());
     }
 
-    private String pageDataName(NodeBusinessObjectInput nodeContractInput, NodeBusinessObjectInput parentNode) {
-        if (parentNode != null) {
-            return parentNode.getDataReference() != null && parentNode.getDataReference().getLoadingType().equals(LoadingType.EAGER) ?
-                    parentNode.getPageDataName() :
-                    parentNode.getPageDataName().concat("_").concat(nodeContractInput.getBusinessObjectAttributeName());
+    /**
+     * @return the first token inside the object the parser is on
+     */
+    private JsonToken startObject(JsonParser parser, Class<?> targetType) throws IOException {
+        var token = parser.currentToken();
+        if (token == null) {
+            token = parser.nextToken();
+        }
+        if (token != JsonToken.START_OBJECT) {
+            throw MismatchedInputException.from(parser, targetType,
+                    String.format("Cannot read %s from %s", targetType.getSimpleName(), token));
         }
-        return nodeContractInput.getDataReference().getName();
+        return parser.nextToken();
     }
 
-    private LeafContractInput newLeafContractInput(JsonNode childNode, Class<?> inputType) {
-        var leafContractInput = new LeafContractInput(inputName(childNode), inputType);
-        leafContractInput.setMandatory(mandatoryValue(childNode));
-        leafContractInput.setMultiple(multipleValue(childNode));
-        leafContractInput.setDescription(descriptionValue(childNode));
-        leafContractInput.setDataReference(dataReference(childNode));
-        leafContractInput.setReadonly(readOnlyValue(childNode));
-        return leafContractInput;
+    private String textValue(JsonParser parser, String defaultValue) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return "";
+        }
+        return parser.getValueAsString(defaultValue);
     }
 
-    private ArrayNode childInput(JsonNode treeNode) {
-        return (ArrayNode) (treeNode.has("attributes") ? treeNode.get("attributes") : new ArrayNode(JsonNodeFactory.instance));
+    private boolean booleanValue(JsonParser parser, boolean defaultValue) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return defaultValue;
+        }
+        return parser.getValueAsBoolean(defaultValue);
     }
 
-    private String descriptionValue(JsonNode contractInput) {
-        var descriptionNode = contractInput.get("description");
-        return descriptionNode != null ? descriptionNode.asText(null) : null;
+    @Override
+    public Class<?> handledType() {
+        return BusinessObject.class;
     }
 
-    private boolean multipleValue(JsonNode contractInput) {
-        var jsonNode = contractInput.get(BUSINESS_OBJECT_COLLECTION);
-        return jsonNode != null && jsonNode.asBoolean(false);
-    }
+    private static class AttributeFields {
 
-    private boolean mandatoryValue(JsonNode contractInput) {
-        var jsonNode = contractInput.get(BUSINESS_OBJECT_NULLABLE);
-        return jsonNode != null && !jsonNode.asBoolean(true);
-    }
+        private String name = "";
+        private String type;
+        private boolean hasReference;
+        private String reference;
+        private String fetchType;
+        private String description;
+        private boolean mandatory;
+        private boolean multiple;
+        private boolean readOnly = true;
+        private List<ContractInput> attributes = List.of();
 
-    private String inputName(JsonNode contractInput) {
-        var jsonNode = contractInput.get(NAME);
-        return jsonNode != null ? jsonNode.asText("") : "";
-    }
+        private NodeBusinessObjectInput toNodeInput() {
+            var nodeContractInput = new NodeBusinessObjectInput(reference != null ? reference : "");
+            nodeContractInput.setBusinessObjectAttributeName(name);
+            attributes.forEach(nodeContractInput::addInput);
+            return fill(nodeContractInput);
+        }
 
-    private String inputReference(JsonNode jsonInput) {
-        var jsonNode = jsonInput.get(REFERENCE);
-        return jsonNode != null ? jsonNode.asText("") : "";
-    }
+        private LeafContractInput toLeafInput() {
+            return fill(new LeafContractInput(name, inputType()));
+        }
 
-    private DataReference dataReference(JsonNode contractInput) {
-        var jsonNode = contractInput.get(REFERENCE);
-        if (jsonNode != null && !jsonNode.isNull()) {
-            var isBusinessDataRef = contractInput.get("type") != null && !contractInput.get("type").isNull();
-            if (isBusinessDataRef) {
-                return new BusinessDataReference(contractInput.get(NAME).asText(),
-                        contractInput.get("type").asText(),
-                        RelationType.valueOf(contractInput.get("type").asText()),
-                        LoadingType.valueOf(contractInput.get("fetchType").asText()));
-            } else {
-                return new DataReference(contractInput.get(NAME).asText(),
-                        contractInput.get("type").asText());
-            }
+        private <T extends AbstractContractInput> T fill(T contractInput) {
+            contractInput.setMandatory(mandatory);
+            contractInput.setMultiple(multiple);
+            contractInput.setDescription(description);
+            contractInput.setDataReference(dataReference());
+            contractInput.setReadonly(readOnly);
+            return contractInput;
         }
-        return null;
-    }
 
-    private boolean readOnlyValue(JsonNode contractInput) {
-        var jsonNode = contractInput.get("readOnly");
-        return jsonNode == null || jsonNode.asBoolean(true);
-    }
+        private DataReference dataReference() {
+            if (reference == null) {
+                return null;
+            }
+            return type != null
+                    ? new BusinessDataReference(name, type, RelationType.valueOf(type), LoadingType.valueOf(fetchType))
+                    : new DataReference(name, type);
+        }
 
-    @Override
-    public Class<?> handledType() {
-        return BusinessObject.class;
+        private Class<?> inputType() {
+            switch (String.valueOf(type).toLowerCase()) {
+                case "string":
+                case "text":
+                    return String.class;
+                case "localdatetime":
+                case "offsetdatetime":
+                    return LocalDateTime.class;
+                case "date":
+                case "localdate":
+                    return LocalDate.class;
+                case "integer":
+                    return Integer.class;
+                case "long":
+                    return Long.class;
+                case "double":
+                    return Double.class;
+                case "float":
+                    return Float.class;
+                case "boolean":
+                    return Boolean.class;
+                default:
+                    throw new UnsupportedOperationException("Attribute type isn't supported");
+            }
+        }
     }
-
 }
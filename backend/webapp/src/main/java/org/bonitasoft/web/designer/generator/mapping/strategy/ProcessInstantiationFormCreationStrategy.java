@@ -18,12 +18,11 @@ import org.bonitasoft.web.designer.model.JsonHandler;
 import org.bonitasoft.web.designer.model.page.Form;
 import org.bonitasoft.web.designer.model.page.FormContainer;
 import org.bonitasoft.web.designer.model.page.Page;
+import org.bonitasoft.web.designer.generator.mapping.ContractAnalysis;
 import org.bonitasoft.web.designer.generator.mapping.ContractInputToWidgetMapper;
 import org.bonitasoft.web.designer.generator.mapping.ContractToContainerMapper;
 import org.bonitasoft.web.designer.generator.mapping.FormScope;
 import org.bonitasoft.web.designer.generator.mapping.data.BusinessQueryDataFactory;
-import org.bonitasoft.web.designer.generator.mapping.data.FormInputData;
-import org.bonitasoft.web.designer.generator.mapping.data.FormOutputData;
 import org.bonitasoft.web.designer.generator.mapping.data.SubmitErrorsListData;
 import org.bonitasoft.web.designer.generator.parametrizedWidget.ButtonAction;
 import org.bonitasoft.web.designer.model.contract.Contract;
@@ -46,13 +45,13 @@ public class ProcessInstantiationFormCreationStrategy implements PageCreationStr
 
     @Override
     public Page create(String name, Contract contract) {
+        var analysis = new ContractAnalysis(contract, jsonHandler, businessQueryDataFactory);
         var form = new Form(name)
-                .addData(new FormInputData(jsonHandler, contract))
-                .addData(new FormOutputData(contract))
+                .addData(analysis.getFormInputData())
+                .addData(analysis.getFormOutputData())
                 .addData(new SubmitErrorsListData())
                 .addNewRow(createFormContainer(contract));
-        businessQueryDataFactory.create(contract)
-                .forEach(form::addData);
+        analysis.getBusinessQueries().forEach(form::addData);
         return form;
     }
 
@@ -22,19 +22,11 @@ import org.bonitasoft.web.designer.generator.parametrizedWidget.Alignment;
 import org.bonitasoft.web.designer.generator.parametrizedWidget.ButtonAction;
 import org.bonitasoft.web.designer.generator.parametrizedWidget.TextWidget;
 import org.bonitasoft.web.designer.generator.parametrizedWidget.TitleWidget;
-import org.bonitasoft.web.designer.model.contract.BusinessDataReference;
 import org.bonitasoft.web.designer.model.contract.Contract;
-import org.bonitasoft.web.designer.model.contract.EditMode;
-import org.bonitasoft.web.designer.model.contract.NodeContractInput;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Stream;
 
 import static java.lang.String.format;
-import static org.springframework.util.StringUtils.hasText;
 
 public class TaskFormCreationStrategy implements PageCreationStrategy {
 
@@ -58,80 +50,26 @@ public class TaskFormCreationStrategy implements PageCreationStrategy {
 
     @Override
     public Page create(String name, Contract contract) {
+        var analysis = new ContractAnalysis(contract, jsonHandler, businessQueryDataFactory);
         var form = new Form(name)
                 .addData(new TaskIdData())
                 .addData(new TaskData())
                 .addData(new ContextData())
-                .addData(new FormOutputData(contract))
+                .addData(analysis.getFormOutputData())
                 .addData(new SubmitErrorsListData())
                 .addNewRow(createTaskInformation())
                 .addNewRow(createFormContainer(contract));
-        if (shouldAddFormInputData(contract)) {
-            form.addData(new FormInputData(jsonHandler, contract));
+        if (analysis.hasFormInput()) {
+            form.addData(analysis.getFormInputData());
         }
 
-        findBusinessData(contract)
-                .map(BusinessData::new)
-                .forEach(form::addData);
-
-        List<BusinessDataLazyRef> lazyRefData = new ArrayList<>();
-        contract.getInput().stream()
-                .filter(NodeContractInput.class::isInstance)
-                .map(NodeContractInput.class::cast)
-                .filter(input -> input.getMode() == EditMode.EDIT)
-                .filter(input -> input.getDataReference() != null)
-                .filter(input -> hasText(input.getDataReference().getName()))
-                .flatMap(input -> input.getInput().stream())
-                .filter(NodeContractInput.class::isInstance)
-                .map(NodeContractInput.class::cast)
-                .forEach(input -> findBusinessDataLazyReferences(
-                        ((NodeContractInput) input.getParent()).getDataReference().getName(), input, lazyRefData));
-
-        lazyRefData.forEach(form::addData);
-
-        businessQueryDataFactory.create(contract)
-                .forEach(form::addData);
+        analysis.getBusinessData().forEach(form::addData);
+        analysis.getBusinessDataLazyRefs().forEach(form::addData);
+        analysis.getBusinessQueries().forEach(form::addData);
 
         return form;
     }
 
-    private boolean shouldAddFormInputData(Contract contract) {
-        var visitor = new FormInputVisitor(jsonHandler);
-        contract.accept(visitor);
-        return !visitor.isEmpty();
-    }
-
-    private Stream<String> findBusinessData(Contract contract) {
-        return contract.getInput().stream() //Only search for business data at the root level inputs
-                .filter(NodeContractInput.class::isInstance)
-                .map(NodeContractInput.class::cast)
-                .filter(in -> in.getMode() == EditMode.EDIT)
-                .map(NodeContractInput::getDataReference)
-                .filter(Objects::nonNull)
-                .map(BusinessDataReference::getName)
-                .filter(data -> hasText(data))
-                .distinct();
-    }
-
-    private void findBusinessDataLazyReferences(String path, NodeContractInput input,
-                                                List<BusinessDataLazyRef> lazyRefData) {
-        var handler = new ContractInputDataHandler(input);
-        if (handler.hasLazyDataRef()
-                && handler.getParent() != null
-                && !handler.getParent().isMultiple()) { //Cannot retrieve lazy references if parent is multiple
-            lazyRefData.add(new BusinessDataLazyRef(path.replace(".", "_"), path, input.getDataReference().getName()));
-        }
-
-        input.getInput().stream()
-                .filter(NodeContractInput.class::isInstance)
-                .map(NodeContractInput.class::cast)
-                .forEach(child -> {
-                    String newPath = handler.inputValue();
-                    findBusinessDataLazyReferences(newPath, child,
-                            lazyRefData);
-                });
-    }
-
     private Container createTaskInformation() {
         var container = new Container();
 
@@ -21,10 +21,12 @@ import org.bonitasoft.web.designer.model.ParameterType;
 
 import java.beans.IntrospectionException;
 import java.beans.Introspector;
-import java.lang.reflect.InvocationTargetException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
 
 @Widget
 public abstract class AbstractParametrizedWidget implements ParametrizedWidget {
@@ -50,6 +52,16 @@ public abstract class AbstractParametrizedWidget implements ParametrizedWidget {
         propertyParameters.put(ALLOW_HTML, ParameterType.CONSTANT);
     }
 
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, AbstractParametrizedWidget.class);
+
+    private static final ClassValue<List<PropertyAccessor>> PROPERTY_ACCESSORS = new ClassValue<>() {
+
+        @Override
+        protected List<PropertyAccessor> computeValue(Class<?> widgetClass) {
+            return introspect(widgetClass);
+        }
+    };
+
     private final Map<String, PropertyValue> propertyValues = new HashMap<>();
     private String widgetId;
     @WidgetProperty
@@ -108,9 +120,16 @@ public abstract class AbstractParametrizedWidget implements ParametrizedWidget {
     }
 
     protected Map<String, PropertyValue> toPropertyValues() {
-        var values = toMap().entrySet()
-                .stream()
-                .collect(Collectors.toMap(this::getEntryKey, this::createPropertyValue));
+        var accessors = PROPERTY_ACCESSORS.get(getClass());
+        Map<String, PropertyValue> values = new HashMap<>();
+        try {
+            for (var accessor : accessors) {
+                var entry = new SimpleImmutableEntry<>(accessor.name, accessor.read(this));
+                values.put(getEntryKey(entry), createPropertyValue(entry));
+            }
+        } catch (PropertyAccessException e) {
+            values.clear();
+        }
         values.putAll(propertyValues);
         return values;
     }
@@ -119,35 +138,66 @@ public abstract class AbstractParametrizedWidget implements ParametrizedWidget {
         return entry.getKey();
     }
 
-    private Map<String, Object> toMap() {
+    /**
+     * Widget properties readable through a getter, looked up once per widget class
+     */
+    private static List<PropertyAccessor> introspect(Class<?> widgetClass) {
         try {
-            Map<String, Object> params = new HashMap<>();
-            var availableProperties = new ArrayList<>(classesIntrospection(this.getClass()));
-
-            var info = Introspector.getBeanInfo(this.getClass());
-            for (var pd : info.getPropertyDescriptors()) {
+            var availableProperties = classesIntrospection(widgetClass);
+            List<PropertyAccessor> accessors = new ArrayList<>();
+            var lookup = MethodHandles.lookup();
+            for (var pd : Introspector.getBeanInfo(widgetClass).getPropertyDescriptors()) {
                 var reader = pd.getReadMethod();
                 if (reader != null && availableProperties.contains(pd.getName())) {
-                    params.put(pd.getName(), reader.invoke(this));
+                    var getter = lookup.unreflect(reader).asType(GETTER_TYPE);
+                    accessors.add(new PropertyAccessor(pd.getName(), getter));
                 }
             }
-            return params;
-        } catch (IntrospectionException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            return Collections.emptyMap();
+            return List.copyOf(accessors);
+        } catch (IntrospectionException | IllegalAccessException e) {
+            return Collections.emptyList();
         }
     }
 
-    private List<String> classesIntrospection(Class<?> aClass) {
-        List<String> list = new ArrayList<>();
+    private static Set<String> classesIntrospection(Class<?> aClass) {
+        Set<String> properties = new HashSet<>();
         for (var field : aClass.getDeclaredFields()) {
             if (field.isAnnotationPresent(WidgetProperty.class)) {
-                list.add(field.getName());
+                properties.add(field.getName());
             }
         }
         if (aClass.getSuperclass().isAnnotationPresent(Widget.class)) {
-            list.addAll(classesIntrospection(aClass.getSuperclass()));
+            properties.addAll(classesIntrospection(aClass.getSuperclass()));
+        }
+        return properties;
+    }
+
+    private static final class PropertyAccessor {
+
+        private final String name;
+        private final MethodHandle getter;
+
+        private PropertyAccessor(String name, MethodHandle getter) {
+            this.name = name;
+            this.getter = getter;
+        }
+
+        private Object read(AbstractParametrizedWidget widget) {
+            try {
+                return getter.invokeExact(widget);
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new PropertyAccessException(e);
+            }
+        }
+    }
+
+    private static final class PropertyAccessException extends RuntimeException {
+
+        private PropertyAccessException(Throwable cause) {
+            super(cause);
         }
-        return list;
     }
 
     private ParameterType getParameterType(String paramName) {
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.migration;
+
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.bonitasoft.web.designer.model.DesignerArtifact;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationReport;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationResult;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationStatus;
+import org.bonitasoft.web.designer.service.ArtifactService;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migrates one artifact and reports the outcome, for the migration REST resource as well as for the workspace
+ * migration.
+ * <p>
+ * {@link ArtifactService#migrateWithReport} saves the migrated artifact, and the artifacts it embeds, through
+ * repositories which are not documented as safe for concurrent writes. Migrations are therefore applied one at a time,
+ * while the status checks deciding whether an artifact needs one, which only read, may run in parallel.
+ */
+@Slf4j
+@Component
+public class ArtifactMigrationService {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public MigrationReport migrate(DesignerArtifact artifact, ArtifactService service) {
+        lock.readLock().lock();
+        try {
+            artifact.setStatus(service.getStatus(artifact));
+        } finally {
+            lock.readLock().unlock();
+        }
+        MigrationReport report;
+        if (artifact.getArtifactVersion() != null && artifact.getStatus() != null) {
+            if (!artifact.getStatus().isCompatible()) {
+                report = new MigrationReport(MigrationStatus.INCOMPATIBLE, artifact.getId());
+                report.setComments("Artifact is incompatible with actual version");
+                return report;
+            } else if (!artifact.getStatus().isMigration()) {
+                report = new MigrationReport(MigrationStatus.NONE, artifact.getId());
+                report.setComments("No migration is needed");
+                return report;
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            MigrationResult<DesignerArtifact> migrationResult = service.migrateWithReport(artifact);
+            DesignerArtifact newArtifact = migrationResult.getArtifact();
+            report = new MigrationReport(migrationResult.getFinalStatus(), newArtifact.getId());
+            report.setType(newArtifact.getType());
+            report.setPreviousArtifactVersion(newArtifact.getPreviousArtifactVersion());
+            report.setMigrationStepReport(migrationResult.getMigrationStepReportListFilterByFinalStatus());
+            report.setNewArtifactVersion(migrationResult.getFinalStatus() == MigrationStatus.ERROR
+                    ? newArtifact.getPreviousArtifactVersion()
+                    : newArtifact.getArtifactVersion());
+            return report;
+        } catch (RuntimeException e) {
+            log.error("Migration of {} failed", artifact.getId(), e);
+            return new MigrationReport(MigrationStatus.ERROR, artifact.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
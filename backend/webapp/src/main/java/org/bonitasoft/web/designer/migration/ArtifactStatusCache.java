@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.migration;
+
+import static org.bonitasoft.web.designer.config.WebSocketConfig.MIGRATION_PROGRESS;
+import static org.bonitasoft.web.designer.config.WebSocketConfig.PREVIEWABLE_REMOVAL;
+import static org.bonitasoft.web.designer.config.WebSocketConfig.PREVIEWABLE_UPDATE;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.bonitasoft.web.designer.config.WorkspaceProperties;
+import org.bonitasoft.web.designer.model.ArtifactStatusReport;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Migration status of the artifacts, computed once per artifact.
+ * <p>
+ * An entry is used as long as the json file of the artifact is unchanged. As the status of a page or a fragment also
+ * depends on the artifacts it embeds, the whole cache is dropped each time an artifact is saved, removed or migrated.
+ */
+@Slf4j
+@Component
+public class ArtifactStatusCache implements ChannelInterceptor {
+
+    public static final String PAGE = "page";
+    public static final String WIDGET = "widget";
+    public static final String FRAGMENT = "fragment";
+
+    private final WorkspaceProperties workspaceProperties;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    public ArtifactStatusCache(WorkspaceProperties workspaceProperties) {
+        this.workspaceProperties = workspaceProperties;
+    }
+
+    /**
+     * Returns the cached status of an artifact or computes it with the given loader
+     */
+    public ArtifactStatusReport get(String type, String id, Supplier<ArtifactStatusReport> loader) {
+        var currentGeneration = generation.get();
+        var stamp = stamp(type, id);
+        var key = type + "/" + id;
+        var entry = entries.get(key);
+        if (stamp != null && entry != null && entry.generation == currentGeneration && stamp.equals(entry.stamp)) {
+            return entry.status;
+        }
+        var status = loader.get();
+        if (stamp != null && generation.get() == currentGeneration) {
+            entries.put(key, new Entry(status, stamp, currentGeneration));
+        }
+        return status;
+    }
+
+    /**
+     * Ids of the artifacts of the given type found in the workspace, without loading them
+     */
+    public List<String> ids(String type) throws IOException {
+        var directory = directory(type);
+        if (directory == null || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (var children = Files.list(directory)) {
+            return children
+                    .filter(child -> Files.exists(child.resolve(child.getFileName() + ".json")))
+                    .map(child -> child.getFileName().toString())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    public boolean supports(String type) {
+        return PAGE.equals(type) || WIDGET.equals(type) || FRAGMENT.equals(type);
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Listen to the notifications sent to the broker on artifact updates and migrations
+     */
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        var destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (PREVIEWABLE_UPDATE.equals(destination) || PREVIEWABLE_REMOVAL.equals(destination) || MIGRATION_PROGRESS.equals(destination)) {
+            log.debug("Artifact status cache invalidated by a message sent to {}", destination);
+            invalidateAll();
+        }
+        return message;
+    }
+
+    private Stamp stamp(String type, String id) {
+        var directory = directory(type);
+        if (directory == null || id == null) {
+            return null;
+        }
+        var file = directory.resolve(id).resolve(id + ".json");
+        try {
+            var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new Stamp(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Path directory(String type) {
+        switch (type) {
+            case PAGE:
+                return workspaceProperties.getPages().getDir();
+            case WIDGET:
+                return workspaceProperties.getWidgets().getDir();
+            case FRAGMENT:
+                return workspaceProperties.getFragments().getDir();
+            default:
+                return null;
+        }
+    }
+
+    private static final class Stamp {
+
+        private final long size;
+
+        private final long lastModified;
+
+        private Stamp(long size, long lastModified) {
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Stamp)) {
+                return false;
+            }
+            var stamp = (Stamp) o;
+            return size == stamp.size && lastModified == stamp.lastModified;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, lastModified);
+        }
+    }
+
+    private static final class Entry {
+
+        private final ArtifactStatusReport status;
+
+        private final Stamp stamp;
+
+        private final long generation;
+
+        private Entry(ArtifactStatusReport status, Stamp stamp, long generation) {
+            this.status = status;
+            this.stamp = stamp;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.migration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.bonitasoft.web.designer.model.migrationReport.MigrationReport;
+
+import lombok.Getter;
+
+/**
+ * Progress of a workspace migration. Updated by the migration threads, read through {@link #snapshot()}.
+ */
+@Getter
+public class WorkspaceMigrationJob {
+
+    public enum Status {
+        RUNNING, DONE, FAILED
+    }
+
+    private final String id;
+
+    private final long startTime;
+
+    private Status status = Status.RUNNING;
+
+    private int total;
+
+    private int processed;
+
+    /**
+     * Estimated time in milliseconds before the end of the migration, null until an artifact has been migrated
+     */
+    private Long estimatedRemainingTime;
+
+    private Long endTime;
+
+    private String error;
+
+    private final List<MigrationReport> reports = new ArrayList<>();
+
+    public WorkspaceMigrationJob() {
+        this(UUID.randomUUID().toString(), System.currentTimeMillis());
+    }
+
+    private WorkspaceMigrationJob(String id, long startTime) {
+        this.id = id;
+        this.startTime = startTime;
+    }
+
+    synchronized void start(int total) {
+        this.total = total;
+    }
+
+    synchronized Progress processed(MigrationReport report) {
+        processed++;
+        if (report != null) {
+            reports.add(report);
+        }
+        var elapsed = System.currentTimeMillis() - startTime;
+        estimatedRemainingTime = elapsed * (total - processed) / processed;
+        return new Progress(this, report);
+    }
+
+    synchronized Progress done() {
+        status = Status.DONE;
+        estimatedRemainingTime = 0L;
+        endTime = System.currentTimeMillis();
+        return new Progress(this, null);
+    }
+
+    synchronized Progress failed(String error) {
+        status = Status.FAILED;
+        this.error = error;
+        estimatedRemainingTime = null;
+        endTime = System.currentTimeMillis();
+        return new Progress(this, null);
+    }
+
+    synchronized boolean isRunning() {
+        return status == Status.RUNNING;
+    }
+
+    /**
+     * Consistent copy of the job which can be serialized while the migration goes on
+     */
+    public synchronized WorkspaceMigrationJob snapshot() {
+        var copy = new WorkspaceMigrationJob(id, startTime);
+        copy.status = status;
+        copy.total = total;
+        copy.processed = processed;
+        copy.estimatedRemainingTime = estimatedRemainingTime;
+        copy.endTime = endTime;
+        copy.error = error;
+        copy.reports.addAll(reports);
+        return copy;
+    }
+
+    /**
+     * Message published each time the job moves on, it only holds the report of the last migrated artifact
+     */
+    @Getter
+    public static class Progress {
+
+        private final String jobId;
+
+        private final Status status;
+
+        private final int total;
+
+        private final int processed;
+
+        private final Long estimatedRemainingTime;
+
+        private final String error;
+
+        private final MigrationReport report;
+
+        private Progress(WorkspaceMigrationJob job, MigrationReport report) {
+            this.jobId = job.id;
+            this.status = job.status;
+            this.total = job.total;
+            this.processed = job.processed;
+            this.estimatedRemainingTime = job.estimatedRemainingTime;
+            this.error = job.error;
+            this.report = report;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.migration;
+
+import static org.bonitasoft.web.designer.config.WebSocketConfig.MIGRATION_PROGRESS;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.bonitasoft.web.designer.common.repository.FragmentRepository;
+import org.bonitasoft.web.designer.common.repository.PageRepository;
+import org.bonitasoft.web.designer.common.repository.WidgetRepository;
+import org.bonitasoft.web.designer.config.MigrationProperties;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
+import org.bonitasoft.web.designer.model.DesignerArtifact;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationReport;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationStatus;
+import org.bonitasoft.web.designer.model.widget.Widget;
+import org.bonitasoft.web.designer.service.ArtifactService;
+import org.bonitasoft.web.designer.service.FragmentService;
+import org.bonitasoft.web.designer.service.PageService;
+import org.bonitasoft.web.designer.service.WidgetService;
+import org.bonitasoft.web.designer.workspace.Workspace;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the workspace migration in the background. Custom widgets, then fragments, then pages are migrated so that an
+ * artifact is migrated after the artifacts it uses. Widgets and pages, which do not depend on each other, have their
+ * status checked in parallel, the migrations themselves being applied one at a time by the
+ * {@link ArtifactMigrationService}. Fragments may embed other fragments and are migrated one after the other.
+ * <p>
+ * Progress is published on {@link org.bonitasoft.web.designer.config.WebSocketConfig#MIGRATION_PROGRESS} and jobs can
+ * be polled by id.
+ */
+@Slf4j
+@Component
+public class WorkspaceMigrator {
+
+    private final Workspace workspace;
+    private final PageRepository pageRepository;
+    private final WidgetRepository widgetRepository;
+    private final FragmentRepository fragmentRepository;
+    private final PageService pageService;
+    private final WidgetService widgetService;
+    private final FragmentService fragmentService;
+    private final ArtifactMigrationService artifactMigrationService;
+    private final PreviewHtmlCache previewHtmlCache;
+    private final MigrationProperties migrationProperties;
+    private final SimpMessagingTemplate messagingTemplate;
+
+    private final ExecutorService artifactExecutor;
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("workspace-migration-"));
+
+    private final Map<String, WorkspaceMigrationJob> jobs = new LinkedHashMap<>();
+    private WorkspaceMigrationJob runningJob;
+
+    @Autowired
+    public WorkspaceMigrator(Workspace workspace, PageRepository pageRepository, WidgetRepository widgetRepository,
+                             FragmentRepository fragmentRepository, PageService pageService, WidgetService widgetService,
+                             FragmentService fragmentService, ArtifactMigrationService artifactMigrationService,
+                             PreviewHtmlCache previewHtmlCache,
+                             MigrationProperties migrationProperties, SimpMessagingTemplate messagingTemplate) {
+        this.workspace = workspace;
+        this.pageRepository = pageRepository;
+        this.widgetRepository = widgetRepository;
+        this.fragmentRepository = fragmentRepository;
+        this.pageService = pageService;
+        this.widgetService = widgetService;
+        this.fragmentService = fragmentService;
+        this.artifactMigrationService = artifactMigrationService;
+        this.previewHtmlCache = previewHtmlCache;
+        this.migrationProperties = migrationProperties;
+        this.messagingTemplate = messagingTemplate;
+        this.artifactExecutor = Executors.newFixedThreadPool(Math.max(1, migrationProperties.getParallelism()),
+                new CustomizableThreadFactory("artifact-migration-"));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+        artifactExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts a migration of the workspace, or returns the running one if any
+     */
+    public synchronized WorkspaceMigrationJob start() {
+        if (runningJob != null && runningJob.isRunning()) {
+            return runningJob.snapshot();
+        }
+        var job = new WorkspaceMigrationJob();
+        runningJob = job;
+        jobs.put(job.getId(), job);
+        while (jobs.size() > Math.max(1, migrationProperties.getRetainedJobs())) {
+            jobs.remove(jobs.keySet().iterator().next());
+        }
+        jobExecutor.execute(() -> run(job));
+        return job.snapshot();
+    }
+
+    public synchronized Optional<WorkspaceMigrationJob> getJob(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(WorkspaceMigrationJob::snapshot);
+    }
+
+    private void run(WorkspaceMigrationJob job) {
+        try {
+            var widgets = widgetRepository.getAll().stream().filter(Widget::isCustom).collect(Collectors.toList());
+            var fragments = fragmentRepository.getAll();
+            var pages = pageRepository.getAll();
+            job.start(widgets.size() + fragments.size() + pages.size());
+
+            migrateInParallel(job, widgets, widgetService);
+            for (DesignerArtifact fragment : fragments) {
+                publish(job.processed(migrate(fragment, fragmentService)));
+            }
+            migrateInParallel(job, pages, pageService);
+
+            // Anything else than artifacts, artifacts are up to date at this point so nothing is migrated twice
+            workspace.migrateWorkspace();
+            publish(job.done());
+        } catch (RuntimeException e) {
+            log.error("Workspace migration {} failed", job.getId(), e);
+            publish(job.failed(e.getMessage()));
+        } finally {
+            previewHtmlCache.invalidateAll();
+        }
+    }
+
+    private <T extends DesignerArtifact> void migrateInParallel(WorkspaceMigrationJob job, List<T> artifacts, ArtifactService service) {
+        var migrations = new ArrayList<CompletableFuture<Void>>();
+        for (T artifact : artifacts) {
+            migrations.add(CompletableFuture.runAsync(() -> publish(job.processed(migrate(artifact, service))), artifactExecutor));
+        }
+        CompletableFuture.allOf(migrations.toArray(new CompletableFuture[0])).join();
+    }
+
+    private MigrationReport migrate(DesignerArtifact artifact, ArtifactService service) {
+        try {
+            return artifactMigrationService.migrate(artifact, service);
+        } catch (RuntimeException e) {
+            log.error("Migration of {} failed", artifact.getId(), e);
+            return new MigrationReport(MigrationStatus.ERROR, artifact.getId());
+        }
+    }
+
+    private void publish(WorkspaceMigrationJob.Progress progress) {
+        messagingTemplate.convertAndSend(MIGRATION_PROGRESS, progress);
+    }
+}
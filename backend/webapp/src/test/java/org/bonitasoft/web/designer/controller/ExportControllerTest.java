@@ -16,7 +16,10 @@ package org.bonitasoft.web.designer.controller;
 
 import org.bonitasoft.web.designer.ArtifactBuilder;
 import org.bonitasoft.web.designer.common.repository.PageRepository;
+import org.bonitasoft.web.designer.controller.exporter.BulkExporter;
+import org.bonitasoft.web.designer.model.fragment.Fragment;
 import org.bonitasoft.web.designer.model.page.Page;
+import org.bonitasoft.web.designer.model.widget.Widget;
 import org.bonitasoft.web.designer.service.FragmentService;
 import org.bonitasoft.web.designer.service.PageService;
 import org.bonitasoft.web.designer.service.WidgetService;
@@ -31,16 +34,21 @@ import org.springframework.test.web.servlet.MockMvc;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
 
 import static java.lang.String.format;
 import static java.nio.file.Files.write;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.builder.FragmentBuilder.aFragment;
 import static org.bonitasoft.web.designer.builder.PageBuilder.aPage;
+import static org.bonitasoft.web.designer.builder.WidgetBuilder.aWidget;
 import static org.bonitasoft.web.designer.utils.UIDesignerMockMvcBuilder.mockServer;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 public class ExportControllerTest {
@@ -61,6 +69,9 @@ public class ExportControllerTest {
     @Mock
     private ArtifactBuilder artifactBuilder;
 
+    @Mock
+    private BulkExporter bulkExporter;
+
     private ExportController exportController;
 
     @TempDir
@@ -72,7 +83,8 @@ public class ExportControllerTest {
                 pageService,
                 fragmentService,
                 widgetService,
-                artifactBuilder
+                artifactBuilder,
+                bulkExporter
         ));
         mockMvc = mockServer(exportController).build();
     }
@@ -137,4 +149,54 @@ public class ExportControllerTest {
 // TODO: check with content-type should be used .andExpect(content().contentType("application/zip"));
     }
 
+    @Test
+    public void should_send_zip_content_with_its_length() throws Exception {
+        Page page = create(aPage().withId("myPage").withName("myPage").build());
+        byte[] zip = new byte[20 * 1024];
+        Arrays.fill(zip, (byte) 1);
+        when(artifactBuilder.build(page)).thenReturn(zip);
+
+        mockMvc.perform(get("/export/page/myPage"))
+                .andExpect(content().bytes(zip))
+                .andExpect(header().string("Content-Length", String.valueOf(zip.length)));
+    }
+
+    @Test
+    public void should_export_a_selection_of_artifacts_in_one_archive() throws Exception {
+        Page page = create(aPage().withId("myPage").withName("myPage").build());
+        Fragment fragment = aFragment().withId("myFragment").withName("myFragment").build();
+        when(fragmentService.get("myFragment")).thenReturn(fragment);
+
+        mockMvc.perform(get("/export?page=myPage&fragment=myFragment"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "inline; filename=\"artifacts.zip\""));
+
+        verify(bulkExporter).export(eq(List.of(page, fragment)), any(), any());
+    }
+
+    @Test
+    public void should_refuse_to_export_an_empty_selection() throws Exception {
+        mockMvc.perform(get("/export"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(bulkExporter);
+    }
+
+    @Test
+    public void should_export_the_whole_workspace_in_one_archive() throws Exception {
+        Page page = aPage().withId("myPage").withName("myPage").build();
+        Fragment fragment = aFragment().withId("myFragment").withName("myFragment").build();
+        Widget customWidget = aWidget().withId("customWidget").custom().build();
+        Widget standardWidget = aWidget().withId("pbInput").build();
+        when(pageService.getAll()).thenReturn(List.of(page));
+        when(fragmentService.getAllNotUsingFragment(null)).thenReturn(List.of(fragment));
+        when(widgetService.getAll()).thenReturn(List.of(customWidget, standardWidget));
+
+        mockMvc.perform(get("/export/workspace"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "inline; filename=\"workspace.zip\""));
+
+        verify(bulkExporter).export(eq(List.of(page, fragment, customWidget)), any(), any());
+    }
+
 }
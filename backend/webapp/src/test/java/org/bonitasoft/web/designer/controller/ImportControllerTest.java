@@ -17,10 +17,20 @@ package org.bonitasoft.web.designer.controller;
 
 import org.bonitasoft.web.designer.ArtifactBuilder;
 import org.bonitasoft.web.designer.DefaultArtifactBuilder;
+import org.bonitasoft.web.designer.common.repository.FragmentRepository;
+import org.bonitasoft.web.designer.common.repository.PageRepository;
+import org.bonitasoft.web.designer.config.PreviewProperties;
+import org.bonitasoft.web.designer.config.WorkspaceProperties;
+import org.bonitasoft.web.designer.config.WorkspaceUidProperties;
+import org.bonitasoft.web.designer.controller.importer.BulkImportReport;
+import org.bonitasoft.web.designer.controller.importer.BulkImporter;
 import org.bonitasoft.web.designer.controller.importer.ImportException;
 import org.bonitasoft.web.designer.controller.importer.ImportException.Type;
 import org.bonitasoft.web.designer.controller.importer.report.ImportReport;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
 import org.bonitasoft.web.designer.controller.utils.UnZipper;
+import org.bonitasoft.web.designer.migration.ArtifactStatusCache;
+import org.bonitasoft.web.designer.model.page.Page;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -38,6 +48,7 @@ import java.nio.file.Path;
 import java.util.zip.ZipException;
 
 import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.web.designer.builder.ImportReportBuilder.anImportReportFor;
 import static org.bonitasoft.web.designer.builder.PageBuilder.aPage;
 import static org.bonitasoft.web.designer.builder.WidgetBuilder.aWidget;
@@ -46,6 +57,7 @@ import static org.bonitasoft.web.designer.utils.UIDesignerMockMvcBuilder.mockSer
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -64,14 +76,31 @@ public class ImportControllerTest {
     @Mock
     private UnZipper unzipper;
 
+    @Mock
+    private BulkImporter bulkImporter;
+
+    @Mock
+    private ArtifactStatusCache artifactStatusCache;
+
+    @Mock
+    private PageRepository pageRepository;
+
+    @Mock
+    private FragmentRepository fragmentRepository;
+
+    private PreviewHtmlCache previewHtmlCache;
+
     private Path unzipedPath;
 
     @BeforeEach
     public void setUp() throws IOException {
-        ImportController importController = new ImportController(artifactBuilder, unzipper);
+        previewHtmlCache = new PreviewHtmlCache(new PreviewProperties());
+        ImportController importController = new ImportController(artifactBuilder, unzipper, bulkImporter, artifactStatusCache, previewHtmlCache);
+        PreviewController previewController = new PreviewController(pageRepository, fragmentRepository, artifactBuilder, new WorkspaceProperties(),
+                new WorkspaceUidProperties(), previewHtmlCache, new PreviewProperties(), null);
         unzipedPath = Files.createDirectory(tempDir.resolve("unzipedPath"));
         lenient().when(unzipper.unzipInTempDir(any(InputStream.class), anyString())).thenReturn(unzipedPath);
-        mockMvc = mockServer(importController).build();
+        mockMvc = mockServer(importController, previewController).build();
     }
 
     @Test
@@ -158,6 +187,38 @@ public class ImportControllerTest {
                 .andExpect(jsonPath("dependencies.overwritten.widget[0].name").value("oldWidget"));
     }
 
+    @Test
+    public void should_preview_the_imported_page_instead_of_the_one_it_overwrote() throws Exception {
+        Page page = aPage().withId("aPage").withName("thePage").build();
+        when(pageRepository.get("aPage")).thenReturn(page);
+        when(artifactBuilder.buildHtml(eq(page), anyString())).thenReturn("before import", "after import");
+        when(artifactBuilder.importPage(unzipedPath, true)).thenReturn(
+                anImportReportFor(aPage().withId("aPage").withName("thePage")).withStatus(ImportReport.Status.IMPORTED).build());
+        mockMvc.perform(get("/preview/page/no-app-selected/aPage")).andExpect(content().string("before import"));
+
+        mockMvc.perform(multipart("/import/page?force=true").file(aFile("application/zip")))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/preview/page/no-app-selected/aPage")).andExpect(content().string("after import"));
+    }
+
+    @Test
+    public void should_drop_cached_previews_after_a_bulk_import_or_a_replayed_import() throws Exception {
+        var key = previewHtmlCache.keyFor("page", "aPage", "/runtime/");
+        previewHtmlCache.put(key, "before import");
+        when(bulkImporter.importArtifacts(anyList(), eq(false))).thenReturn(new BulkImportReport());
+
+        mockMvc.perform(multipart("/import/bulk").file(aFile("application/zip"))).andExpect(status().isCreated());
+
+        assertThat(previewHtmlCache.get(key)).isNull();
+
+        key = previewHtmlCache.keyFor("page", "aPage", "/runtime/");
+        previewHtmlCache.put(key, "before import");
+        mockMvc.perform(post("/import/UUIDZipFile/force")).andExpect(status().isCreated());
+
+        assertThat(previewHtmlCache.get(key)).isNull();
+    }
+
     @Test
     public void should_force_a_page_import() throws Exception {
         //We construct a mockfile (the first arg is the name of the property expected in the controller
@@ -222,6 +283,36 @@ public class ImportControllerTest {
                 .andExpect(jsonPath("element.name").value("myWidgetName"));
     }
 
+    @Test
+    public void should_import_several_artifacts_at_once() throws Exception {
+        MockMultipartFile page = new MockMultipartFile("file", "page.zip", "application/zip", "foo".getBytes());
+        MockMultipartFile widget = new MockMultipartFile("file", "widget.zip", "application/zip", "bar".getBytes());
+        BulkImportReport report = new BulkImportReport();
+        report.addReport("page.zip", anImportReportFor(aPage().withId("aPage").withName("thePage")).build());
+        report.addError("widget.zip", new ErrorMessage("CANNOT_OPEN_ZIP", "Cannot open zip file"));
+        when(bulkImporter.importArtifacts(anyList(), eq(true))).thenReturn(report);
+
+        mockMvc.perform(multipart("/import/bulk?force=true").file(page).file(widget))
+                .andExpect(content().contentType(MediaType.TEXT_PLAIN))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("entries[0].fileName").value("page.zip"))
+                .andExpect(jsonPath("entries[0].report.element.id").value("aPage"))
+                .andExpect(jsonPath("entries[1].fileName").value("widget.zip"))
+                .andExpect(jsonPath("entries[1].error.type").value("CANNOT_OPEN_ZIP"));
+    }
+
+    @Test
+    public void should_respond_400_when_a_file_of_a_bulk_import_is_not_a_zip() throws Exception {
+        MockMultipartFile page = new MockMultipartFile("file", "page.zip", "application/zip", "foo".getBytes());
+        MockMultipartFile image = new MockMultipartFile("file", "image.png", "image/png", "bar".getBytes());
+
+        mockMvc.perform(multipart("/import/bulk").file(page).file(image))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("message").value("Only zip files are allowed when importing a component"));
+
+        verifyNoInteractions(bulkImporter);
+    }
+
     @Test
     public void should_force_an_uncompleted_import() throws Exception {
         ImportReport expectedReport = anImportReportFor(aWidget().withId("aWidget").withName("myWidgetName")).build();
@@ -303,6 +394,8 @@ public class ImportControllerTest {
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("element.id").value("aWidget"))
                 .andExpect(jsonPath("element.name").value("myWidgetName"));
+
+        verify(artifactStatusCache).invalidateAll();
     }
 
     @Test
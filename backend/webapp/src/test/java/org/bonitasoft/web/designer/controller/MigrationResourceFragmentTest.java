@@ -18,6 +18,8 @@ import org.bonitasoft.web.designer.builder.FragmentBuilder;
 import org.bonitasoft.web.designer.common.repository.FragmentRepository;
 import org.bonitasoft.web.designer.common.repository.exception.NotFoundException;
 import org.bonitasoft.web.designer.config.UiDesignerProperties;
+import org.bonitasoft.web.designer.config.WorkspaceProperties;
+import org.bonitasoft.web.designer.migration.ArtifactStatusCache;
 import org.bonitasoft.web.designer.model.DesignerArtifact;
 import org.bonitasoft.web.designer.model.JsonHandler;
 import org.bonitasoft.web.designer.model.JsonHandlerFactory;
@@ -32,6 +34,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -54,6 +57,9 @@ class MigrationResourceFragmentTest {
 
     private MockMvc mockMvc;
 
+    @Spy
+    private ArtifactStatusCache artifactStatusCache = new ArtifactStatusCache(new WorkspaceProperties());
+
     @InjectMocks
     private MigrationResource migrationResource;
 
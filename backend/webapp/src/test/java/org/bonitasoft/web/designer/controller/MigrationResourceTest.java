@@ -19,7 +19,14 @@ import org.bonitasoft.web.designer.builder.WidgetBuilder;
 import org.bonitasoft.web.designer.common.repository.PageRepository;
 import org.bonitasoft.web.designer.common.repository.WidgetRepository;
 import org.bonitasoft.web.designer.common.repository.exception.NotFoundException;
+import org.bonitasoft.web.designer.config.PreviewProperties;
 import org.bonitasoft.web.designer.config.UiDesignerProperties;
+import org.bonitasoft.web.designer.config.WorkspaceProperties;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
+import org.bonitasoft.web.designer.migration.ArtifactMigrationService;
+import org.bonitasoft.web.designer.migration.ArtifactStatusCache;
+import org.bonitasoft.web.designer.migration.WorkspaceMigrationJob;
+import org.bonitasoft.web.designer.migration.WorkspaceMigrator;
 import org.bonitasoft.web.designer.model.DesignerArtifact;
 import org.bonitasoft.web.designer.model.JsonHandler;
 import org.bonitasoft.web.designer.model.JsonHandlerFactory;
@@ -36,6 +43,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -44,12 +52,15 @@ import org.springframework.test.web.servlet.ResultActions;
 
 import java.net.URISyntaxException;
 import java.util.Collections;
+import java.util.Optional;
 
 import static org.bonitasoft.web.designer.builder.PageBuilder.aPage;
 import static org.bonitasoft.web.designer.builder.WidgetBuilder.aWidget;
 import static org.bonitasoft.web.designer.utils.UIDesignerMockMvcBuilder.mockServer;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -75,6 +86,18 @@ class MigrationResourceTest {
     @Mock
     private DefaultWidgetService widgetService;
 
+    @Mock
+    private WorkspaceMigrator workspaceMigrator;
+
+    @Spy
+    private ArtifactMigrationService artifactMigrationService = new ArtifactMigrationService();
+
+    @Spy
+    private ArtifactStatusCache artifactStatusCache = new ArtifactStatusCache(new WorkspaceProperties());
+
+    @Spy
+    private PreviewHtmlCache previewHtmlCache = new PreviewHtmlCache(new PreviewProperties());
+
     @InjectMocks
     private MigrationResource MigrationResource;
 
@@ -84,6 +107,57 @@ class MigrationResourceTest {
         mockMvc = mockServer(MigrationResource).build();
     }
 
+    @Test
+    void should_start_workspace_migration_in_background() throws Exception {
+        WorkspaceMigrationJob job = new WorkspaceMigrationJob();
+        when(workspaceMigrator.start()).thenReturn(job);
+
+        mockMvc.perform(post("/rest/migration"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/rest/migration/jobs/" + job.getId()))
+                .andExpect(jsonPath("id").value(job.getId()))
+                .andExpect(jsonPath("status").value("RUNNING"));
+    }
+
+    @Test
+    void should_get_a_workspace_migration_job() throws Exception {
+        WorkspaceMigrationJob job = new WorkspaceMigrationJob();
+        when(workspaceMigrator.getJob(job.getId())).thenReturn(Optional.of(job));
+
+        mockMvc.perform(get("/rest/migration/jobs/" + job.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id").value(job.getId()));
+    }
+
+    @Test
+    void should_respond_404_for_an_unknown_workspace_migration_job() throws Exception {
+        when(workspaceMigrator.getJob("unknown")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/rest/migration/jobs/unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void should_return_statuses_of_several_pages_at_once() throws Exception {
+        Page page1 = aPage().withId("page1").withModelVersion("2.0").build();
+        Page page2 = aPage().withId("page2").withModelVersion("1.0").build();
+        when(pageRepository.get("page1")).thenReturn(page1);
+        when(pageRepository.get("page2")).thenReturn(page2);
+        when(pageService.getStatus(page1)).thenReturn(new ArtifactStatusReport(true, false));
+        when(pageService.getStatus(page2)).thenReturn(new ArtifactStatusReport(true, true));
+
+        mockMvc.perform(get("/rest/migration/status/page?id=page1&id=page2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("page1.migration").value(false))
+                .andExpect(jsonPath("page2.migration").value(true));
+    }
+
+    @Test
+    void should_respond_404_when_asking_statuses_of_an_unknown_artifact_type() throws Exception {
+        mockMvc.perform(get("/rest/migration/status/unknown?id=page1"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     void should_return_artifact_status_when_migration_required() throws Exception {
         Page page = PageBuilder.aPage().withId("myPage").withDesignerVersion("1.10.0").withPreviousDesignerVersion("1.9.0").build();
@@ -175,6 +249,31 @@ class MigrationResourceTest {
         postStatusBadRequest();
     }
 
+    @Test
+    void should_return_bad_request_when_empty_artifact_json() throws Exception {
+        mockMvc
+                .perform(post("/rest/migration/status")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void should_prefer_model_version_over_designer_version_whatever_their_order() throws Exception {
+        ResultActions result = postStatusRequest("{\"designerVersion\":\"1.0.0\",\"id\":\"test\",\"modelVersion\":\"2.1\"}");
+
+        assertThat(getStatusReport(false, false)).isEqualTo(result.andReturn().getResponse().getContentAsString());
+    }
+
+    @Test
+    void should_read_top_level_version_placed_after_nested_content() throws Exception {
+        ResultActions result = postStatusRequest("{\"id\":\"test\","
+                + "\"rows\":[[{\"type\":\"component\",\"modelVersion\":\"2.1\",\"rows\":[[{\"modelVersion\":\"2.1\"}]]}]],"
+                + "\"assets\":[],\"designerVersion\":\"1.0.0\"}");
+
+        assertThat(getStatusReport(true, true)).isEqualTo(result.andReturn().getResponse().getContentAsString());
+    }
+
     @Test
     void should_return_not_found_when_invalid_artifact_id() throws Exception {
         when(pageRepository.get("invalidPageId"))
@@ -227,6 +326,14 @@ class MigrationResourceTest {
                 .andExpect(status().isOk());
     }
 
+    private ResultActions postStatusRequest(String artifact) throws Exception {
+        return mockMvc
+                .perform(post("/rest/migration/status")
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(artifact))
+                .andExpect(status().isOk());
+    }
+
     private void postStatusBadRequest() throws Exception {
         mockMvc
                 .perform(post("/rest/migration/status")
@@ -274,6 +381,22 @@ class MigrationResourceTest {
         verify(pageService).migrateWithReport(pageToMigrate);
     }
 
+    @Test
+    void should_drop_cached_previews_when_a_page_is_migrated() throws Exception {
+        Page pageToMigrate = aPage().withId("my-page-to-migrate").withName("page-name").build();
+        when(pageRepository.get("my-page-to-migrate")).thenReturn(pageToMigrate);
+        when(pageService.migrateWithReport(pageToMigrate)).thenReturn(new MigrationResult<>(pageToMigrate, Collections.singletonList(new MigrationStepReport(MigrationStatus.SUCCESS, "my-page-to-migrate"))));
+        var key = previewHtmlCache.keyFor("page", "my-page-to-migrate", "/runtime/");
+        previewHtmlCache.put(key, "<html>before migration</html>");
+
+        mockMvc
+                .perform(
+                        put("/rest/migration/page/my-page-to-migrate").contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(status().isOk());
+
+        assertThat(previewHtmlCache.get(key)).isNull();
+    }
+
     @Test
     void should_return_200_when_migration_is_finished_with_warning() throws Exception {
         Page pageToMigrate = aPage().withId("my-page-to-migrate").withName("page-name").build();
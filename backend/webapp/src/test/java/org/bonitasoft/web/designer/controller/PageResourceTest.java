@@ -16,7 +16,11 @@ package org.bonitasoft.web.designer.controller;
 
 import org.bonitasoft.web.designer.common.repository.exception.NotFoundException;
 import org.bonitasoft.web.designer.common.repository.exception.RepositoryException;
-import org.bonitasoft.web.designer.generator.mapping.ContractToPageMapper;
+import org.bonitasoft.web.designer.config.PreviewProperties;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
+import org.bonitasoft.web.designer.generator.mapping.BatchFormGenerator;
+import org.bonitasoft.web.designer.generator.mapping.FormGenerationRequest;
+import org.bonitasoft.web.designer.generator.mapping.FormPageCache;
 import org.bonitasoft.web.designer.generator.mapping.FormScope;
 import org.bonitasoft.web.designer.model.ArtifactStatusReport;
 import org.bonitasoft.web.designer.model.JsonHandler;
@@ -40,9 +44,11 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
@@ -55,6 +61,7 @@ import static com.jayway.jsonassert.impl.matcher.IsCollectionWithSize.hasSize;
 import static java.nio.file.Files.readAllBytes;
 import static java.nio.file.Files.readAllLines;
 import static java.util.Collections.*;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.web.designer.builder.AssetBuilder.aFilledAsset;
 import static org.bonitasoft.web.designer.builder.AssetBuilder.anAsset;
 import static org.bonitasoft.web.designer.builder.PageBuilder.aFilledPage;
@@ -94,7 +101,10 @@ class PageResourceTest {
     private SimpMessagingTemplate messagingTemplate;
 
     @Mock
-    private ContractToPageMapper contractToPageMapper;
+    private FormPageCache formPageCache;
+
+    @Mock
+    private BatchFormGenerator batchFormGenerator;
 
     private PageResource pageResource;
 
@@ -108,7 +118,7 @@ class PageResourceTest {
 
     @BeforeEach
     public void setUp() throws URISyntaxException {
-        pageResource = spy(new PageResource(jsonHandler, pageService, contractToPageMapper, messagingTemplate));
+        pageResource = spy(new PageResource(jsonHandler, pageService, formPageCache, batchFormGenerator, messagingTemplate));
         mockMvc = mockServer(pageResource).build();
         widgetRepositoryPath = Paths.get(getClass().getResource("/workspace/widgets").toURI());
     }
@@ -177,7 +187,7 @@ class PageResourceTest {
     void should_create_a_page_from_a_Contract_at_task_scope() throws Exception {
         Contract contract = aSimpleContract();
         Page newPage = aPage().withName("myPage").build();
-        when(contractToPageMapper.createFormPage(eq("myPage"), notNull(), eq(FormScope.TASK))).thenReturn(newPage);
+        when(formPageCache.createFormPage(eq("myPage"), notNull(), eq(FormScope.TASK))).thenReturn(newPage);
         when(pageService.create(any())).thenReturn(newPage);
 
         mockMvc
@@ -195,7 +205,7 @@ class PageResourceTest {
     void should_create_a_page_from_a_Contract_at_process_scope() throws Exception {
         Contract contract = aSimpleContract();
         Page newPage = aPage().withName("myPage").build();
-        when(contractToPageMapper.createFormPage(eq("myPage"), notNull(), eq(FormScope.PROCESS))).thenReturn(newPage);
+        when(formPageCache.createFormPage(eq("myPage"), notNull(), eq(FormScope.PROCESS))).thenReturn(newPage);
         when(pageService.create(any())).thenReturn(newPage);
 
         mockMvc
@@ -212,7 +222,7 @@ class PageResourceTest {
     void should_create_a_page_from_a_Contract_at_overview_scope() throws Exception {
         Contract contract = aSimpleContract();
         Page newPage = aPage().withName("myPage").build();
-        when(contractToPageMapper.createFormPage(eq("myPage"), notNull(), eq(FormScope.OVERVIEW))).thenReturn(newPage);
+        when(formPageCache.createFormPage(eq("myPage"), notNull(), eq(FormScope.OVERVIEW))).thenReturn(newPage);
         when(pageService.create(any())).thenReturn(newPage);
 
         mockMvc
@@ -225,6 +235,29 @@ class PageResourceTest {
         verify(pageService).create(newPage);
     }
 
+    @Test
+    void should_create_pages_from_a_batch_of_contracts() throws Exception {
+        Page taskForm = aPage().withId("taskForm").withName("taskForm").build();
+        Page processForm = aPage().withId("processForm").withName("processForm").build();
+        List<FormGenerationRequest> requests = List.of(
+                new FormGenerationRequest("taskForm", "task", aSimpleContract()),
+                new FormGenerationRequest("processForm", "process", aSimpleContract()));
+        when(batchFormGenerator.generate(anyList())).thenReturn(List.of(taskForm, processForm));
+        when(pageService.create(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc
+                .perform(post("/rest/pages/contract/batch")
+                        .contentType(APPLICATION_JSON_VALUE)
+                        .content(jsonHandler.toJson(requests)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[0].id").value("taskForm"))
+                .andExpect(jsonPath("$[1].id").value("processForm"));
+
+        var inOrder = inOrder(pageService);
+        inOrder.verify(pageService).create(taskForm);
+        inOrder.verify(pageService).create(processForm);
+    }
+
 
     @Test
     void should_save_a_page() throws Exception {
@@ -610,6 +643,29 @@ class PageResourceTest {
         verify(pageService).changeAssetStateInPreviewable(page.getId(), "UIID", false);
     }
 
+    @Test
+    void should_drop_cached_previews_when_assets_are_saved_deleted_or_updated() throws Exception {
+        var previewHtmlCache = new PreviewHtmlCache(new PreviewProperties());
+        var brokerChannel = new ExecutorSubscribableChannel();
+        brokerChannel.addInterceptor(previewHtmlCache);
+        var mockMvc = mockServer(new PageResource(jsonHandler, pageService, formPageCache, batchFormGenerator,
+                new SimpMessagingTemplate(brokerChannel))).build();
+        var asset = anAsset().withId("UIID").build();
+        List<MockHttpServletRequestBuilder> requests = List.of(
+                post("/rest/pages/my-page/assets").contentType(MediaType.APPLICATION_JSON_VALUE).content(jsonHandler.toJson(asset)),
+                delete("/rest/pages/my-page/assets/UIID"),
+                put("/rest/pages/my-page/assets/UIID?increment=true"),
+                put("/rest/pages/my-page/assets/UIID?active=false"));
+
+        for (MockHttpServletRequestBuilder request : requests) {
+            previewHtmlCache.put(previewHtmlCache.keyFor("page", "my-page", ""), "<html></html>");
+
+            mockMvc.perform(request).andExpect(status().isOk());
+
+            assertThat(previewHtmlCache.get(previewHtmlCache.keyFor("page", "my-page", ""))).isNull();
+        }
+    }
+
     @Test
     void should_mark_a_page_as_favorite() throws Exception {
 
@@ -15,6 +15,8 @@
 package org.bonitasoft.web.designer.controller;
 
 import org.bonitasoft.web.designer.ArtifactBuilder;
+import org.bonitasoft.web.designer.config.CompressionProperties;
+import org.bonitasoft.web.designer.config.PreviewProperties;
 import org.bonitasoft.web.designer.config.WorkspaceProperties;
 import org.bonitasoft.web.designer.config.WorkspaceUidProperties;
 import org.bonitasoft.web.designer.model.fragment.Fragment;
@@ -23,23 +25,33 @@ import org.bonitasoft.web.designer.common.generator.rendering.GenerationExceptio
 import org.bonitasoft.web.designer.common.repository.FragmentRepository;
 import org.bonitasoft.web.designer.common.repository.PageRepository;
 import org.bonitasoft.web.designer.common.repository.exception.NotFoundException;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
+import org.bonitasoft.web.designer.controller.utils.CompressedFileCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.ByteArrayInputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.Cookie;
 
 import static java.nio.file.Files.readAllBytes;
 import static javax.servlet.http.HttpServletResponse.SC_TEMPORARY_REDIRECT;
 import static junit.framework.Assert.assertEquals;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.web.designer.builder.FragmentBuilder.aFragment;
 import static org.bonitasoft.web.designer.builder.PageBuilder.aPage;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -66,6 +78,11 @@ public class PreviewControllerTest {
 
     private WorkspaceUidProperties workspaceUidProperties;
 
+    private PreviewHtmlCache previewHtmlCache;
+
+    @TempDir
+    Path compressedFilesPath;
+
     @BeforeEach
     public void beforeEach() throws Exception {
         tmpWorkspacePath = Paths.get(getClass().getResource("/tmpWorkspace").toURI());
@@ -77,7 +94,15 @@ public class PreviewControllerTest {
         workspaceProperties.getWidgets().setDir(Paths.get(getClass().getResource("/workspace/widgets").toURI()));
         workspaceProperties.getFragments().setDir(Paths.get(getClass().getResource("/workspace/fragments").toURI()));
 
-        mockMvc = standaloneSetup(new PreviewController(pageRepository, fragmentRepository, artifactBuilder, workspaceProperties, workspaceUidProperties)).build();
+        previewHtmlCache = new PreviewHtmlCache(new PreviewProperties());
+        WorkspaceUidProperties compressedFilesProperties = new WorkspaceUidProperties();
+        compressedFilesProperties.setPath(compressedFilesPath);
+        CompressionProperties compressionProperties = new CompressionProperties();
+        compressionProperties.setMinSize(0);
+        CompressedFileCache compressedFileCache = new CompressedFileCache(compressedFilesProperties, compressionProperties);
+
+        mockMvc = standaloneSetup(new PreviewController(pageRepository, fragmentRepository, artifactBuilder, workspaceProperties,
+                workspaceUidProperties, previewHtmlCache, new PreviewProperties(), compressedFileCache)).build();
     }
 
     @Test
@@ -94,6 +119,21 @@ public class PreviewControllerTest {
 
     }
 
+    @Test
+    public void should_serve_generated_page_from_cache_until_it_is_invalidated() throws Exception {
+        final Page page = aPage().withId("my-page").withName("my-page").build();
+        when(pageRepository.get("my-page")).thenReturn(page);
+        when(artifactBuilder.buildHtml(eq(page), anyString())).thenReturn("Everything ok");
+
+        mockMvc.perform(get("/preview/page/no-app-selected/my-page")).andExpect(content().string("Everything ok"));
+        mockMvc.perform(get("/preview/page/no-app-selected/my-page")).andExpect(content().string("Everything ok"));
+        verify(artifactBuilder, times(1)).buildHtml(eq(page), anyString());
+
+        previewHtmlCache.invalidateAll();
+        mockMvc.perform(get("/preview/page/no-app-selected/my-page")).andExpect(content().string("Everything ok"));
+        verify(artifactBuilder, times(2)).buildHtml(eq(page), anyString());
+    }
+
     @Test
     public void should_return_error_response_when_error_occur_on_generation() throws Exception {
         final Page page = aPage().withId("my-page").withName("my-page").build();
@@ -133,6 +173,40 @@ public class PreviewControllerTest {
                 .andExpect(content().encoding("UTF-8"));
     }
 
+    @Test
+    public void should_send_validators_and_cache_control_with_page_asset() throws Exception {
+        Path expectedFile = workspaceProperties.getPages().getDir().resolve("ma-page/assets/js/timeshift.js");
+
+        mockMvc
+                .perform(get("/preview/page/no-app-selected/ma-page/assets/js/timeshift.js"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andExpect(header().dateValue("Last-Modified", expectedFile.toFile().lastModified() / 1000 * 1000))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+    }
+
+    @Test
+    public void should_respond_304_when_page_asset_etag_matches() throws Exception {
+        String eTag = mockMvc
+                .perform(get("/preview/page/no-app-selected/ma-page/assets/js/timeshift.js"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc
+                .perform(get("/preview/page/no-app-selected/ma-page/assets/js/timeshift.js").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    public void should_respond_304_when_widget_directive_is_not_modified_since() throws Exception {
+        Path expectedFile = workspaceProperties.getWidgets().getDir().resolve("pbLabel/pbLabel.js");
+
+        mockMvc
+                .perform(get("/preview/page/no-app-selected/page-id/widgets/pbLabel/pbLabel.js")
+                        .header("If-Modified-Since", expectedFile.toFile().lastModified()))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     public void should_respond_404_when_page_asset_is_not_found() throws Exception {
         mockMvc.perform(get("/preview/page/no-app-selected/ma-page/assets/js/unkknown.js")).andExpect(status().isNotFound());
@@ -182,6 +256,23 @@ public class PreviewControllerTest {
                 .andExpect(content().encoding("UTF-8"));
     }
 
+    @Test
+    public void should_load_gzipped_widget_directive_when_client_accepts_it() throws Exception {
+        Path expectedFile = workspaceProperties.getWidgets().getDir().resolve("pbLabel/pbLabel.js");
+
+        byte[] content = mockMvc.perform(get("/preview/page/no-app-selected/page-id/widgets/pbLabel/pbLabel.js")
+                        .header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", "Accept-Encoding"))
+                .andExpect(header().string("Content-Disposition", "inline; filename=\"pbLabel.js\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(content))) {
+            assertThat(gzip.readAllBytes()).isEqualTo(readAllBytes(expectedFile));
+        }
+    }
+
     @Test
     public void should_load_widget_directive_for_any_previewable() throws Exception {
         Path expectedFile = workspaceProperties.getWidgets().getDir().resolve("pbLabel/pbLabel.js");
@@ -228,28 +319,49 @@ public class PreviewControllerTest {
     }
 
     @Test
-    public void should_redirect_page_API_calls_to_the_real_API() throws Exception {
+    public void should_forward_page_API_calls_to_the_real_API() throws Exception {
         mockMvc
                 .perform(get("/preview/page/no-app-selected/API/portal/page"))
-                .andExpect(redirectedUrl("/API/portal/page"));
+                .andExpect(forwardedUrl("/API/portal/page"));
     }
 
     @Test
-    public void should_redirect_layout_API_calls_to_the_real_API() throws Exception {
+    public void should_forward_layout_API_calls_to_the_real_API() throws Exception {
         mockMvc
                 .perform(get("/preview/layout/no-app-selected/API/portal/page"))
-                .andExpect(redirectedUrl("/API/portal/page"));
+                .andExpect(forwardedUrl("/API/portal/page"));
     }
 
     @Test
-    public void should_redirect_API_calls_to_the_real_API_and_add_the_query_string() throws Exception {
+    public void should_forward_API_calls_to_the_real_API_and_keep_the_query_string() throws Exception {
         mockMvc
                 .perform(get("/preview/page/no-app-selected/API/portal/page?p=0&c=1"))
-                .andExpect(redirectedUrl("/API/portal/page?p=0&c=1"));
+                .andExpect(forwardedUrl("/API/portal/page?p=0&c=1"));
+    }
+
+    @Test
+    public void should_forward_API_post_with_its_cookies_to_the_real_API() throws Exception {
+        mockMvc
+                .perform(post("/preview/page/no-app-selected/API/bpm/process/1/instantiation?id=123")
+                        .cookie(new Cookie("X-Bonita-API-Token", "token")))
+                .andExpect(forwardedUrl("/API/bpm/process/1/instantiation?id=123"))
+                .andExpect(result -> assertThat(result.getRequest().getCookies()).extracting(Cookie::getValue).containsExactly("token"));
+    }
+
+    @Test
+    public void should_encode_forwarded_API_path() throws Exception {
+        mockMvc
+                .perform(get("/preview/page/no-app-selected/API/portal/page/my page?p=0&c=10"))
+                .andExpect(forwardedUrl("/API/portal/page/my%20page?p=0&c=10"));
     }
 
     @Test
-    public void should_temporarily_redirect_API_post_to_the_real_API() throws Exception {
+    public void should_temporarily_redirect_API_post_to_the_real_API_when_forward_is_disabled() throws Exception {
+        var previewProperties = new PreviewProperties();
+        previewProperties.setForwardApiCalls(false);
+        mockMvc = standaloneSetup(new PreviewController(pageRepository, fragmentRepository, artifactBuilder, workspaceProperties,
+                workspaceUidProperties, previewHtmlCache, previewProperties, null)).build();
+
         mockMvc
                 .perform(post("/preview/page/no-app-selected/API/portal/page?id=123"))
                 .andExpect(result -> {
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.exporter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.bonitasoft.web.designer.ArtifactBuilder;
+import org.bonitasoft.web.designer.config.ExportProperties;
+import org.bonitasoft.web.designer.model.Identifiable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class BulkExporterTest {
+
+    @Mock
+    private ArtifactBuilder artifactBuilder;
+
+    private BulkExporter bulkExporter;
+
+    @BeforeEach
+    void setUp() {
+        var exportProperties = new ExportProperties();
+        exportProperties.setParallelism(2);
+        bulkExporter = new BulkExporter(artifactBuilder, exportProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkExporter.shutdown();
+    }
+
+    @Test
+    void should_write_artifact_archives_in_order() throws Exception {
+        List<Identifiable> artifacts = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            var artifact = artifact("page", "page" + i);
+            when(artifactBuilder.build(artifact)).thenReturn(("content of page" + i).getBytes());
+            artifacts.add(artifact);
+        }
+
+        var entries = export(artifacts);
+
+        assertThat(entries.keySet()).containsExactly("page-page0.zip", "page-page1.zip", "page-page2.zip", "page-page3.zip",
+                "page-page4.zip", "page-page5.zip", "page-page6.zip", "page-page7.zip", "page-page8.zip", "page-page9.zip");
+        assertThat(entries.get("page-page3.zip")).isEqualTo("content of page3");
+    }
+
+    @Test
+    void should_export_a_shared_artifact_once() throws Exception {
+        var page = artifact("page", "page");
+        var widget = artifact("widget", "widget");
+        when(artifactBuilder.build(page)).thenReturn("page".getBytes());
+        when(artifactBuilder.build(widget)).thenReturn("widget".getBytes());
+
+        var entries = export(List.of(page, widget, widget, page));
+
+        assertThat(entries.keySet()).containsExactly("page-page.zip", "widget-widget.zip");
+        verify(artifactBuilder, times(1)).build(widget);
+    }
+
+    @Test
+    void should_keep_entry_names_unique() throws Exception {
+        var first = artifact("page", "first");
+        var second = artifact("page", "second");
+        when(artifactBuilder.build(first)).thenReturn("first".getBytes());
+        when(artifactBuilder.build(second)).thenReturn("second".getBytes());
+        var out = new ByteArrayOutputStream();
+
+        bulkExporter.export(List.of(first, second), artifact -> "page-samename.zip", out);
+
+        assertThat(read(out.toByteArray())).containsOnlyKeys("page-samename.zip", "page-samename-second.zip");
+    }
+
+    @Test
+    void should_keep_entry_names_unique_when_artifact_ids_collide_too() throws Exception {
+        var page = artifact("page", "shared");
+        var fragment = artifact("fragment", "shared");
+        var widget = artifact("widget", "shared");
+        when(artifactBuilder.build(page)).thenReturn("page".getBytes());
+        when(artifactBuilder.build(fragment)).thenReturn("fragment".getBytes());
+        when(artifactBuilder.build(widget)).thenReturn("widget".getBytes());
+        var out = new ByteArrayOutputStream();
+
+        bulkExporter.export(List.of(page, fragment, widget), artifact -> "samename.zip", out);
+
+        assertThat(read(out.toByteArray())).containsExactly(
+                entry("samename.zip", "page"),
+                entry("samename-shared.zip", "fragment"),
+                entry("samename-shared-2.zip", "widget"));
+    }
+
+    private Identifiable artifact(String type, String id) {
+        var artifact = mock(Identifiable.class);
+        when(artifact.getType()).thenReturn(type);
+        when(artifact.getId()).thenReturn(id);
+        return artifact;
+    }
+
+    private Map<String, String> export(List<Identifiable> artifacts) throws Exception {
+        var out = new ByteArrayOutputStream();
+        bulkExporter.export(artifacts, artifact -> artifact.getType() + "-" + artifact.getId() + ".zip", out);
+        return read(out.toByteArray());
+    }
+
+    private Map<String, String> read(byte[] zip) throws Exception {
+        var entries = new LinkedHashMap<String, String>();
+        try (var in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                assertThat(entry.getMethod()).isEqualTo(ZipEntry.STORED);
+                entries.put(entry.getName(), new String(in.readAllBytes()));
+            }
+        }
+        return entries;
+    }
+}
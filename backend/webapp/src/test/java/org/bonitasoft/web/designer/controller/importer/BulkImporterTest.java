@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.importer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.bonitasoft.web.designer.ArtifactBuilder;
+import org.bonitasoft.web.designer.config.ImportProperties;
+import org.bonitasoft.web.designer.controller.importer.report.ImportReport;
+import org.bonitasoft.web.designer.controller.utils.UnZipper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImporterTest {
+
+    @Mock
+    private ArtifactBuilder artifactBuilder;
+
+    private ImportProperties importProperties;
+
+    private BulkImporter bulkImporter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        importProperties = new ImportProperties();
+        bulkImporter = new BulkImporter(artifactBuilder, new UnZipper(importProperties), importProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkImporter.shutdown();
+    }
+
+    @Test
+    void should_import_archives_in_upload_order() throws Exception {
+        List<String> importedModels = new ArrayList<>();
+        when(artifactBuilder.importArtifact(any(Path.class), eq(false))).thenAnswer(invocation -> {
+            Path resources = invocation.<Path>getArgument(0).resolve("resources");
+            importedModels.add(Files.readString(resources.resolve(Files.exists(resources.resolve("page.json")) ? "page.json" : "widget.json")));
+            return mock(ImportReport.class);
+        });
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            files.add(file("page" + i + ".zip", artifact("page.json", "page" + i)));
+        }
+        files.add(file("widget.zip", artifact("widget.json", "widget")));
+
+        BulkImportReport report = bulkImporter.importArtifacts(files, false);
+
+        assertThat(importedModels).containsExactly("page0", "page1", "page2", "page3", "page4", "page5", "page6", "page7",
+                "page8", "page9", "widget");
+        assertThat(report.getEntries()).extracting(BulkImportReport.Entry::getFileName)
+                .containsExactly("page0.zip", "page1.zip", "page2.zip", "page3.zip", "page4.zip", "page5.zip", "page6.zip",
+                        "page7.zip", "page8.zip", "page9.zip", "widget.zip");
+        assertThat(report.getEntries()).allMatch(entry -> entry.getReport() != null && entry.getError() == null);
+    }
+
+    @Test
+    void should_import_archives_nested_in_an_archive() throws Exception {
+        ImportReport report = mock(ImportReport.class);
+        when(artifactBuilder.importArtifact(any(Path.class), eq(true))).thenReturn(report);
+        byte[] archiveOfArchives = zip("b-widget.zip", artifact("widget.json", "widget"), "a-page.zip", artifact("page.json", "page"));
+
+        BulkImportReport bulkReport = bulkImporter.importArtifacts(List.of(file("project.zip", archiveOfArchives)), true);
+
+        assertThat(bulkReport.getEntries()).extracting(BulkImportReport.Entry::getFileName).containsExactly("a-page.zip", "b-widget.zip");
+        ArgumentCaptor<Path> imported = ArgumentCaptor.forClass(Path.class);
+        verify(artifactBuilder, times(2)).importArtifact(imported.capture(), eq(true));
+        assertThat(imported.getAllValues().get(0).resolve("resources/page.json")).exists();
+        assertThat(imported.getAllValues().get(1).resolve("resources/widget.json")).exists();
+    }
+
+    @Test
+    void should_report_invalid_archives_without_importing_them() throws Exception {
+        ImportReport report = mock(ImportReport.class);
+        when(artifactBuilder.importArtifact(any(Path.class), eq(false))).thenReturn(report);
+        var notAZip = file("notAZip.zip", "foo".getBytes());
+        var noModel = file("noModel.zip", zip("resources/assets/js/script.js", "alert()".getBytes()));
+        var page = file("page.zip", artifact("page.json", "page"));
+
+        BulkImportReport bulkReport = bulkImporter.importArtifacts(List.of(notAZip, noModel, page), false);
+
+        assertThat(bulkReport.getEntries()).hasSize(3);
+        assertThat(bulkReport.getEntries().get(0).getError()).isNotNull();
+        assertThat(bulkReport.getEntries().get(1).getError()).isNotNull();
+        assertThat(bulkReport.getEntries().get(2).getReport()).isSameAs(report);
+        verify(artifactBuilder).importArtifact(any(Path.class), eq(false));
+    }
+
+    @Test
+    void should_keep_importing_when_an_archive_fails_to_import() throws Exception {
+        ImportReport report = mock(ImportReport.class);
+        when(artifactBuilder.importArtifact(any(Path.class), eq(false)))
+                .thenThrow(new ImportException(ImportException.Type.SERVER_ERROR, "an error message"))
+                .thenReturn(report);
+
+        BulkImportReport bulkReport = bulkImporter.importArtifacts(List.of(
+                file("first.zip", artifact("page.json", "first")),
+                file("second.zip", artifact("page.json", "second"))), false);
+
+        assertThat(bulkReport.getEntries().get(0).getError()).isNotNull();
+        assertThat(bulkReport.getEntries().get(1).getReport()).isSameAs(report);
+    }
+
+    @Test
+    void should_refuse_too_many_archives() throws Exception {
+        importProperties.setMaxBulkFiles(1);
+        byte[] archiveOfArchives = zip("a-page.zip", artifact("page.json", "a"), "b-page.zip", artifact("page.json", "b"));
+
+        var files = List.<MultipartFile>of(file("project.zip", archiveOfArchives));
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> bulkImporter.importArtifacts(files, false));
+
+        assertThat(exception).hasMessage("Cannot import more than 1 files at once");
+        verify(artifactBuilder, never()).importArtifact(any(Path.class), eq(false));
+    }
+
+    @Test
+    void should_refuse_archives_too_large_together_once_uncompressed() throws Exception {
+        importProperties.setMaxUncompressedSize(DataSize.ofBytes(1500));
+        List<MultipartFile> files = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            files.add(file("page" + i + ".zip", artifact("page.json", "0".repeat(500))));
+        }
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> bulkImporter.importArtifacts(files, false));
+
+        assertThat(exception).hasMessage("Cannot import these files: Zip content exceeds 1500 bytes once uncompressed");
+        verify(artifactBuilder, never()).importArtifact(any(Path.class), eq(false));
+    }
+
+    @Test
+    void should_count_entries_of_nested_archives_together() throws Exception {
+        importProperties.setMaxEntries(4);
+        byte[] archiveOfArchives = zip("a-page.zip", artifact("page.json", "a"), "b-page.zip", artifact("page.json", "b"),
+                "c-page.zip", artifact("page.json", "c"));
+
+        var files = List.<MultipartFile>of(file("project.zip", archiveOfArchives));
+
+        var exception = assertThrows(IllegalArgumentException.class, () -> bulkImporter.importArtifacts(files, false));
+
+        assertThat(exception).hasMessage("Cannot import these files: Zip content contains more than 4 entries");
+        verify(artifactBuilder, never()).importArtifact(any(Path.class), eq(false));
+    }
+
+    private MockMultipartFile file(String name, byte[] content) {
+        return new MockMultipartFile("file", name, "application/zip", content);
+    }
+
+    private byte[] artifact(String modelFile, String model) throws IOException {
+        return zip("resources/" + modelFile, model.getBytes());
+    }
+
+    private byte[] zip(Object... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry((String) namesAndContents[i]));
+                zip.write((byte[]) namesAndContents[i + 1]);
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
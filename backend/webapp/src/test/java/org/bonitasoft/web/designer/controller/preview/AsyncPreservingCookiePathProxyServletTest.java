@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.controller.preview.PreservingCookiePathProxyServlet.P_PORTAL_PASSWORD;
+import static org.bonitasoft.web.designer.controller.preview.PreservingCookiePathProxyServlet.P_PORTAL_USER;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.bonitasoft.web.designer.config.ProxyProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mitre.dsmiley.httpproxy.ProxyServlet;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class AsyncPreservingCookiePathProxyServletTest {
+
+    private static final int SERVLET_THREADS = 4;
+
+    @TempDir
+    Path tomcatDir;
+
+    private HttpServer portal;
+
+    private ProxyConnectionPool pool;
+
+    private Tomcat tomcat;
+
+    private final HttpClient browser = HttpClient.newHttpClient();
+
+    private final AtomicInteger logins = new AtomicInteger();
+
+    private final AtomicInteger slowCalls = new AtomicInteger();
+
+    private final CountDownLatch slowCallsReleased = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() throws IOException, LifecycleException {
+        portal = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        portal.setExecutor(Executors.newCachedThreadPool());
+        portal.createContext("/bonita/API/echo", exchange -> {
+            var body = exchange.getRequestMethod() + " " + new String(exchange.getRequestBody().readAllBytes(), UTF_8)
+                    + " " + exchange.getRequestURI().getQuery();
+            exchange.getResponseHeaders().add("Set-Cookie", "X-Bonita-API-Token=token; Path=/bonita");
+            exchange.getResponseHeaders().add("Content-Type", "text/plain");
+            send(exchange, 200, body);
+        });
+        portal.createContext("/bonita/API/slow", exchange -> {
+            slowCalls.incrementAndGet();
+            try {
+                slowCallsReleased.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            send(exchange, 200, "slow");
+        });
+        portal.createContext("/bonita/API/secured", exchange -> {
+            var cookie = exchange.getRequestHeaders().getFirst("Cookie");
+            if ("JSESSIONID=session1".equals(cookie)) {
+                send(exchange, 200, "secured");
+            } else {
+                send(exchange, 401, "unauthorized");
+            }
+        });
+        portal.createContext("/bonita/loginservice", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Set-Cookie", "JSESSIONID=session" + logins.incrementAndGet() + "; Path=/bonita");
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        portal.start();
+
+        var proxyProperties = new ProxyProperties();
+        proxyProperties.getAsync().setEnabled(true);
+        pool = new ProxyConnectionPool(proxyProperties);
+        var servlet = new AsyncPreservingCookiePathProxyServlet(pool.getHttpClient(), pool.getAsyncHttpClient(),
+                pool.getAsyncRequestTimeout(), new BonitaPortalSessions(pool, proxyProperties));
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(tomcatDir.toString());
+        tomcat.setPort(0);
+        tomcat.getConnector().setProperty("maxThreads", String.valueOf(SERVLET_THREADS));
+        var context = tomcat.addContext("", null);
+        var wrapper = Tomcat.addServlet(context, "bonita-API-Proxy", servlet);
+        wrapper.setAsyncSupported(true);
+        wrapper.addInitParameter(ProxyServlet.P_TARGET_URI, "http://localhost:" + portal.getAddress().getPort() + "/bonita/API");
+        wrapper.addInitParameter(ProxyServlet.P_PRESERVECOOKIES, "true");
+        wrapper.addInitParameter(P_PORTAL_USER, "walter.bates");
+        wrapper.addInitParameter(P_PORTAL_PASSWORD, "bpm");
+        context.addServletMappingDecoded("/API/*", "bonita-API-Proxy");
+        tomcat.start();
+    }
+
+    @AfterEach
+    void tearDown() throws LifecycleException {
+        slowCallsReleased.countDown();
+        tomcat.stop();
+        tomcat.destroy();
+        pool.close();
+        portal.stop(0);
+    }
+
+    @Test
+    void should_proxy_request_and_response() throws Exception {
+        var response = browser.send(HttpRequest.newBuilder(uri("/API/echo?p=0&c=10"))
+                .POST(BodyPublishers.ofString("{\"name\":\"walter\"}"))
+                .build(), BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("POST {\"name\":\"walter\"} p=0&c=10");
+        assertThat(response.headers().firstValue("Content-Type")).hasValue("text/plain");
+        assertThat(response.headers().firstValue("Set-Cookie")).hasValueSatisfying(cookie -> assertThat(cookie)
+                .startsWith("X-Bonita-API-Token=token").contains("Path=/bonita"));
+    }
+
+    @Test
+    void should_not_hold_a_servlet_thread_while_the_portal_answers() throws Exception {
+        var calls = SERVLET_THREADS * 5;
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            responses.add(browser.sendAsync(HttpRequest.newBuilder(uri("/API/slow")).build(), BodyHandlers.ofString()));
+        }
+
+        var deadline = System.currentTimeMillis() + 10_000;
+        while (slowCalls.get() < calls && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(slowCalls).hasValue(calls);
+        slowCallsReleased.countDown();
+
+        for (var response : responses) {
+            assertThat(response.get(10, TimeUnit.SECONDS).body()).isEqualTo("slow");
+        }
+    }
+
+    @Test
+    void should_log_in_and_send_call_again_when_portal_requires_a_login() throws Exception {
+        var response = browser.send(HttpRequest.newBuilder(uri("/API/secured")).build(), BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.body()).isEqualTo("secured");
+        assertThat(logins).hasValue(1);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + tomcat.getConnector().getLocalPort() + path);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        var bytes = body.getBytes(UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
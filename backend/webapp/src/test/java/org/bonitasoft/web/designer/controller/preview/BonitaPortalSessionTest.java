@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.web.designer.config.ProxyProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+class BonitaPortalSessionTest {
+
+    private HttpServer server;
+
+    private ProxyConnectionPool pool;
+
+    private final AtomicInteger logins = new AtomicInteger();
+
+    private volatile int loginStatus = 200;
+
+    private volatile CountDownLatch loginReleased = new CountDownLatch(0);
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/bonita/loginservice", exchange -> {
+            try {
+                loginReleased.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Set-Cookie", "JSESSIONID=session" + logins.incrementAndGet() + "; Path=/bonita");
+            exchange.sendResponseHeaders(loginStatus, -1);
+            exchange.close();
+        });
+        server.start();
+        pool = new ProxyConnectionPool(new ProxyProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        server.stop(0);
+    }
+
+    @Test
+    void should_have_no_session_before_first_login() throws IOException {
+        assertThat(newSession(0).currentId()).isNull();
+        assertThat(logins).hasValue(0);
+    }
+
+    @Test
+    void should_log_in_once_for_requests_rejected_at_the_same_time() throws Exception {
+        var session = newSession(0);
+        loginReleased = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(30);
+        try {
+            List<Future<String>> renewals = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                renewals.add(executor.submit((Callable<String>) () -> session.renew(null)));
+            }
+            Thread.sleep(200);
+            loginReleased.countDown();
+
+            for (var renewal : renewals) {
+                assertThat(renewal.get(5, TimeUnit.SECONDS)).isEqualTo("JSESSIONID=session1");
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(logins).hasValue(1);
+        assertThat(session.currentId()).isEqualTo("JSESSIONID=session1");
+    }
+
+    @Test
+    void should_not_log_in_again_when_rejected_session_has_already_been_replaced() throws IOException {
+        var session = newSession(0);
+        session.renew(null);
+        session.renew("JSESSIONID=session1");
+
+        assertThat(session.renew("JSESSIONID=session1")).isEqualTo("JSESSIONID=session2");
+        assertThat(logins).hasValue(2);
+    }
+
+    @Test
+    void should_return_null_when_portal_refuses_credentials() throws IOException {
+        loginStatus = 401;
+        var session = newSession(0);
+
+        assertThat(session.renew(null)).isNull();
+        assertThat(session.currentId()).isNull();
+    }
+
+    @Test
+    void should_refresh_session_before_it_expires() throws Exception {
+        var session = newSession(1);
+        session.renew(null);
+        Thread.sleep(10);
+
+        assertThat(session.currentId()).isEqualTo("JSESSIONID=session2");
+        assertThat(logins).hasValue(2);
+    }
+
+    @Test
+    void should_share_session_between_proxy_servlets_of_the_same_portal() {
+        var sessions = new BonitaPortalSessions(pool, new ProxyProperties());
+        var loginServletURI = loginServletURI();
+
+        assertThat(sessions.get(loginServletURI, "walter.bates", "bpm"))
+                .isSameAs(sessions.get(loginServletURI, "walter.bates", "bpm"))
+                .isNotSameAs(sessions.get(loginServletURI, "helen.kelly", "bpm"));
+    }
+
+    private BonitaPortalSession newSession(long refreshAfterMillis) {
+        return new BonitaPortalSession(loginServletURI(), "walter.bates", "bpm", pool.getHttpClient(), refreshAfterMillis);
+    }
+
+    private URI loginServletURI() {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + "/bonita/loginservice");
+    }
+}
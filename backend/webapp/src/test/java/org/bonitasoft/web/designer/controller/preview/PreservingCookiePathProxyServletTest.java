@@ -0,0 +1,163 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.controller.preview.PreservingCookiePathProxyServlet.P_PORTAL_PASSWORD;
+import static org.bonitasoft.web.designer.controller.preview.PreservingCookiePathProxyServlet.P_PORTAL_USER;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.startup.Tomcat;
+import org.bonitasoft.web.designer.config.ProxyProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mitre.dsmiley.httpproxy.ProxyServlet;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+class PreservingCookiePathProxyServletTest {
+
+    private static final int POOL_SIZE = 2;
+
+    @TempDir
+    Path tomcatDir;
+
+    private HttpServer portal;
+
+    private ProxyConnectionPool pool;
+
+    private Tomcat tomcat;
+
+    private final HttpClient browser = HttpClient.newHttpClient();
+
+    private final AtomicInteger logins = new AtomicInteger();
+
+    private volatile int loginStatus = 200;
+
+    /**
+     * Rejected calls are answered together, so that they all hold a connection at the same time
+     */
+    private final CountDownLatch rejectedCalls = new CountDownLatch(POOL_SIZE);
+
+    @BeforeEach
+    void setUp() throws IOException, LifecycleException {
+        portal = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        portal.setExecutor(Executors.newCachedThreadPool());
+        portal.createContext("/bonita/API/secured", exchange -> {
+            if ("JSESSIONID=session1".equals(exchange.getRequestHeaders().getFirst("Cookie"))) {
+                send(exchange, 200, "secured");
+                return;
+            }
+            rejectedCalls.countDown();
+            try {
+                rejectedCalls.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            send(exchange, 401, "unauthorized");
+        });
+        portal.createContext("/bonita/loginservice", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            exchange.getResponseHeaders().add("Set-Cookie", "JSESSIONID=session" + logins.incrementAndGet() + "; Path=/bonita");
+            exchange.sendResponseHeaders(loginStatus, -1);
+            exchange.close();
+        });
+        portal.start();
+
+        var proxyProperties = new ProxyProperties();
+        proxyProperties.getPool().setMaxTotal(POOL_SIZE);
+        proxyProperties.getPool().setMaxPerRoute(POOL_SIZE);
+        proxyProperties.getPool().setConnectionRequestTimeout(Duration.ofSeconds(2));
+        pool = new ProxyConnectionPool(proxyProperties);
+        var servlet = new PreservingCookiePathProxyServlet(pool.getHttpClient(), new BonitaPortalSessions(pool, proxyProperties));
+
+        tomcat = new Tomcat();
+        tomcat.setBaseDir(tomcatDir.toString());
+        tomcat.setPort(0);
+        var context = tomcat.addContext("", null);
+        var wrapper = Tomcat.addServlet(context, "bonita-API-Proxy", servlet);
+        wrapper.addInitParameter(ProxyServlet.P_TARGET_URI, "http://localhost:" + portal.getAddress().getPort() + "/bonita/API");
+        wrapper.addInitParameter(ProxyServlet.P_PRESERVECOOKIES, "true");
+        wrapper.addInitParameter(P_PORTAL_USER, "walter.bates");
+        wrapper.addInitParameter(P_PORTAL_PASSWORD, "bpm");
+        context.addServletMappingDecoded("/API/*", "bonita-API-Proxy");
+        tomcat.start();
+    }
+
+    @AfterEach
+    void tearDown() throws LifecycleException {
+        tomcat.stop();
+        tomcat.destroy();
+        pool.close();
+        portal.stop(0);
+    }
+
+    @Test
+    void should_log_in_when_more_calls_are_rejected_than_the_pool_has_connections() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < POOL_SIZE * 2; i++) {
+            responses.add(browser.sendAsync(HttpRequest.newBuilder(uri("/API/secured")).build(), BodyHandlers.ofString()));
+        }
+
+        for (var response : responses) {
+            assertThat(response.get(10, TimeUnit.SECONDS).statusCode()).isEqualTo(200);
+            assertThat(response.get().body()).isEqualTo("secured");
+        }
+        assertThat(logins).hasValue(1);
+    }
+
+    @Test
+    void should_send_back_the_rejection_when_portal_refuses_the_credentials() throws Exception {
+        loginStatus = 401;
+        rejectedCalls.countDown();
+
+        var response = browser.send(HttpRequest.newBuilder(uri("/API/secured")).build(), BodyHandlers.ofString());
+
+        assertThat(response.statusCode()).isEqualTo(401);
+        assertThat(response.body()).isEqualTo("unauthorized");
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + tomcat.getConnector().getLocalPort() + path);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        var bytes = body.getBytes(UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.Duration;
+
+import org.bonitasoft.web.designer.config.PreviewProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PreviewHtmlCacheTest {
+
+    private PreviewProperties previewProperties;
+
+    private PreviewHtmlCache cache;
+
+    @BeforeEach
+    void setUp() {
+        previewProperties = new PreviewProperties();
+        previewProperties.getCache().setMaxEntries(2);
+        cache = new PreviewHtmlCache(previewProperties);
+    }
+
+    @Test
+    void should_return_stored_document() {
+        cache.put(cache.keyFor("page", "my-page", "/runtime/"), "<html></html>");
+
+        assertThat(cache.get(cache.keyFor("page", "my-page", "/runtime/"))).isEqualTo("<html></html>");
+        assertThat(cache.get(cache.keyFor("page", "my-page", "/bonita/runtime/"))).isNull();
+        assertThat(cache.get(cache.keyFor("fragment", "my-page", "/runtime/"))).isNull();
+    }
+
+    @Test
+    void should_evict_least_recently_used_document_when_full() {
+        cache.put(cache.keyFor("page", "page1", "/runtime/"), "page1");
+        cache.put(cache.keyFor("page", "page2", "/runtime/"), "page2");
+        cache.get(cache.keyFor("page", "page1", "/runtime/"));
+
+        cache.put(cache.keyFor("page", "page3", "/runtime/"), "page3");
+
+        assertThat(cache.get(cache.keyFor("page", "page1", "/runtime/"))).isEqualTo("page1");
+        assertThat(cache.get(cache.keyFor("page", "page2", "/runtime/"))).isNull();
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void should_not_return_expired_document() {
+        previewProperties.getCache().setTimeToLive(Duration.ZERO.minusMillis(1));
+        cache = new PreviewHtmlCache(previewProperties);
+        cache.put(cache.keyFor("page", "my-page", "/runtime/"), "<html></html>");
+
+        assertThat(cache.get(cache.keyFor("page", "my-page", "/runtime/"))).isNull();
+    }
+
+    @Test
+    void should_be_invalidated_when_a_previewable_update_is_published() {
+        cache.put(cache.keyFor("page", "my-page", "/runtime/"), "<html></html>");
+        var headers = SimpMessageHeaderAccessor.create();
+        headers.setDestination("/previewableUpdates");
+
+        cache.preSend(MessageBuilder.createMessage("my-page".getBytes(), headers.getMessageHeaders()), null);
+
+        assertThat(cache.get(cache.keyFor("page", "my-page", "/runtime/"))).isNull();
+    }
+
+    @Test
+    void should_not_store_a_document_generated_before_an_invalidation() {
+        var key = cache.keyFor("page", "my-page", "/runtime/");
+
+        cache.invalidateAll();
+        cache.put(key, "<html>outdated</html>");
+
+        assertThat(cache.get(cache.keyFor("page", "my-page", "/runtime/"))).isNull();
+    }
+
+    @Test
+    void should_publish_hits_misses_and_evictions() {
+        var registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        cache.put(cache.keyFor("page", "my-page", "/runtime/"), "<html></html>");
+
+        cache.get(cache.keyFor("page", "my-page", "/runtime/"));
+        cache.get(cache.keyFor("page", "other-page", "/runtime/"));
+        cache.invalidateAll();
+
+        assertThat(registry.get("cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.evictions").functionCounter().count()).isEqualTo(1);
+    }
+}
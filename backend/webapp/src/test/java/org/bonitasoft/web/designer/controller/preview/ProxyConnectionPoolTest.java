@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.bonitasoft.web.designer.config.ProxyProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ProxyConnectionPoolTest {
+
+    private HttpServer server;
+
+    private ProxyConnectionPool pool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            var body = "ok".getBytes(UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+
+        var proxyProperties = new ProxyProperties();
+        proxyProperties.getPool().setMaxTotal(8);
+        proxyProperties.getPool().setMaxPerRoute(4);
+        pool = new ProxyConnectionPool(proxyProperties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+        server.stop(0);
+    }
+
+    @Test
+    void should_apply_pool_limits() {
+        assertThat(pool.getStats().getMax()).isEqualTo(8);
+    }
+
+    @Test
+    void should_keep_connections_alive_between_requests() throws IOException {
+        get("/API/first");
+        get("/API/second");
+
+        assertThat(pool.getStats().getLeased()).isZero();
+        assertThat(pool.getStats().getAvailable()).isEqualTo(1);
+    }
+
+    @Test
+    void should_be_used_by_proxy_servlets_created_with_it() {
+        var servlet = new PreservingCookiePathProxyServlet(pool.getHttpClient());
+
+        assertThat(servlet.createHttpClient()).isSameAs(pool.getHttpClient());
+    }
+
+    @Test
+    void should_still_serve_requests_once_a_proxy_servlet_is_destroyed() throws IOException {
+        var servlet = new PreservingCookiePathProxyServlet(pool.getHttpClient());
+
+        servlet.destroy();
+
+        assertThat(get("/theme/theme.css")).isEqualTo("ok");
+    }
+
+    @Test
+    void should_publish_pool_metrics() {
+        var registry = new SimpleMeterRegistry();
+
+        pool.bindTo(registry);
+
+        assertThat(registry.get("httpcomponents.httpclient.pool.total.max").tag("httpclient", "bonitaProxy").gauge().value())
+                .isEqualTo(8);
+    }
+
+    private String get(String path) throws IOException {
+        var uri = "http://localhost:" + server.getAddress().getPort() + path;
+        return EntityUtils.toString(pool.getHttpClient().execute(new HttpGet(uri)).getEntity());
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.preview;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.InputStreamEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.util.EntityUtils;
+import org.bonitasoft.web.designer.config.ProxyProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+
+class ProxyResponseCacheTest {
+
+    private static final String THEME_URI = "http://localhost:8081/bonita/theme/theme.css";
+
+    private ProxyProperties proxyProperties;
+
+    private ProxyResponseCache cache;
+
+    private final List<HttpRequest> sentRequests = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        proxyProperties = new ProxyProperties();
+        proxyProperties.getCache().setMaxSize(DataSize.ofBytes(20));
+        cache = new ProxyResponseCache(proxyProperties);
+    }
+
+    @Test
+    void should_serve_fresh_response_without_calling_the_portal() throws IOException {
+        get(THEME_URI, response(200, "body{}", "Cache-Control", "max-age=60"));
+
+        var response = get(THEME_URI, response(200, "changed", "Cache-Control", "max-age=60"));
+
+        assertThat(body(response)).isEqualTo("body{}");
+        assertThat(response.getFirstHeader("Cache-Control").getValue()).isEqualTo("max-age=60");
+        assertThat(sentRequests).hasSize(1);
+    }
+
+    @Test
+    void should_revalidate_stale_response_with_its_etag() throws IOException {
+        get(THEME_URI, response(200, "body{}", "ETag", "\"v1\""));
+
+        var response = get(THEME_URI, response(304, null, "ETag", "\"v1\""));
+
+        assertThat(sentRequests.get(1).getFirstHeader("If-None-Match").getValue()).isEqualTo("\"v1\"");
+        assertThat(response.getStatusLine().getStatusCode()).isEqualTo(200);
+        assertThat(body(response)).isEqualTo("body{}");
+    }
+
+    @Test
+    void should_replace_stale_response_modified_on_the_portal() throws IOException {
+        get(THEME_URI, response(200, "body{}", "Last-Modified", "Mon, 12 Oct 2026 10:00:00 GMT"));
+
+        get(THEME_URI, response(200, "main{}", "Last-Modified", "Tue, 13 Oct 2026 10:00:00 GMT"));
+        var response = get(THEME_URI, response(304, null));
+
+        assertThat(sentRequests.get(1).getFirstHeader("If-Modified-Since").getValue()).isEqualTo("Mon, 12 Oct 2026 10:00:00 GMT");
+        assertThat(body(response)).isEqualTo("main{}");
+    }
+
+    @Test
+    void should_answer_browser_conditional_request_from_the_cache() throws IOException {
+        get(THEME_URI, response(200, "body{}", "Cache-Control", "max-age=60", "ETag", "W/\"v1\""));
+        var browserRequest = new MockHttpServletRequest();
+        browserRequest.addHeader("If-None-Match", "\"v0\", \"v1\"");
+
+        var response = cache.execute(browserRequest, new BasicHttpRequest("GET", THEME_URI), request -> {
+            throw new AssertionError("portal should not be called");
+        });
+
+        assertThat(response.getStatusLine().getStatusCode()).isEqualTo(304);
+        assertThat(response.getEntity()).isNull();
+    }
+
+    @Test
+    void should_not_store_responses_the_portal_forbids_to_share() throws IOException {
+        get(THEME_URI, response(200, "body{}", "Cache-Control", "private, max-age=60"));
+        get(THEME_URI, response(200, "body{}", "Cache-Control", "no-store"));
+        get(THEME_URI, response(200, "body{}"));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void should_not_replay_cookies() throws IOException {
+        get(THEME_URI, response(200, "body{}", "Cache-Control", "max-age=60", "Set-Cookie", "JSESSIONID=1"));
+
+        var response = get(THEME_URI, null);
+
+        assertThat(response.getFirstHeader("Set-Cookie")).isNull();
+    }
+
+    @Test
+    void should_evict_least_recently_used_responses_when_full() throws IOException {
+        get("http://localhost/theme/a.css", response(200, "aaaaaaaa", "Cache-Control", "max-age=60"));
+        get("http://localhost/theme/b.css", response(200, "bbbbbbbb", "Cache-Control", "max-age=60"));
+        get("http://localhost/theme/a.css", null);
+
+        get("http://localhost/theme/c.css", response(200, "cccccccc", "Cache-Control", "max-age=60"));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(body(get("http://localhost/theme/a.css", null))).isEqualTo("aaaaaaaa");
+    }
+
+    @Test
+    void should_give_back_too_large_response_untouched() throws IOException {
+        var content = "a large body which does not fit";
+        var upstream = response(200, null, "Cache-Control", "max-age=60");
+        upstream.setEntity(new InputStreamEntity(new ByteArrayInputStream(content.getBytes(UTF_8))));
+
+        var response = get(THEME_URI, upstream);
+
+        assertThat(body(response)).isEqualTo(content);
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void should_purge_all_responses() throws IOException {
+        get(THEME_URI, response(200, "body{}", "Cache-Control", "max-age=60"));
+
+        cache.invalidateAll();
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void should_not_be_used_for_other_methods_than_get() throws IOException {
+        var request = new BasicHttpRequest("POST", THEME_URI);
+        cache.execute(new MockHttpServletRequest(), request, r -> response(200, "ok", "Cache-Control", "max-age=60"));
+
+        assertThat(cache.size()).isZero();
+    }
+
+    private HttpResponse get(String uri, HttpResponse upstream) throws IOException {
+        return cache.execute(new MockHttpServletRequest(), new BasicHttpRequest("GET", uri), request -> {
+            sentRequests.add(request);
+            return upstream;
+        });
+    }
+
+    private static HttpResponse response(int status, String body, String... headers) {
+        var response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status, null);
+        for (int i = 0; i < headers.length; i += 2) {
+            response.addHeader(headers[i], headers[i + 1]);
+        }
+        if (body != null) {
+            response.setEntity(new StringEntity(body, UTF_8));
+        }
+        return response;
+    }
+
+    private static String body(HttpResponse response) throws IOException {
+        return EntityUtils.toString(response.getEntity(), UTF_8);
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.controller.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.GZIPInputStream;
+
+import org.bonitasoft.web.designer.config.CompressionProperties;
+import org.bonitasoft.web.designer.config.WorkspaceUidProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+
+class CompressedFileCacheTest {
+
+    @TempDir
+    Path workspaceUidPath;
+
+    @TempDir
+    Path workspacePath;
+
+    private CompressionProperties compressionProperties;
+
+    private CompressedFileCache compressedFileCache;
+
+    @BeforeEach
+    void setUp() {
+        var workspaceUidProperties = new WorkspaceUidProperties();
+        workspaceUidProperties.setPath(workspaceUidPath);
+        compressionProperties = new CompressionProperties();
+        compressionProperties.setMinSize(10);
+        compressedFileCache = new CompressedFileCache(workspaceUidProperties, compressionProperties);
+    }
+
+    @Test
+    void should_create_gzip_copy_in_workspace_uid() throws Exception {
+        var file = Files.writeString(workspacePath.resolve("widget.js"), "angular.module('widget', []);");
+
+        var gzip = compressedFileCache.gzip(file, "application/javascript");
+
+        assertThat(gzip).startsWith(workspaceUidPath);
+        assertThat(gunzip(gzip)).isEqualTo("angular.module('widget', []);");
+    }
+
+    @Test
+    void should_regenerate_gzip_copy_when_file_is_modified() throws Exception {
+        var file = Files.writeString(workspacePath.resolve("widget.js"), "angular.module('widget', []);");
+        compressedFileCache.gzip(file, "application/javascript");
+
+        Files.writeString(file, "angular.module('updatedWidget', []);");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 5000));
+        var gzip = compressedFileCache.gzip(file, "application/javascript");
+
+        assertThat(gunzip(gzip)).isEqualTo("angular.module('updatedWidget', []);");
+    }
+
+    @Test
+    void should_regenerate_gzip_copy_when_file_is_rewritten_within_the_same_second() throws Exception {
+        var file = Files.writeString(workspacePath.resolve("widget.js"), "angular.module('widget1', []);");
+        var lastModified = Files.getLastModifiedTime(file);
+        compressedFileCache.gzip(file, "application/javascript");
+
+        Files.writeString(file, "angular.module('widget2', []);");
+        Files.setLastModifiedTime(file, lastModified);
+        var gzip = compressedFileCache.gzip(file, "application/javascript");
+
+        assertThat(gunzip(gzip)).isEqualTo("angular.module('widget2', []);");
+    }
+
+    @Test
+    void should_regenerate_gzip_copy_when_file_size_changes() throws Exception {
+        var file = Files.writeString(workspacePath.resolve("widget.js"), "angular.module('widget', []);");
+        var lastModified = FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() - 60000);
+        Files.setLastModifiedTime(file, lastModified);
+        compressedFileCache.gzip(file, "application/javascript");
+
+        Files.writeString(file, "angular.module('updatedWidget', []);");
+        Files.setLastModifiedTime(file, lastModified);
+        var gzip = compressedFileCache.gzip(file, "application/javascript");
+
+        assertThat(gunzip(gzip)).isEqualTo("angular.module('updatedWidget', []);");
+    }
+
+    @Test
+    void should_delete_previous_gzip_copy_of_a_file() throws Exception {
+        var file = Files.writeString(workspacePath.resolve("widget.js"), "angular.module('widget', []);");
+        var previous = compressedFileCache.gzip(file, "application/javascript");
+
+        Files.writeString(file, "angular.module('updatedWidget', []);");
+        var gzip = compressedFileCache.gzip(file, "application/javascript");
+
+        assertThat(previous).doesNotExist();
+        assertThat(gzip).exists();
+    }
+
+    @Test
+    void should_delete_oldest_gzip_copies_when_cache_is_full() throws Exception {
+        compressionProperties.setMaxCacheSize(DataSize.ofBytes(120));
+        var oldest = compressedFileCache.gzip(Files.writeString(workspacePath.resolve("deleted.js"), "angular.module('deleted', []);"), "application/javascript");
+        Files.setLastModifiedTime(oldest, FileTime.fromMillis(Files.getLastModifiedTime(oldest).toMillis() - 60000));
+        var recent = compressedFileCache.gzip(Files.writeString(workspacePath.resolve("recent.js"), "angular.module('recent', []);"), "application/javascript");
+
+        var gzip = compressedFileCache.gzip(Files.writeString(workspacePath.resolve("widget.js"), "angular.module('widget', []);"), "application/javascript");
+
+        assertThat(oldest).doesNotExist();
+        assertThat(recent).exists();
+        assertThat(gzip).exists();
+    }
+
+    @Test
+    void should_not_compress_small_or_binary_files() throws Exception {
+        var small = Files.writeString(workspacePath.resolve("small.js"), "a");
+        var image = Files.writeString(workspacePath.resolve("image.png"), "not really an image");
+
+        assertThat(compressedFileCache.gzip(small, "application/javascript")).isNull();
+        assertThat(compressedFileCache.gzip(image, "image/png")).isNull();
+    }
+
+    @Test
+    void should_check_if_gzip_is_accepted_by_the_client() {
+        assertThat(compressedFileCache.isAccepted(requestAccepting("gzip, deflate, br"))).isTrue();
+        assertThat(compressedFileCache.isAccepted(requestAccepting("deflate, gzip;q=0.5"))).isTrue();
+        assertThat(compressedFileCache.isAccepted(requestAccepting("gzip;q=0"))).isFalse();
+        assertThat(compressedFileCache.isAccepted(requestAccepting("br"))).isFalse();
+        assertThat(compressedFileCache.isAccepted(new MockHttpServletRequest())).isFalse();
+
+        compressionProperties.setEnabled(false);
+        assertThat(compressedFileCache.isAccepted(requestAccepting("gzip"))).isFalse();
+    }
+
+    private MockHttpServletRequest requestAccepting(String encodings) {
+        var request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", encodings);
+        return request;
+    }
+
+    private String gunzip(Path gzip) throws Exception {
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(gzip))) {
+            return new String(in.readAllBytes());
+        }
+    }
+}
@@ -15,6 +15,12 @@
 package org.bonitasoft.web.designer.controller.utils;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -40,4 +46,138 @@ public class HttpFileTest {
     public void should_find_filename_when_no_full_path(){
         assertThat(HttpFile.getOriginalFilename("myfile.js")).isEqualTo("myfile.js");
     }
+
+    @Test
+    public void should_download_the_requested_range_of_a_file(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=2-4");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-4/10");
+        assertThat(response.getHeader("Content-Length")).isEqualTo("3");
+        assertThat(response.getContentAsString()).isEqualTo("234");
+    }
+
+    @Test
+    public void should_download_several_ranges_of_a_file_as_multipart(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=0-1,-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        assertThat(response.getContentAsString())
+                .contains("Content-Range: bytes 0-1/10\r\n\r\n01\r\n")
+                .contains("Content-Range: bytes 8-9/10\r\n\r\n89\r\n");
+    }
+
+    @Test
+    public void should_respond_416_when_range_is_outside_of_the_file(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=20-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes */10");
+    }
+
+    @Test
+    public void should_download_the_whole_file_when_range_is_invalid(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=4-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("Content-Range")).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    public void should_only_send_satisfiable_ranges(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=2-4,20-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-4/10");
+        assertThat(response.getContentAsString()).isEqualTo("234");
+    }
+
+    @Test
+    public void should_merge_overlapping_and_adjacent_ranges(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=7-8,0-1,1-2,3-3");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        assertThat(response.getContentAsString())
+                .contains("Content-Range: bytes 0-3/10\r\n\r\n0123\r\n")
+                .contains("Content-Range: bytes 7-8/10\r\n\r\n78\r\n")
+                .doesNotContain("bytes 0-1/10", "bytes 1-2/10", "bytes 3-3/10");
+        assertThat(response.getContentAsString().indexOf("bytes 0-3/10"))
+                .isLessThan(response.getContentAsString().indexOf("bytes 7-8/10"));
+    }
+
+    @Test
+    public void should_send_a_single_part_when_ranges_merge_into_one(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=2-5,4-6");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader("Content-Range")).isEqualTo("bytes 2-6/10");
+        assertThat(response.getContentAsString()).isEqualTo("23456");
+    }
+
+    @Test
+    public void should_download_the_whole_file_when_ranges_ask_for_more_than_its_size(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=0-5,0-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("Content-Range")).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
+
+    @Test
+    public void should_download_the_whole_file_when_if_range_does_not_match(@TempDir Path tempDir) throws Exception {
+        Path file = Files.writeString(tempDir.resolve("asset.json"), "0123456789");
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/asset.json");
+        request.addHeader("Range", "bytes=2-4");
+        request.addHeader("If-Range", "\"outdated\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        HttpFile.writeFileInResponseForDownload(request, response, file);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader("Accept-Ranges")).isEqualTo("bytes");
+        assertThat(response.getContentAsString()).isEqualTo("0123456789");
+    }
 }
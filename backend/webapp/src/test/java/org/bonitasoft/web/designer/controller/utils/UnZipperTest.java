@@ -15,13 +15,19 @@
 package org.bonitasoft.web.designer.controller.utils;
 
 import org.apache.commons.io.FileUtils;
+import org.bonitasoft.web.designer.config.ImportProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -30,9 +36,12 @@ public class UnZipperTest {
 
     private UnZipper unzipper;
 
+    private ImportProperties importProperties;
+
     @BeforeEach
     public void setUp() throws IOException {
-        unzipper = new UnZipper();
+        importProperties = new ImportProperties();
+        unzipper = new UnZipper(importProperties);
     }
 
     @Test
@@ -56,4 +65,66 @@ public class UnZipperTest {
         // clean
         FileUtils.deleteDirectory(unzipInTempDir.toFile());
     }
+
+    @Test
+    public void should_refuse_zip_file_with_too_many_entries() throws Exception {
+        importProperties.setMaxEntries(2);
+
+        InputStream stream = zip("a.json", "{}", "b.json", "{}", "c.json", "{}");
+
+        assertThrows(ZipException.class, () -> unzipper.unzipInTempDir(stream, "aPrefix"));
+    }
+
+    @Test
+    public void should_refuse_zip_file_too_large_once_uncompressed() throws Exception {
+        importProperties.setMaxUncompressedSize(DataSize.ofBytes(100));
+
+        InputStream stream = zip("bomb.txt", "0".repeat(1000));
+
+        assertThrows(ZipException.class, () -> unzipper.unzipInTempDir(stream, "aPrefix"));
+    }
+
+    @Test
+    public void should_refuse_zip_files_too_large_together_when_sharing_a_budget() throws Exception {
+        importProperties.setMaxUncompressedSize(DataSize.ofBytes(1500));
+        var budget = unzipper.newBudget();
+
+        FileUtils.deleteDirectory(unzipper.unzipInTempDir(zip("first.txt", "0".repeat(1000)), "aPrefix", budget).toFile());
+
+        InputStream stream = zip("second.txt", "0".repeat(1000));
+        assertThrows(ZipException.class, () -> unzipper.unzipInTempDir(stream, "aPrefix", budget));
+        assertThat(budget.isExceeded()).isTrue();
+    }
+
+    @Test
+    public void should_refuse_zip_entries_outside_of_the_temp_folder() throws Exception {
+        InputStream stream = zip("../../evil.txt", "evil");
+
+        assertThrows(ZipException.class, () -> unzipper.unzipInTempDir(stream, "aPrefix"));
+    }
+
+    @Test
+    public void should_unzip_nested_entries() throws Exception {
+        InputStream stream = zip("resources/page.json", "{}", "resources/assets/js/script.js", "alert()");
+
+        Path unzipInTempDir = unzipper.unzipInTempDir(stream, "aPrefix");
+
+        assertThat(unzipInTempDir.resolve("resources/page.json")).hasContent("{}");
+        assertThat(unzipInTempDir.resolve("resources/assets/js/script.js")).hasContent("alert()");
+
+        // clean
+        FileUtils.deleteDirectory(unzipInTempDir.toFile());
+    }
+
+    private InputStream zip(String... namesAndContents) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(namesAndContents[i]));
+                zip.write(namesAndContents[i + 1].getBytes());
+                zip.closeEntry();
+            }
+        }
+        return new ByteArrayInputStream(bytes.toByteArray());
+    }
 }
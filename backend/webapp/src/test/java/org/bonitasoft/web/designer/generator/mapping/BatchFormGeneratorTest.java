@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aSimpleContract;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bonitasoft.web.designer.config.FormGenerationProperties;
+import org.bonitasoft.web.designer.model.page.Page;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class BatchFormGeneratorTest {
+
+    @Mock
+    private FormPageCache formPageCache;
+
+    private BatchFormGenerator batchFormGenerator;
+
+    @BeforeEach
+    void setUp() {
+        var formGenerationProperties = new FormGenerationProperties();
+        formGenerationProperties.setParallelism(4);
+        formGenerationProperties.setMaxBatchSize(50);
+        batchFormGenerator = new BatchFormGenerator(formPageCache, formGenerationProperties);
+        lenient().when(formPageCache.createFormPage(anyString(), any(), any())).thenAnswer(invocation -> {
+            var page = new Page();
+            page.setName(invocation.getArgument(0));
+            return page;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchFormGenerator.shutdown();
+    }
+
+    @Test
+    void should_generate_forms_in_request_order() {
+        var requests = new ArrayList<FormGenerationRequest>();
+        for (var i = 0; i < 50; i++) {
+            requests.add(new FormGenerationRequest("form" + i, i % 2 == 0 ? "task" : "PROCESS", aSimpleContract()));
+        }
+
+        var pages = batchFormGenerator.generate(requests);
+
+        assertThat(pages).extracting(Page::getName)
+                .containsExactlyElementsOf(requests.stream().map(FormGenerationRequest::getName)::iterator);
+    }
+
+    @Test
+    void should_reject_the_whole_batch_when_a_scope_is_unknown() {
+        var requests = List.of(
+                new FormGenerationRequest("taskForm", "task", aSimpleContract()),
+                new FormGenerationRequest("otherForm", "unknown", aSimpleContract()));
+
+        assertThatThrownBy(() -> batchFormGenerator.generate(requests))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Unknown scope unknown for form otherForm");
+        verifyNoInteractions(formPageCache);
+    }
+
+    @Test
+    void should_reject_a_request_without_contract() {
+        var requests = List.of(new FormGenerationRequest("taskForm", "task", null));
+
+        assertThatThrownBy(() -> batchFormGenerator.generate(requests))
+                .isInstanceOf(IllegalArgumentException.class);
+        verifyNoInteractions(formPageCache);
+    }
+
+    @Test
+    void should_reject_a_batch_going_over_max_size() {
+        var requests = new ArrayList<FormGenerationRequest>();
+        for (var i = 0; i < 51; i++) {
+            requests.add(new FormGenerationRequest("form" + i, "task", aSimpleContract()));
+        }
+
+        assertThatThrownBy(() -> batchFormGenerator.generate(requests))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Cannot generate more than 50 forms at once");
+    }
+
+    @Test
+    void should_propagate_a_generation_failure() {
+        when(formPageCache.createFormPage(eq("brokenForm"), any(), any())).thenThrow(new IllegalStateException("broken"));
+        var requests = List.of(
+                new FormGenerationRequest("taskForm", "task", aSimpleContract()),
+                new FormGenerationRequest("brokenForm", "task", aSimpleContract()));
+
+        assertThatThrownBy(() -> batchFormGenerator.generate(requests))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessage("broken");
+    }
+}
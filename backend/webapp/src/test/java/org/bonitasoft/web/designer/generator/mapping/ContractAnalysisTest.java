@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.mapping;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bonitasoft.web.designer.generator.mapping.data.BusinessQueryDataFactory;
+import org.bonitasoft.web.designer.generator.mapping.data.FormInputData;
+import org.bonitasoft.web.designer.generator.mapping.data.FormOutputData;
+import org.bonitasoft.web.designer.model.JacksonJsonHandler;
+import org.bonitasoft.web.designer.model.JsonHandler;
+import org.bonitasoft.web.designer.model.contract.Contract;
+import org.bonitasoft.web.designer.model.contract.EditMode;
+import org.bonitasoft.web.designer.model.page.PageData;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aContractWithDataRefAndAggregation;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aContractWithMultipleInput;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aSimpleContract;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aSimpleContractWithDataRef;
+
+public class ContractAnalysisTest {
+
+    JsonHandler jsonHandler = new JacksonJsonHandler(new ObjectMapper());
+    BusinessQueryDataFactory businessQueryDataFactory = new BusinessQueryDataFactory();
+
+    @Test
+    public void should_need_form_input_when_contract_has_no_data_reference() throws Exception {
+        var analysis = new ContractAnalysis(aSimpleContract(), jsonHandler, businessQueryDataFactory);
+
+        assertThat(analysis.hasFormInput()).isTrue();
+        assertThat(analysis.getBusinessData()).isEmpty();
+        assertThat(analysis.getBusinessDataLazyRefs()).isEmpty();
+        assertThat(analysis.getBusinessQueries()).isEmpty();
+    }
+
+    @Test
+    public void should_find_edited_business_data_and_its_lazy_references() throws Exception {
+        var analysis = new ContractAnalysis(aSimpleContractWithDataRef(EditMode.EDIT), jsonHandler, businessQueryDataFactory);
+
+        assertThat(analysis.hasFormInput()).isFalse();
+        assertThat(analysis.getBusinessData()).extracting(PageData::name).containsExactly("employee");
+        assertThat(analysis.getBusinessDataLazyRefs()).extracting(PageData::name)
+                .containsExactly("employee_manager", "employee_manager_addresses", "employee_addresses");
+    }
+
+    @Test
+    public void should_not_look_for_lazy_references_of_created_business_data() throws Exception {
+        var analysis = new ContractAnalysis(aSimpleContractWithDataRef(EditMode.CREATE), jsonHandler, businessQueryDataFactory);
+
+        assertThat(analysis.hasFormInput()).isTrue();
+        assertThat(analysis.getBusinessData()).isEmpty();
+        assertThat(analysis.getBusinessDataLazyRefs()).isEmpty();
+    }
+
+    @Test
+    public void should_find_queries_of_aggregated_business_data() throws Exception {
+        var analysis = new ContractAnalysis(aContractWithDataRefAndAggregation(EditMode.EDIT), jsonHandler, businessQueryDataFactory);
+
+        assertThat(analysis.getBusinessQueries()).extracting(PageData::name).containsExactly("employee_query");
+    }
+
+    @Test
+    public void should_collect_the_same_form_input_and_output_as_the_contract_visitors() throws Exception {
+        for (Contract contract : new Contract[] {
+                aSimpleContract(),
+                aSimpleContractWithDataRef(EditMode.EDIT),
+                aSimpleContractWithDataRef(EditMode.CREATE),
+                aContractWithDataRefAndAggregation(EditMode.EDIT),
+                aContractWithDataRefAndAggregation(EditMode.CREATE),
+                aContractWithMultipleInput() }) {
+            var analysis = new ContractAnalysis(contract, jsonHandler, businessQueryDataFactory);
+
+            assertThat(analysis.getFormInputData().create())
+                    .usingRecursiveComparison()
+                    .isEqualTo(new FormInputData(jsonHandler, contract).create());
+            assertThat(analysis.getFormOutputData().create())
+                    .usingRecursiveComparison()
+                    .isEqualTo(new FormOutputData(contract).create());
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aContract;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractInputBuilder.aContractInput;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractInputBuilder.aNodeContractInput;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import org.bonitasoft.web.designer.generator.mapping.data.FormInputData;
+import org.bonitasoft.web.designer.generator.parametrizedWidget.ParametrizedWidgetFactory;
+import org.bonitasoft.web.designer.model.contract.AbstractContractInput;
+import org.bonitasoft.web.designer.model.contract.BusinessDataReference;
+import org.bonitasoft.web.designer.model.contract.BusinessDataReference.LoadingType;
+import org.bonitasoft.web.designer.model.contract.BusinessDataReference.RelationType;
+import org.bonitasoft.web.designer.model.contract.ContractInput;
+import org.bonitasoft.web.designer.model.contract.EditMode;
+import org.bonitasoft.web.designer.model.contract.NodeContractInput;
+import org.junit.jupiter.api.Test;
+
+public class ContractInputDataHandlerTest {
+
+    private ContractInput employeeInput() {
+        return aContract().inEditMode().withInput(
+                aNodeContractInput("employeeInput")
+                        .withDataReference(new BusinessDataReference("employee", "org.test.Employee",
+                                RelationType.COMPOSITION, LoadingType.EAGER))
+                        .withInput(
+                                aContractInput("firstName").build(),
+                                aNodeContractInput("manager")
+                                        .withDataReference(new BusinessDataReference("manager", "org.test.Employee",
+                                                RelationType.COMPOSITION, LoadingType.LAZY))
+                                        .withInput(aContractInput("lastName").build())
+                                        .build(),
+                                aNodeContractInput("addresses")
+                                        .mulitple()
+                                        .withDataReference(new BusinessDataReference("addresses", "org.test.Address",
+                                                RelationType.COMPOSITION, LoadingType.EAGER))
+                                        .withInput(aContractInput("city").build())
+                                        .build())
+                        .build())
+                .build()
+                .getInput().get(0);
+    }
+
+    @Test
+    void should_build_paths_of_nested_inputs() {
+        var employee = new ContractInputDataHandler(employeeInput());
+        var firstName = employee.getChildren().get(0);
+        var managerLastName = employee.getChildren().get(1).getChildren().get(0);
+        var addressCity = employee.getChildren().get(2).getChildren().get(0);
+
+        assertThat(firstName.inputValue()).isEqualTo("employee.firstName");
+        assertThat(firstName.getDataPath()).isEqualTo("$data.employee.firstName");
+        assertThat(managerLastName.inputValue()).isEqualTo("employee_manager.lastName");
+        assertThat(managerLastName.getDataPath()).isEqualTo("$data.employee.manager.lastName");
+        assertThat(addressCity.inputValue()).isEqualTo("$item.city");
+        assertThat(addressCity.getDataPath()).isEqualTo("it.city");
+    }
+
+    @Test
+    void should_compute_the_same_paths_from_an_input_or_from_its_parent_handler() {
+        var employeeInput = employeeInput();
+        var managerInput = employeeInput.getInput().get(1);
+        var lastNameInput = managerInput.getInput().get(0);
+
+        var fromParent = new ContractInputDataHandler(employeeInput).getChildren().get(1).getChildren().get(0);
+        var fromInput = new ContractInputDataHandler(lastNameInput);
+
+        assertThat(fromInput.inputValue()).isEqualTo(fromParent.inputValue());
+        assertThat(fromInput.getDataPath()).isEqualTo(fromParent.getDataPath());
+        assertThat(new ContractInputDataHandler(managerInput).hasLazyDataRef()).isTrue();
+    }
+
+    @Test
+    void should_share_parent_handler_between_children() {
+        var employee = new ContractInputDataHandler(employeeInput());
+
+        assertThat(employee.getChildren()).allSatisfy(child -> assertThat(child.getParent()).isSameAs(employee));
+        assertThat(employee.getChildren()).isSameAs(employee.getChildren());
+    }
+
+    @Test
+    void should_not_consider_lazy_reference_under_a_multiple_input() {
+        var input = aContract().inEditMode().withInput(
+                aNodeContractInput("employeesInput")
+                        .mulitple()
+                        .withDataReference(new BusinessDataReference("employees", "org.test.Employee",
+                                RelationType.COMPOSITION, LoadingType.EAGER))
+                        .withInput(aNodeContractInput("manager")
+                                .withDataReference(new BusinessDataReference("manager", "org.test.Employee",
+                                        RelationType.COMPOSITION, LoadingType.LAZY))
+                                .build())
+                        .build())
+                .build()
+                .getInput().get(0);
+
+        var manager = new ContractInputDataHandler(input).getChildren().get(0);
+
+        assertThat(manager.hasLazyDataRef()).isFalse();
+        assertThat(manager.inputValue()).isEqualTo("$item.manager");
+    }
+
+    @Test
+    void should_compute_the_same_paths_as_walking_up_the_contract() {
+        var random = new Random(42);
+        for (var i = 0; i < 300; i++) {
+            var contract = aContract().withInput(randomInput(random, "root", 0, true));
+            if (random.nextBoolean()) {
+                contract.inEditMode();
+            }
+            for (var root : contract.build().getInput()) {
+                assertSamePaths(new ContractInputDataHandler(root));
+            }
+        }
+    }
+
+    private void assertSamePaths(ContractInputDataHandler handler) {
+        var input = handler.getContractInput();
+        var description = input.getName() + " of " + input.getParent();
+        assertThat(handler.hasLazyDataRef()).as(description).isEqualTo(walkedHasLazyDataRef(input));
+        assertThat(handler.inputValue()).as(description).isEqualTo(walkedInputValue(input));
+        assertThat(handler.getDataPath()).as(description).isEqualTo(walkedDataPath(input));
+        var standalone = new ContractInputDataHandler(input);
+        assertThat(standalone.inputValue()).as(description).isEqualTo(handler.inputValue());
+        assertThat(standalone.getDataPath()).as(description).isEqualTo(handler.getDataPath());
+        handler.getChildren().forEach(this::assertSamePaths);
+    }
+
+    /**
+     * Data references are only set under a referenced parent, as the studio does, so that lazy reference names
+     * can be resolved
+     */
+    private ContractInput randomInput(Random random, String name, int depth, boolean referencedParent) {
+        if (depth > 0 && (depth > 3 || random.nextInt(3) == 0)) {
+            var leafName = random.nextInt(4) == 0 ? ContractInputDataHandler.PERSISTENCE_ID_INPUT_NAME : name;
+            return random.nextInt(4) == 0
+                    ? aContractInput(leafName).mulitple().build()
+                    : aContractInput(leafName).build();
+        }
+        var node = aNodeContractInput(name);
+        if (random.nextInt(3) == 0) {
+            node.mulitple();
+        }
+        var referenced = referencedParent && random.nextInt(4) != 0;
+        if (referenced) {
+            node.withDataReference(new BusinessDataReference(name + "Ref", "org.test.Object" + depth,
+                    random.nextBoolean() ? RelationType.COMPOSITION : RelationType.AGGREGATION,
+                    random.nextBoolean() ? LoadingType.LAZY : LoadingType.EAGER));
+        }
+        var children = 1 + random.nextInt(3);
+        for (var i = 0; i < children; i++) {
+            node.withInput(randomInput(random, name + "_" + i, depth + 1, referenced));
+        }
+        return node.build();
+    }
+
+    /*
+     * Paths as computed before handlers were memoized, walking up the contract inputs on each call
+     */
+
+    private static boolean walkedHasDataReference(ContractInput input) {
+        return input.getMode() == EditMode.EDIT
+                && input instanceof AbstractContractInput
+                && ((AbstractContractInput) input).getDataReference() != null;
+    }
+
+    private static boolean walkedHasLazyDataRef(ContractInput input) {
+        if (!walkedHasDataReference(input)
+                || !(input instanceof NodeContractInput)
+                || ((NodeContractInput) input).getDataReference().getLoadingType() != LoadingType.LAZY) {
+            return false;
+        }
+        var current = input.getParent();
+        while (current != null && !current.isMultiple()) {
+            current = current.getParent();
+        }
+        return current == null;
+    }
+
+    private static String walkedInputName(ContractInput input) {
+        if (!walkedHasDataReference(input)) {
+            return input.getName();
+        }
+        if (!walkedHasLazyDataRef(input)) {
+            return ((AbstractContractInput) input).getDataReference().getName();
+        }
+        var names = new ArrayList<String>();
+        for (var current = input; current != null; current = current.getParent()) {
+            names.add(((NodeContractInput) current).getDataReference().getName());
+        }
+        Collections.reverse(names);
+        return String.join("_", names);
+    }
+
+    private static String walkedInputValue(ContractInput input) {
+        if (Objects.equals(ContractInputDataHandler.PERSISTENCE_ID_INPUT_NAME, input.getName())
+                && ContractInputDataHandler.hasAggregatedParentRef(input)) {
+            var parent = input.getParent();
+            return walkedHasLazyDataRef(parent) ? walkedInputName(parent) : walkedPathForInputValue(parent);
+        }
+        return walkedHasLazyDataRef(input) ? walkedInputName(input) : walkedPathForInputValue(input);
+    }
+
+    private static String walkedPathForInputValue(ContractInput input) {
+        List<String> names = new ArrayList<>();
+        names.add(walkedInputName(input));
+        var parentHasDataRef = walkedHasDataReference(input);
+        var parentHasLazyDataRef = parentHasDataRef && walkedHasLazyDataRef(input);
+        var parent = input.getParent();
+        while (!parentHasLazyDataRef && parent != null) {
+            parentHasDataRef = walkedHasDataReference(parent);
+            if (parent.isMultiple()) {
+                names.add(ParametrizedWidgetFactory.ITEM_ITERATOR);
+                break;
+            }
+            parentHasLazyDataRef = walkedHasLazyDataRef(parent);
+            names.add(walkedInputName(parent));
+            parent = parent.getParent();
+        }
+        if (parent == null && !parentHasDataRef) {
+            names.add(FormInputData.INPUT_NAME);
+        }
+        Collections.reverse(names);
+        return String.join(".", names);
+    }
+
+    private static String walkedDataPath(ContractInput input) {
+        List<String> names = new ArrayList<>();
+        names.add(walkedDataName(input));
+        var parent = input.getParent();
+        while (parent != null) {
+            if (parent.isMultiple()) {
+                names.add(ContractInputDataHandler.ITERATOR_NAME);
+                break;
+            }
+            names.add(walkedDataName(parent));
+            parent = parent.getParent();
+        }
+        if (parent == null) {
+            names.add("$data");
+        }
+        Collections.reverse(names);
+        return String.join(".", names);
+    }
+
+    private static String walkedDataName(ContractInput input) {
+        return input instanceof AbstractContractInput && ((AbstractContractInput) input).getDataReference() != null
+                ? ((AbstractContractInput) input).getDataReference().getName()
+                : input.getName();
+    }
+}
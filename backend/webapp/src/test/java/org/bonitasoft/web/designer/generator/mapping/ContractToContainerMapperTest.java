@@ -14,6 +14,7 @@
  */
 package org.bonitasoft.web.designer.generator.mapping;
 
+import org.bonitasoft.web.designer.config.FormGenerationProperties;
 import org.bonitasoft.web.designer.model.JsonHandler;
 import org.bonitasoft.web.designer.model.JsonHandlerFactory;
 import org.bonitasoft.web.designer.model.contract.EditMode;
@@ -27,6 +28,8 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aContractWithDataRefAndAggregation;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aContractWithMultipleInput;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aSimpleContract;
 import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aSimpleContractWithDataRef;
 
 public class ContractToContainerMapperTest {
@@ -116,6 +119,25 @@ public class ContractToContainerMapperTest {
         assertThat(pValue.getValue()).isEqualTo("employee.manager");
     }
 
+    @Test
+    public void should_build_the_same_container_when_top_level_inputs_are_built_concurrently() throws Exception {
+        var contract = aSimpleContract();
+        aSimpleContractWithDataRef(EditMode.EDIT).getInput().forEach(contract::addInput);
+        aContractWithDataRefAndAggregation(EditMode.EDIT).getInput().forEach(contract::addInput);
+        aContractWithMultipleInput().getInput().forEach(contract::addInput);
+        var formGenerationProperties = new FormGenerationProperties();
+        formGenerationProperties.setParallelThreshold(1);
+        var concurrentMapper = new ContractToContainerMapper(new ContractInputToWidgetMapper(new DimensionFactory(), jsonHandler),
+                formGenerationProperties);
+
+        Container container = concurrentMapper.create(contract);
+
+        // every generated element gets its own random reference
+        assertThat(container).usingRecursiveComparison()
+                .ignoringFieldsMatchingRegexes("(.*\\.)?reference")
+                .isEqualTo(makeContractToContainerMapper().create(contract));
+    }
+
     private ContractToContainerMapper makeContractToContainerMapper() {
         return new ContractToContainerMapper(new ContractInputToWidgetMapper(new DimensionFactory(), jsonHandler));
     }
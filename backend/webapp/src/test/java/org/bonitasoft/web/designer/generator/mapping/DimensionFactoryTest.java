@@ -19,6 +19,7 @@ import org.junit.jupiter.api.Test;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 
 public class DimensionFactoryTest {
 
@@ -34,4 +35,25 @@ public class DimensionFactoryTest {
         assertThat(dimensions.get("md")).isEqualTo(12);
         assertThat(dimensions.get("lg")).isEqualTo(12);
     }
+
+    @Test
+    void should_not_impact_other_elements_when_a_dimension_map_is_modified() {
+        DimensionFactory dimensionFactory = new DimensionFactory();
+        Map<String, Integer> modified = dimensionFactory.create(12);
+        Map<String, Integer> other = dimensionFactory.create(12);
+
+        modified.put("xs", 6);
+        modified.remove("lg");
+
+        assertThat(modified).containsOnly(entry("xs", 6), entry("sm", 12), entry("md", 12));
+        assertThat(other).containsOnly(entry("xs", 12), entry("sm", 12), entry("md", 12), entry("lg", 12));
+        assertThat(dimensionFactory.create(12)).isEqualTo(other);
+    }
+
+    @Test
+    void should_create_dimension_map_for_sizes_out_of_the_grid() {
+        Map<String, Integer> dimensions = new DimensionFactory().create(24);
+
+        assertThat(dimensions).containsOnly(entry("xs", 24), entry("sm", 24), entry("md", 24), entry("lg", 24));
+    }
 }
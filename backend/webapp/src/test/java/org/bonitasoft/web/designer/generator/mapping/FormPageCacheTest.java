@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.mapping;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aSimpleContract;
+import static org.bonitasoft.web.designer.model.contract.builders.ContractBuilder.aSimpleContractWithDataRef;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bonitasoft.web.designer.config.FormGenerationProperties;
+import org.bonitasoft.web.designer.config.UiDesignerProperties;
+import org.bonitasoft.web.designer.model.JacksonJsonHandler;
+import org.bonitasoft.web.designer.model.JsonHandler;
+import org.bonitasoft.web.designer.model.contract.EditMode;
+import org.bonitasoft.web.designer.model.page.Component;
+import org.bonitasoft.web.designer.model.page.Container;
+import org.bonitasoft.web.designer.model.page.Form;
+import org.bonitasoft.web.designer.model.page.Page;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@ExtendWith(MockitoExtension.class)
+class FormPageCacheTest {
+
+    @Mock
+    private ContractToPageMapper contractToPageMapper;
+
+    @Mock
+    private UiDesignerProperties uiDesignerProperties;
+
+    private final JsonHandler jsonHandler = new JacksonJsonHandler(new ObjectMapper());
+
+    private FormGenerationProperties formGenerationProperties;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(uiDesignerProperties.getVersion()).thenReturn("1.0.0");
+        lenient().when(uiDesignerProperties.getModelVersion()).thenReturn("2.0");
+        lenient().when(contractToPageMapper.createFormPage(anyString(), any(), any())).thenAnswer(invocation -> {
+            var page = new Page();
+            page.setName(invocation.getArgument(0));
+            return page;
+        });
+        formGenerationProperties = new FormGenerationProperties();
+        formGenerationProperties.getCache().setMaxEntries(2);
+    }
+
+    private FormPageCache newCache() {
+        return new FormPageCache(contractToPageMapper, jsonHandler, uiDesignerProperties, formGenerationProperties);
+    }
+
+    @Test
+    void should_copy_and_rename_the_form_generated_for_the_same_contract() {
+        var cache = newCache();
+
+        var firstPage = cache.createFormPage("firstForm", aSimpleContract(), FormScope.TASK);
+        var secondPage = cache.createFormPage("secondForm", aSimpleContract(), FormScope.TASK);
+
+        verify(contractToPageMapper, times(1)).createFormPage(anyString(), any(), any());
+        assertThat(firstPage.getName()).isEqualTo("firstForm");
+        assertThat(secondPage.getName()).isEqualTo("secondForm");
+        assertThat(secondPage).isNotSameAs(firstPage);
+    }
+
+    @Test
+    void should_give_each_copy_its_own_uuid_and_element_references() {
+        when(contractToPageMapper.createFormPage(anyString(), any(), any())).thenAnswer(invocation -> {
+            var container = new Container();
+            container.addNewRow(new Component());
+            return new Form(invocation.getArgument(0)).addNewRow(container);
+        });
+        var cache = newCache();
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+
+        var firstCopy = cache.createFormPage("firstCopy", aSimpleContract(), FormScope.TASK);
+        var secondCopy = cache.createFormPage("secondCopy", aSimpleContract(), FormScope.TASK);
+
+        verify(contractToPageMapper, times(1)).createFormPage(anyString(), any(), any());
+        assertThat(secondCopy.getUUID()).isNotNull().isNotEqualTo(firstCopy.getUUID());
+        assertThat(references(secondCopy)).hasSize(2).doesNotContainAnyElementsOf(references(firstCopy));
+    }
+
+    @Test
+    void should_generate_again_for_another_scope_or_contract() {
+        var cache = newCache();
+
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+        cache.createFormPage("form", aSimpleContract(), FormScope.PROCESS);
+        cache.createFormPage("form", aSimpleContractWithDataRef(EditMode.EDIT), FormScope.TASK);
+
+        verify(contractToPageMapper, times(3)).createFormPage(anyString(), any(), any());
+    }
+
+    @Test
+    void should_use_another_key_when_generator_version_changes() throws Exception {
+        var key = newCache().keyFor(aSimpleContract(), FormScope.TASK);
+        when(uiDesignerProperties.getVersion()).thenReturn("1.0.1");
+
+        assertThat(newCache().keyFor(aSimpleContract(), FormScope.TASK)).isNotEqualTo(key);
+    }
+
+    @Test
+    void should_evict_least_recently_used_form_when_full() {
+        var cache = newCache();
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+        cache.createFormPage("form", aSimpleContract(), FormScope.PROCESS);
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+
+        cache.createFormPage("form", aSimpleContract(), FormScope.OVERVIEW);
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+        cache.createFormPage("form", aSimpleContract(), FormScope.PROCESS);
+
+        verify(contractToPageMapper, times(4)).createFormPage(anyString(), any(), any());
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void should_always_generate_when_disabled() {
+        formGenerationProperties.getCache().setMaxEntries(0);
+        var cache = newCache();
+
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+
+        verify(contractToPageMapper, times(2)).createFormPage(anyString(), any(), any());
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void should_publish_hits_and_misses() {
+        var cache = newCache();
+        var registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+        cache.createFormPage("form", aSimpleContract(), FormScope.TASK);
+
+        assertThat(registry.get("cache.gets").tags("cache", "formGeneration", "result", "hit").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("cache.gets").tags("cache", "formGeneration", "result", "miss").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("cache.size").tags("cache", "formGeneration").gauge().value()).isEqualTo(1);
+    }
+
+    private List<String> references(Page page) {
+        var container = (Container) page.getRows().get(0).get(0);
+        return List.of(container.getReference(), container.getRows().get(0).get(0).getReference());
+    }
+}
@@ -28,6 +28,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class BusinessObjectDeserializerTest {
 
+    private static final String COMPLEX_BUSINESS_OBJECT = "{  \"name\": \"com.company.bpm.model.Order\",  \"attributes\": [    {      \"name\": \"requester\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"creationDate\",      \"type\": \"OFFSETDATETIME\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"modifyBy\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"modificationDate\",      \"type\": \"OFFSETDATETIME\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"category\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"projectName\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"projectDescription\",      \"type\": \"TEXT\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"launchDate\",      \"type\": \"LOCALDATE\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"projectCode\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"process\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"comments\",      \"type\": \"AGGREGATION\",      \"nullable\": \"true\",      \"collection\": \"true\",      \"description\": \"\",      \"reference\": \"com.danone.bpm.model.line\",      \"fetchType\": \"LAZY\",      \"attributes\": [        {          \"name\": \"productName\",          \"type\": \"STRING\",          \"nullable\": \"true\",          \"collection\": \"false\",          \"description\": \"\"        },        {          \"name\": \"creationDate\",          \"type\": \"OFFSETDATETIME\",          \"nullable\": \"true\",          \"collection\": \"false\",          \"description\": \"\"        },        {          \"name\": \"comment\",          \"type\": \"TEXT\",          \"nullable\": \"true\",          \"collection\": \"false\",          \"description\": \"\"        },        {          \"name\": \"quantity\",          \"type\": \"INTEGER\",          \"nullable\": \"false\",          \"collection\": \"false\",          \"description\": \"\"        },        {          \"name\": \"price\",          \"type\": \"double\",          \"nullable\": \"false\",          \"collection\": \"false\",          \"description\": \"\"        }      ]    }  ],  \"variableName\": \"order\"}";
+
     private ObjectMapper mapper;
     private BusinessObjectDeserializer deserializer;
 
@@ -39,9 +41,7 @@ public class BusinessObjectDeserializerTest {
 
     @Test
     public void deserialize_a_json_complex_businessObject_into_a_businessObject_object() throws Exception {
-        String jsonValue = "{  \"name\": \"com.company.bpm.model.Order\",  \"attributes\": [    {      \"name\": \"requester\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"creationDate\",      \"type\": \"OFFSETDATETIME\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"modifyBy\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"modificationDate\",      \"type\": \"OFFSETDATETIME\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"category\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"projectName\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"projectDescription\",      \"type\": \"TEXT\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"launchDate\",      \"type\": \"LOCALDATE\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"projectCode\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"process\",      \"type\": \"STRING\",      \"nullable\": \"true\",      \"collection\": \"false\",      \"description\": \"\"    },    {      \"name\": \"comments\",      \"type\": \"AGGREGATION\",      \"nullable\": \"true\",      \"collection\": \"true\",      \"description\": \"\",      \"reference\": \"com.danone.bpm.model.line\",      \"fetchType\": \"LAZY\",      \"attributes\": [        {          \"name\": \"productName\",          \"type\": \"STRING\",          \"nullable\": \"true\",          \"collection\": \"false\",          \"description\": \"\"        },        {          \"name\": \"creationDate\",          \"type\": \"OFFSETDATETIME\",          \"nullable\": \"true\",          \"collection\": \"false\",          \"description\": \"\"        },        {          \"name\": \"comment\",          \"type\": \"TEXT\",          \"nullable\": \"true\",          \"collection\": \"false\",          \"description\": \"\"        },        {          \"name\": \"quantity\",          \"type\": \"INTEGER\",          \"nullable\": \"false\",          \"collection\": \"false\",          \"description\": \"\"        },        {          \"name\": \"price\",          \"type\": \"double\",          \"nullable\": \"false\",          \"collection\": \"false\",          \"description\": \"\"        }      ]    }  ],  \"variableName\": \"order\"}";
-
-        BusinessObject bo = deserializer.deserialize(new JsonFactory(new ObjectMapper()).createParser(jsonValue), null);
+        BusinessObject bo = deserializer.deserialize(new JsonFactory(new ObjectMapper()).createParser(COMPLEX_BUSINESS_OBJECT), null);
         NodeBusinessObjectInput rootNode = (NodeBusinessObjectInput) bo.getInput().get(0);
         assertEquals("order", rootNode.getPageDataName());
         assertEquals(11, rootNode.getInput().size());
@@ -56,4 +56,31 @@ public class BusinessObjectDeserializerTest {
         assertEquals(BusinessDataReference.LoadingType.LAZY, nestedBusinessObject.getDataReference().getLoadingType());
         assertEquals(rootNode,nestedBusinessObject.getParent());
     }
+
+    @Test
+    public void should_bind_business_objects_as_the_tree_deserializer_does() throws Exception {
+        BusinessObject streamed = deserializer.deserialize(mapper.createParser(COMPLEX_BUSINESS_OBJECT), null);
+        BusinessObject fromTree = new BusinessObjectTreeDeserializer().deserialize(mapper.createParser(COMPLEX_BUSINESS_OBJECT), null);
+
+        assertEquals(mapper.writeValueAsString(fromTree), mapper.writeValueAsString(streamed));
+    }
+
+    @Test
+    public void should_compute_page_data_names_when_attributes_come_before_the_variable_name() throws Exception {
+        String jsonValue = "{\"attributes\": [{\"attributes\": [{\"attributes\": [{\"type\": \"STRING\", \"name\": \"city\"}],"
+                + " \"fetchType\": \"LAZY\", \"reference\": \"com.company.Address\", \"type\": \"COMPOSITION\", \"name\": \"address\"}],"
+                + " \"fetchType\": \"EAGER\", \"reference\": \"com.company.Customer\", \"type\": \"AGGREGATION\", \"name\": \"customer\"}],"
+                + " \"variableName\": \"order\", \"name\": \"com.company.Order\"}";
+
+        BusinessObject bo = deserializer.deserialize(mapper.createParser(jsonValue), null);
+
+        NodeBusinessObjectInput rootNode = (NodeBusinessObjectInput) bo.getInput().get(0);
+        NodeBusinessObjectInput customer = (NodeBusinessObjectInput) rootNode.getInput().get(0);
+        NodeBusinessObjectInput address = (NodeBusinessObjectInput) customer.getInput().get(0);
+        assertEquals("com.company.Order", rootNode.getName());
+        assertEquals("order_customer", customer.getPageDataName());
+        assertEquals("order_customer", address.getPageDataName());
+        assertEquals(customer, address.getParent());
+        assertEquals("city", address.getInput().get(0).getName());
+    }
 }
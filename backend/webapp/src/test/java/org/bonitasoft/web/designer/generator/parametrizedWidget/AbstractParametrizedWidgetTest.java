@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.generator.parametrizedWidget;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.model.ParameterType.CONSTANT;
+import static org.bonitasoft.web.designer.model.ParameterType.EXPRESSION;
+import static org.bonitasoft.web.designer.model.ParameterType.INTERPOLATION;
+
+import org.bonitasoft.web.designer.generator.mapping.DimensionFactory;
+import org.bonitasoft.web.designer.model.page.PropertyValue;
+import org.junit.jupiter.api.Test;
+
+public class AbstractParametrizedWidgetTest {
+
+    @Test
+    void should_expose_widget_properties_having_a_getter() {
+        var title = new TitleWidget();
+        title.setText("Hello");
+
+        var propertyValues = title.toComponent(new DimensionFactory()).getPropertyValues();
+
+        assertThat(propertyValues).containsOnlyKeys("text", "level", "alignment", "cssClasses", "hidden", "dimension");
+        assertThat(propertyValues.get("text")).usingRecursiveComparison().isEqualTo(propertyValue(INTERPOLATION.getValue(), "Hello"));
+        assertThat(propertyValues.get("level")).usingRecursiveComparison().isEqualTo(propertyValue(CONSTANT.getValue(), "Level 4"));
+        assertThat(propertyValues.get("dimension")).usingRecursiveComparison().isEqualTo(propertyValue(CONSTANT.getValue(), 12));
+    }
+
+    @Test
+    void should_read_current_values_each_time_a_component_is_created() {
+        var title = new TitleWidget();
+        title.setLevel("Level 1");
+        title.toComponent(new DimensionFactory());
+
+        title.setLevel("Level 2");
+        title.setHidden("$data.hide");
+
+        var propertyValues = title.toComponent(new DimensionFactory()).getPropertyValues();
+        assertThat(propertyValues.get("level").getValue()).isEqualTo("Level 2");
+        assertThat(propertyValues.get("hidden")).usingRecursiveComparison().isEqualTo(propertyValue(EXPRESSION.getValue(), "$data.hide"));
+    }
+
+    @Test
+    void should_not_expose_hidden_expression_when_empty() {
+        var propertyValues = new TitleWidget().toComponent(new DimensionFactory()).getPropertyValues();
+
+        assertThat(propertyValues.get("hidden")).usingRecursiveComparison().isEqualTo(propertyValue(CONSTANT.getValue(), false));
+    }
+
+    @Test
+    void should_let_explicit_property_values_override_widget_properties() {
+        var title = new TitleWidget();
+        title.setText("Hello");
+        title.setPropertyValue("text", EXPRESSION, "$data.title");
+
+        var propertyValues = title.toComponent(new DimensionFactory()).getPropertyValues();
+
+        assertThat(propertyValues.get("text")).usingRecursiveComparison().isEqualTo(propertyValue(EXPRESSION.getValue(), "$data.title"));
+    }
+
+    @Test
+    void should_expose_properties_inherited_from_parent_widgets() {
+        var propertyValues = new TextWidget().toComponent(new DimensionFactory()).getPropertyValues();
+
+        assertThat(propertyValues).containsKeys("text", "label", "labelHidden", "cssClasses", "dimension");
+    }
+
+    private PropertyValue propertyValue(String type, Object value) {
+        var propertyValue = new PropertyValue();
+        propertyValue.setType(type);
+        propertyValue.setValue(value);
+        return propertyValue;
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.builder.PageBuilder.aPage;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.web.designer.model.ArtifactStatusReport;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationReport;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationResult;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationStatus;
+import org.bonitasoft.web.designer.model.migrationReport.MigrationStepReport;
+import org.bonitasoft.web.designer.model.page.Page;
+import org.bonitasoft.web.designer.service.PageService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ArtifactMigrationServiceTest {
+
+    @Mock
+    private PageService pageService;
+
+    private final ArtifactMigrationService artifactMigrationService = new ArtifactMigrationService();
+
+    @Test
+    void should_report_a_successful_migration() {
+        Page page = aPage().withId("page").withModelVersion("2.0").build();
+        when(pageService.getStatus(page)).thenReturn(new ArtifactStatusReport(true, true));
+        when(pageService.migrateWithReport(page)).thenReturn(migrated(page));
+
+        var report = artifactMigrationService.migrate(page, pageService);
+
+        assertThat(report.getStatus()).isEqualTo(MigrationStatus.SUCCESS);
+        assertThat(report.getElementId()).isEqualTo("page");
+    }
+
+    @Test
+    void should_not_migrate_an_artifact_which_does_not_need_it() {
+        Page page = aPage().withId("page").withModelVersion("2.0").build();
+        when(pageService.getStatus(page)).thenReturn(new ArtifactStatusReport(true, false));
+
+        var report = artifactMigrationService.migrate(page, pageService);
+
+        assertThat(report.getStatus()).isEqualTo(MigrationStatus.NONE);
+        verify(pageService, never()).migrateWithReport(page);
+    }
+
+    @Test
+    void should_report_an_error_when_migration_fails() {
+        Page page = aPage().withId("page").withModelVersion("2.0").build();
+        when(pageService.getStatus(page)).thenReturn(new ArtifactStatusReport(true, true));
+        when(pageService.migrateWithReport(page)).thenThrow(new IllegalStateException("cannot save page"));
+
+        var report = artifactMigrationService.migrate(page, pageService);
+
+        assertThat(report.getStatus()).isEqualTo(MigrationStatus.ERROR);
+        assertThat(report.getElementId()).isEqualTo("page");
+    }
+
+    @Test
+    void should_apply_migrations_one_at_a_time() throws Exception {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        when(pageService.getStatus(any(Page.class))).thenReturn(new ArtifactStatusReport(true, true));
+        when(pageService.migrateWithReport(any(Page.class))).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return migrated(invocation.getArgument(0));
+        });
+
+        var executor = Executors.newFixedThreadPool(4);
+        try {
+            var migrations = new ArrayList<Future<MigrationReport>>();
+            for (int i = 0; i < 8; i++) {
+                Page page = aPage().withId("page" + i).withModelVersion("2.0").build();
+                migrations.add(executor.submit(() -> artifactMigrationService.migrate(page, pageService)));
+            }
+            for (Future<MigrationReport> migration : migrations) {
+                assertThat(migration.get().getStatus()).isEqualTo(MigrationStatus.SUCCESS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(maxRunning).hasValue(1);
+    }
+
+    private MigrationResult<Page> migrated(Page page) {
+        return new MigrationResult<>(page, List.of(new MigrationStepReport(MigrationStatus.SUCCESS, page.getId())));
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bonitasoft.web.designer.config.WebSocketConfig;
+import org.bonitasoft.web.designer.config.WorkspaceProperties;
+import org.bonitasoft.web.designer.model.ArtifactStatusReport;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+
+class ArtifactStatusCacheTest {
+
+    @TempDir
+    Path workspace;
+
+    private ArtifactStatusCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        var workspaceProperties = new WorkspaceProperties();
+        workspaceProperties.getPages().setDir(Files.createDirectories(workspace.resolve("pages")));
+        workspaceProperties.getWidgets().setDir(Files.createDirectories(workspace.resolve("widgets")));
+        workspaceProperties.getFragments().setDir(Files.createDirectories(workspace.resolve("fragments")));
+        cache = new ArtifactStatusCache(workspaceProperties);
+    }
+
+    @Test
+    void should_compute_status_once_while_artifact_is_unchanged() throws Exception {
+        createArtifact("pages", "myPage");
+
+        var first = cache.get("page", "myPage", this::load);
+        var second = cache.get("page", "myPage", this::load);
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void should_compute_status_again_when_artifact_file_changes() throws Exception {
+        var file = createArtifact("pages", "myPage");
+        cache.get("page", "myPage", this::load);
+
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 5000));
+        cache.get("page", "myPage", this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void should_not_cache_status_of_an_artifact_without_file() {
+        cache.get("page", "unknown", this::load);
+        cache.get("page", "unknown", this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void should_drop_statuses_when_an_artifact_is_updated() throws Exception {
+        createArtifact("widgets", "myWidget");
+        cache.get("widget", "myWidget", this::load);
+
+        var message = MessageBuilder.withPayload("myWidget")
+                .setHeader(SimpMessageHeaderAccessor.DESTINATION_HEADER, WebSocketConfig.PREVIEWABLE_UPDATE)
+                .build();
+        cache.preSend(message, null);
+        cache.get("widget", "myWidget", this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void should_list_ids_of_the_artifacts_of_a_type() throws Exception {
+        createArtifact("fragments", "b");
+        createArtifact("fragments", "a");
+        Files.createDirectories(workspace.resolve("fragments").resolve("notAnArtifact"));
+
+        assertThat(cache.ids("fragment")).containsExactly("a", "b");
+    }
+
+    private Path createArtifact(String directory, String id) throws Exception {
+        var artifactDirectory = Files.createDirectories(workspace.resolve(directory).resolve(id));
+        return Files.writeString(artifactDirectory.resolve(id + ".json"), "{}");
+    }
+
+    private ArtifactStatusReport load() {
+        loads.incrementAndGet();
+        return new ArtifactStatusReport(true, false);
+    }
+}
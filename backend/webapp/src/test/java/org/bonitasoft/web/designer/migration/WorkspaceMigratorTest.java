@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2015 Bonitasoft S.A.
+ * Bonitasoft, 32 rue Gustave Eiffel - 38000 Grenoble
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 2.0 of the License, or
+ * (at your option) any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.bonitasoft.web.designer.migration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bonitasoft.web.designer.builder.FragmentBuilder.aFragment;
+import static org.bonitasoft.web.designer.builder.PageBuilder.aPage;
+import static org.bonitasoft.web.designer.builder.WidgetBuilder.aWidget;
+import static org.bonitasoft.web.designer.config.WebSocketConfig.MIGRATION_PROGRESS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.bonitasoft.web.designer.common.repository.FragmentRepository;
+import org.bonitasoft.web.designer.common.repository.PageRepository;
+import org.bonitasoft.web.designer.common.repository.WidgetRepository;
+import org.bonitasoft.web.designer.config.MigrationProperties;
+import org.bonitasoft.web.designer.config.PreviewProperties;
+import org.bonitasoft.web.designer.controller.preview.PreviewHtmlCache;
+import org.bonitasoft.web.designer.model.ArtifactStatusReport;
+import org.bonitasoft.web.designer.model.fragment.Fragment;
+import org.bonitasoft.web.designer.model.page.Page;
+import org.bonitasoft.web.designer.model.widget.Widget;
+import org.bonitasoft.web.designer.service.FragmentService;
+import org.bonitasoft.web.designer.service.PageService;
+import org.bonitasoft.web.designer.service.WidgetService;
+import org.bonitasoft.web.designer.workspace.Workspace;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+@ExtendWith(MockitoExtension.class)
+class WorkspaceMigratorTest {
+
+    @Mock
+    private Workspace workspace;
+    @Mock
+    private PageRepository pageRepository;
+    @Mock
+    private WidgetRepository widgetRepository;
+    @Mock
+    private FragmentRepository fragmentRepository;
+    @Mock
+    private PageService pageService;
+    @Mock
+    private WidgetService widgetService;
+    @Mock
+    private FragmentService fragmentService;
+    @Mock
+    private SimpMessagingTemplate messagingTemplate;
+
+    private WorkspaceMigrator workspaceMigrator;
+
+    @BeforeEach
+    void setUp() {
+        var migrationProperties = new MigrationProperties();
+        migrationProperties.setParallelism(2);
+        migrationProperties.setRetainedJobs(1);
+        workspaceMigrator = new WorkspaceMigrator(workspace, pageRepository, widgetRepository, fragmentRepository, pageService,
+                widgetService, fragmentService, new ArtifactMigrationService(), new PreviewHtmlCache(new PreviewProperties()), migrationProperties, messagingTemplate);
+    }
+
+    @AfterEach
+    void tearDown() {
+        workspaceMigrator.shutdown();
+    }
+
+    @Test
+    void should_migrate_all_custom_widgets_fragments_and_pages_in_background() throws Exception {
+        Widget customWidget = aWidget().withId("customWidget").custom().modelVersion("2.0").build();
+        Widget standardWidget = aWidget().withId("pbInput").modelVersion("2.0").build();
+        Fragment fragment = aFragment().withId("fragment").withModelVersion("2.0").build();
+        Page page1 = aPage().withId("page1").withModelVersion("2.0").build();
+        Page page2 = aPage().withId("page2").withModelVersion("2.0").build();
+        when(widgetRepository.getAll()).thenReturn(List.of(customWidget, standardWidget));
+        when(fragmentRepository.getAll()).thenReturn(List.of(fragment));
+        when(pageRepository.getAll()).thenReturn(List.of(page1, page2));
+        var upToDate = new ArtifactStatusReport(true, false);
+        when(widgetService.getStatus(customWidget)).thenReturn(upToDate);
+        when(fragmentService.getStatus(fragment)).thenReturn(upToDate);
+        when(pageService.getStatus(any(Page.class))).thenReturn(upToDate);
+
+        var job = workspaceMigrator.start();
+        var finishedJob = waitForEndOf(job.getId());
+
+        assertThat(finishedJob.getStatus()).isEqualTo(WorkspaceMigrationJob.Status.DONE);
+        assertThat(finishedJob.getTotal()).isEqualTo(4);
+        assertThat(finishedJob.getProcessed()).isEqualTo(4);
+        assertThat(finishedJob.getReports()).hasSize(4);
+        assertThat(finishedJob.getEstimatedRemainingTime()).isZero();
+        verify(widgetService, never()).getStatus(standardWidget);
+        verify(workspace).migrateWorkspace();
+        verify(messagingTemplate, atLeast(5)).convertAndSend(eq(MIGRATION_PROGRESS), any(WorkspaceMigrationJob.Progress.class));
+    }
+
+    @Test
+    void should_report_a_failed_migration() throws Exception {
+        when(widgetRepository.getAll()).thenThrow(new IllegalStateException("workspace is broken"));
+
+        var job = workspaceMigrator.start();
+        var finishedJob = waitForEndOf(job.getId());
+
+        assertThat(finishedJob.getStatus()).isEqualTo(WorkspaceMigrationJob.Status.FAILED);
+        assertThat(finishedJob.getError()).isEqualTo("workspace is broken");
+    }
+
+    @Test
+    void should_forget_old_jobs() throws Exception {
+        when(widgetRepository.getAll()).thenReturn(List.of());
+        when(fragmentRepository.getAll()).thenReturn(List.of());
+        when(pageRepository.getAll()).thenReturn(List.of());
+
+        var firstJob = workspaceMigrator.start();
+        waitForEndOf(firstJob.getId());
+        var secondJob = workspaceMigrator.start();
+
+        assertThat(workspaceMigrator.getJob(firstJob.getId())).isEmpty();
+        assertThat(workspaceMigrator.getJob(secondJob.getId())).isPresent();
+        waitForEndOf(secondJob.getId());
+    }
+
+    private WorkspaceMigrationJob waitForEndOf(String jobId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            var job = workspaceMigrator.getJob(jobId).orElseThrow();
+            if (job.getStatus() != WorkspaceMigrationJob.Status.RUNNING) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Migration job " + jobId + " did not finish");
+    }
+}